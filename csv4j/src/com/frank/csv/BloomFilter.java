@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * BloomFilter.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+/**
+ * The Bloom filter of 64-bit hashes. The bit positions of an element are
+ * derived from the two halves of its hash by double hashing, so the hashes
+ * should be well distributed.
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+final class BloomFilter
+{
+	/**
+	 * The bits of the filter.
+	 */
+	private final long[]	bits;
+	/**
+	 * The amount of bits.
+	 */
+	private final long		size;
+	/**
+	 * The amount of bit positions of each element.
+	 */
+	private final int		hashes;
+
+	/**
+	 * Construct an instance of empty Bloom filter.
+	 *
+	 * @param expected
+	 *            the expected amount of distinct elements
+	 * @param falsePositiveRate
+	 *            the false positive rate at the expected amount of elements
+	 */
+	BloomFilter(long expected, double falsePositiveRate)
+	{
+		if (expected < 1)
+			throw new IllegalArgumentException(String.format(
+					"The expected amount of elements(%d) must be positive.",
+					expected));
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1))
+			throw new IllegalArgumentException(String.format(
+					"The false positive rate(%f) must be in (0, 1).",
+					falsePositiveRate));
+		double ln2 = Math.log(2);
+		long m = Math.max(64, (long) Math.ceil(-expected
+				* Math.log(falsePositiveRate) / (ln2 * ln2)));
+		long words = m + 63 >>> 6;
+		if (words > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException(String.format(
+					"The Bloom filter of %d bits is too large.", m));
+		this.bits = new long[(int) words];
+		this.size = words << 6;
+		this.hashes = Math.max(1, (int) Math.round((double) size / expected
+				* ln2));
+	}
+
+	/**
+	 * Add an element.
+	 *
+	 * @param hash
+	 *            the 64-bit hash of the element
+	 * @return <tt>true</tt> if the element is definitely not contained
+	 *         before, <tt>false</tt> if it is probably contained
+	 */
+	boolean add(long hash)
+	{
+		long h1 = hash, h2 = hash >>> 32 | 1;
+		boolean added = false;
+		for (int i = 0; i < hashes; i++)
+		{
+			long bit = ((h1 + i * h2) & Long.MAX_VALUE) % size;
+			long mask = 1L << bit;
+			int word = (int) (bit >>> 6);
+			if ((bits[word] & mask) == 0)
+			{
+				bits[word] |= mask;
+				added = true;
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Returns the amount of heap bytes of the bits.
+	 *
+	 * @return the size in bytes
+	 */
+	long bytes()
+	{
+		return (long) bits.length * 8;
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString()
+	{
+		return String.format("BloomFilter[bits=%d, hashes=%d]", size, hashes);
+	}
+}
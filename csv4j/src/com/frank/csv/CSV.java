@@ -8,6 +8,10 @@ package com.frank.csv;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.NoSuchElementException;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 /**
  * The CSV data set class, which contains the CSV data in strings.
@@ -80,6 +84,29 @@ public class CSV
 		this(columns, rows, false);
 	}
 
+	/**
+	 * Construct an instance of CSV data on the specified rows without
+	 * copying them. Each row should contain exactly the amount of columns.
+	 * 
+	 * @param columns
+	 *            the amount of columns
+	 * @param titles
+	 *            the titles, or <tt>null</tt> if the data is untitled
+	 * @param data
+	 *            the rows
+	 */
+	CSV(int columns, String[] titles, String[][] data)
+	{
+		this.columns = columns;
+		this.rows = data.length;
+		if (titles != null)
+		{
+			map = new HashMap<String, Integer>(columns);
+			setTitles(titles);
+		}
+		this.data = data;
+	}
+
 	/**
 	 * Returns the amount of rows.
 	 * 
@@ -182,6 +209,24 @@ public class CSV
 			return data[row][column];
 	}
 
+	/**
+	 * Get the specified row in CSV data. The returned array is backed by the
+	 * current CSV data.
+	 * 
+	 * @param row
+	 *            the row index
+	 * @return the specified row
+	 */
+	public String[] getRow(int row)
+	{
+		if (row < 0 || row >= rows)
+			throw new ArrayIndexOutOfBoundsException(String.format(
+					"The request row %d is out of the bounds of %d", row,
+					rows));
+		else
+			return data[row];
+	}
+
 	/**
 	 * Get the specified field in CSV data according to the row index and
 	 * the column title.
@@ -202,6 +247,150 @@ public class CSV
 			return getData(row, column);
 	}
 
+	/**
+	 * Returns a sequential stream of the rows. The stream is sized and can be
+	 * split evenly for parallel processing.
+	 * 
+	 * @return the stream of the rows
+	 * @see #getRow(int)
+	 */
+	public Stream<String[]> stream()
+	{
+		return IntStream.range(0, rows()).mapToObj(this::getRow);
+	}
+
+	/**
+	 * Returns a sequential stream of the fields in the specified column. The
+	 * stream is sized and can be split evenly for parallel processing.
+	 * 
+	 * @param column
+	 *            the column index
+	 * @return the stream of the fields
+	 */
+	public Stream<String> column(int column)
+	{
+		if (column < 0 || column >= columns())
+			throw new ArrayIndexOutOfBoundsException(String.format(
+					"The request column %d is out of the bounds of %d",
+					column, columns()));
+		return IntStream.range(0, rows()).mapToObj(
+				row -> getData(row, column));
+	}
+
+	/**
+	 * Returns a sequential stream of the fields in the specified column.
+	 * 
+	 * @param title
+	 *            the column title
+	 * @return the stream of the fields
+	 */
+	public Stream<String> column(String title)
+	{
+		return column(columnIndex(title));
+	}
+
+	/**
+	 * Returns a sequential stream of the <tt>int</tt> values in the
+	 * specified column. The fields are parsed while the stream is consumed.
+	 * 
+	 * @param column
+	 *            the column index
+	 * @return the stream of the values
+	 * @throws NumberFormatException
+	 *             if a field is not an <tt>int</tt> value when it is consumed
+	 */
+	public IntStream intColumn(int column)
+	{
+		return column(column).mapToInt(Integer::parseInt);
+	}
+
+	/**
+	 * Returns a sequential stream of the <tt>int</tt> values in the
+	 * specified column.
+	 * 
+	 * @param title
+	 *            the column title
+	 * @return the stream of the values
+	 */
+	public IntStream intColumn(String title)
+	{
+		return intColumn(columnIndex(title));
+	}
+
+	/**
+	 * Returns a sequential stream of the <tt>long</tt> values in the
+	 * specified column. The fields are parsed while the stream is consumed.
+	 * 
+	 * @param column
+	 *            the column index
+	 * @return the stream of the values
+	 * @throws NumberFormatException
+	 *             if a field is not a <tt>long</tt> value when it is consumed
+	 */
+	public LongStream longColumn(int column)
+	{
+		return column(column).mapToLong(Long::parseLong);
+	}
+
+	/**
+	 * Returns a sequential stream of the <tt>long</tt> values in the
+	 * specified column.
+	 * 
+	 * @param title
+	 *            the column title
+	 * @return the stream of the values
+	 */
+	public LongStream longColumn(String title)
+	{
+		return longColumn(columnIndex(title));
+	}
+
+	/**
+	 * Returns a sequential stream of the <tt>double</tt> values in the
+	 * specified column. The fields are parsed while the stream is consumed.
+	 * 
+	 * @param column
+	 *            the column index
+	 * @return the stream of the values
+	 * @throws NumberFormatException
+	 *             if a field is not a <tt>double</tt> value when it is
+	 *             consumed
+	 */
+	public DoubleStream doubleColumn(int column)
+	{
+		return column(column).mapToDouble(Double::parseDouble);
+	}
+
+	/**
+	 * Returns a sequential stream of the <tt>double</tt> values in the
+	 * specified column.
+	 * 
+	 * @param title
+	 *            the column title
+	 * @return the stream of the values
+	 */
+	public DoubleStream doubleColumn(String title)
+	{
+		return doubleColumn(columnIndex(title));
+	}
+
+	/**
+	 * Returns the index of the title, or throws an exception if not found.
+	 * 
+	 * @param title
+	 *            the column title
+	 * @return the column index
+	 */
+	private int columnIndex(String title)
+	{
+		int column = index(title);
+		if (column == -1)
+			throw new NoSuchElementException(String.format(
+					"There is no such title \"%s\" in current CSV data.",
+					title));
+		return column;
+	}
+
 	/**
 	 * Set the specified field in CSV data according to the row index and
 	 * the column index.
@@ -253,18 +442,41 @@ public class CSV
 	 * @return the content string in CSV format
 	 */
 	protected String parse(String s)
+	{
+		return format(s);
+	}
+
+	/**
+	 * Format the content of a field to the CSV format.
+	 * 
+	 * @param s
+	 *            the content string
+	 * @return the content string in CSV format
+	 */
+	static String format(String s)
 	{
 		if (s == null)
 			return "";
 		else
 		{
 			boolean hasComma = s.indexOf(',') > -1;
-			boolean hasQuotation = s.indexOf('"') > -1;
-			if (hasQuotation)
-				s = s.replaceAll("\"", "\"\"");
+			int quotation = s.indexOf('"');
+			if (quotation == -1 && !hasComma)
+				return s;
+			StringBuilder sb = new StringBuilder(s.length() + 8);
 			if (hasComma)
-				s = String.format("\"%s\"", s);
-			return s;
+				sb.append('"');
+			int start = 0;
+			while (quotation != -1)
+			{
+				sb.append(s, start, quotation + 1).append('"');
+				start = quotation + 1;
+				quotation = s.indexOf('"', start);
+			}
+			sb.append(s, start, s.length());
+			if (hasComma)
+				sb.append('"');
+			return sb.toString();
 		}
 	}
 
@@ -279,6 +491,24 @@ public class CSV
 	 *             - If an I/O error occurs
 	 */
 	protected void writeLine(Appendable a, String[] line) throws IOException
+	{
+		writeLine(a, line, delimiter);
+	}
+
+	/**
+	 * Write a line to an appendable composite with the specified delimiter.
+	 * 
+	 * @param a
+	 *            the appendable composite
+	 * @param line
+	 *            the specified line
+	 * @param delimiter
+	 *            the delimiter appended after the line
+	 * @throws IOException
+	 *             - If an I/O error occurs
+	 */
+	protected void writeLine(Appendable a, String[] line, String delimiter)
+			throws IOException
 	{
 		if (line.length > 0)
 		{
@@ -297,14 +527,10 @@ public class CSV
 	 */
 	public String toString()
 	{
-		StringBuffer sb = new StringBuffer();
+		StringBuilder sb = new StringBuilder();
 		try
 		{
-			if (titles != null)
-				writeLine(sb, titles);
-			for (String[] line : data)
-				writeLine(sb, line);
-			sb.delete(sb.length() - delimiter.length(), sb.length());
+			write(sb, delimiter);
 		}
 		catch (IOException e)
 		{
@@ -312,6 +538,93 @@ public class CSV
 		return sb.toString();
 	}
 
+	/**
+	 * Write the whole CSV data to an appendable composite, the lines are
+	 * separated by the specified delimiter. This method does not change the
+	 * delimiter of the current CSV data.
+	 * 
+	 * @param a
+	 *            the appendable composite
+	 * @param delimiter
+	 *            the delimiter between lines
+	 * @throws IOException
+	 *             - If an I/O error occurs
+	 */
+	protected void write(Appendable a, String delimiter) throws IOException
+	{
+		boolean first = true;
+		if (isTitled())
+		{
+			writeLine(a, getTitles(), "");
+			first = false;
+		}
+		int rows = rows();
+		for (int row = 0; row < rows; row++)
+		{
+			if (!first)
+				a.append(delimiter);
+			writeLine(a, getRow(row), "");
+			first = false;
+		}
+	}
+
+	/**
+	 * Returns the estimated amount of heap bytes retained by the cells,
+	 * the titles and the row arrays of this CSV data.
+	 * 
+	 * @return the estimated size in bytes
+	 */
+	public long estimateSize()
+	{
+		long size = align(16 + 4L * data.length);
+		if (titles != null)
+			size += sizeOf(titles) + 48L * titles.length;
+		for (String[] line : data)
+			size += sizeOf(line);
+		return size;
+	}
+
+	/**
+	 * Returns the estimated amount of heap bytes retained by a row and its
+	 * cells.
+	 * 
+	 * @param line
+	 *            the specified row
+	 * @return the estimated size in bytes
+	 */
+	protected static long sizeOf(String[] line)
+	{
+		long size = align(16 + 4L * line.length);
+		for (String s : line)
+			size += sizeOf(s);
+		return size;
+	}
+
+	/**
+	 * Returns the estimated amount of heap bytes retained by a cell, which
+	 * contains the string object and its character array.
+	 * 
+	 * @param s
+	 *            the specified cell
+	 * @return the estimated size in bytes
+	 */
+	protected static long sizeOf(String s)
+	{
+		return s == null ? 0 : 24 + align(16 + 2L * s.length());
+	}
+
+	/**
+	 * Align the size to the 8 bytes boundary of the object layout.
+	 * 
+	 * @param size
+	 *            the size in bytes
+	 * @return the aligned size
+	 */
+	protected static long align(long size)
+	{
+		return (size + 7) & ~7L;
+	}
+
 	/**
 	 * Get the current delimiter.
 	 * 
@@ -350,7 +663,7 @@ public class CSV
 	 */
 	public int getRows()
 	{
-		return rows;
+		return rows();
 	}
 
 	/**
@@ -359,7 +672,7 @@ public class CSV
 	 */
 	public int getColumns()
 	{
-		return columns;
+		return columns();
 	}
 
 	/**
@@ -0,0 +1,608 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVAggregator.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * The streaming group-by aggregation over CSV rows.
+ * <p>
+ * The rows are read from a {@link CSVRowReader} in one pass, and only one
+ * accumulator of primitive values is kept for each group, so that the memory
+ * is bounded by the amount of groups instead of the amount of rows. The
+ * integral values are accumulated exactly as <tt>long</tt>, an aggregate
+ * falls back to <tt>double</tt> only when it meets a fractional value or its
+ * sum overflows. The empty fields are ignored by all the functions except
+ * {@link Function#COUNT}, which counts the rows of the group.
+ * </p>
+ * <p>
+ * The result is a {@link CSV} instance, which contains one row for each group
+ * in the order of their first appearance. The group columns come first, and
+ * are followed by the aggregated columns titled as <tt>FUNCTION(column)</tt>.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class CSVAggregator
+{
+	/**
+	 * The aggregate functions.
+	 */
+	public static enum Function
+	{
+		/**
+		 * The amount of rows.
+		 */
+		COUNT,
+		/**
+		 * The sum of the values.
+		 */
+		SUM,
+		/**
+		 * The minimum of the values.
+		 */
+		MIN,
+		/**
+		 * The maximum of the values.
+		 */
+		MAX,
+		/**
+		 * The average of the values.
+		 */
+		AVG
+	}
+
+	/**
+	 * The accumulator of a group.
+	 */
+	static final class Accumulator
+	{
+		/**
+		 * The amount of rows.
+		 */
+		long			rows;
+		/**
+		 * The amount of values of each aggregate.
+		 */
+		final long[]	counts;
+		/**
+		 * The accumulated integral value of each aggregate.
+		 */
+		final long[]	longs;
+		/**
+		 * The accumulated value of each aggregate, which is used instead of
+		 * the integral value if the aggregate is real.
+		 */
+		final double[]	values;
+		/**
+		 * The flags whether the aggregates have fallen back to
+		 * <tt>double</tt>.
+		 */
+		final boolean[]	real;
+
+		/**
+		 * Construct an instance of accumulator.
+		 *
+		 * @param size
+		 *            the amount of aggregates
+		 */
+		Accumulator(int size)
+		{
+			counts = new long[size];
+			longs = new long[size];
+			values = new double[size];
+			real = new boolean[size];
+		}
+	}
+
+	/**
+	 * The group titles, or <tt>null</tt> if grouped by indices.
+	 */
+	protected final String[]		groupTitles;
+	/**
+	 * The group column indices, or <tt>null</tt> if grouped by titles.
+	 */
+	protected final int[]			groupColumns;
+	/**
+	 * The aggregate functions.
+	 */
+	protected final List<Function>	functions	= new ArrayList<Function>();
+	/**
+	 * The aggregated columns, each of them is a title or an index.
+	 */
+	protected final List<Object>	columns		= new ArrayList<Object>();
+	/**
+	 * The amount of rows in each chunk of the parallel mode.
+	 */
+	protected int					chunkSize	= 10000;
+
+	/**
+	 * Construct an instance of aggregator grouped by the specified titles.
+	 *
+	 * @param groupBy
+	 *            the titles of the group columns
+	 */
+	public CSVAggregator(String... groupBy)
+	{
+		this.groupTitles = groupBy.clone();
+		this.groupColumns = null;
+	}
+
+	/**
+	 * Construct an instance of aggregator grouped by the specified column
+	 * indices.
+	 *
+	 * @param groupBy
+	 *            the indices of the group columns
+	 */
+	public CSVAggregator(int... groupBy)
+	{
+		this.groupTitles = null;
+		this.groupColumns = groupBy.clone();
+	}
+
+	/**
+	 * Add an aggregate of the specified column.
+	 *
+	 * @param function
+	 *            the aggregate function
+	 * @param title
+	 *            the title of the aggregated column
+	 */
+	public void addAggregate(Function function, String title)
+	{
+		functions.add(function);
+		columns.add(title);
+	}
+
+	/**
+	 * Add an aggregate of the specified column.
+	 *
+	 * @param function
+	 *            the aggregate function
+	 * @param column
+	 *            the index of the aggregated column
+	 */
+	public void addAggregate(Function function, int column)
+	{
+		functions.add(function);
+		columns.add(column);
+	}
+
+	/**
+	 * Aggregate the rows of the specified reader in the current thread.
+	 *
+	 * @param in
+	 *            the row reader, which is read to the end but not closed
+	 * @return the aggregated CSV data
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public CSV aggregate(CSVRowReader in) throws IOException
+	{
+		int[] groups = groups(in);
+		int[] targets = targets(in);
+		Function[] functions = this.functions
+				.toArray(new Function[this.functions.size()]);
+		LinkedHashMap<RowKey, Accumulator> map = new LinkedHashMap<RowKey, Accumulator>();
+		String[] row;
+		while ((row = in.next()) != null)
+			accumulate(map, row, groups, targets, functions, in.getRow());
+		return result(in, map, functions);
+	}
+
+	/**
+	 * Aggregate the rows of the specified reader in parallel. The lines are
+	 * read in the current thread and split into chunks, the chunks are parsed
+	 * and aggregated by the executor, and the partial aggregates are merged
+	 * in the order of the chunks.
+	 *
+	 * @param in
+	 *            the row reader, which is read to the end but not closed
+	 * @param executor
+	 *            the executor for the chunks
+	 * @return the aggregated CSV data
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public CSV aggregate(final CSVRowReader in, ExecutorService executor)
+			throws IOException
+	{
+		final int[] groups = groups(in);
+		final int[] targets = targets(in);
+		final Function[] functions = this.functions
+				.toArray(new Function[this.functions.size()]);
+		int pending = Runtime.getRuntime().availableProcessors() * 2;
+		ArrayDeque<Future<LinkedHashMap<RowKey, Accumulator>>> futures = new ArrayDeque<Future<LinkedHashMap<RowKey, Accumulator>>>();
+		LinkedHashMap<RowKey, Accumulator> map = new LinkedHashMap<RowKey, Accumulator>();
+		try
+		{
+			while (true)
+			{
+				final long first = in.getRow() + 1;
+				final List<String> lines = new ArrayList<String>(chunkSize);
+				String line;
+				while (lines.size() < chunkSize
+						&& (line = in.nextLine()) != null)
+					lines.add(line);
+				if (lines.isEmpty())
+					break;
+				futures.add(executor
+						.submit(new Callable<LinkedHashMap<RowKey, Accumulator>>() {
+							public LinkedHashMap<RowKey, Accumulator> call()
+							{
+								LinkedHashMap<RowKey, Accumulator> map = new LinkedHashMap<RowKey, Accumulator>();
+								for (int i = 0; i < lines.size(); i++)
+									accumulate(map, in.parseLine(lines.get(i)),
+											groups, targets, functions, first
+													+ i);
+								return map;
+							}
+						}));
+				while (futures.size() > pending)
+					merge(map, futures.poll().get(), functions);
+			}
+			while (!futures.isEmpty())
+				merge(map, futures.poll().get(), functions);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("The aggregation is interrupted.", e);
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+		finally
+		{
+			for (Future<?> future : futures)
+				future.cancel(true);
+		}
+		return result(in, map, functions);
+	}
+
+	/**
+	 * Resolve the indices of the group columns.
+	 *
+	 * @param in
+	 *            the row reader
+	 * @return the indices of the group columns
+	 */
+	private int[] groups(CSVRowReader in)
+	{
+		return groupColumns != null ? groupColumns : RowKey.indices(in,
+				groupTitles);
+	}
+
+	/**
+	 * Resolve the indices of the aggregated columns.
+	 *
+	 * @param in
+	 *            the row reader
+	 * @return the indices of the aggregated columns
+	 */
+	private int[] targets(CSVRowReader in)
+	{
+		int[] targets = new int[columns.size()];
+		for (int i = 0; i < targets.length; i++)
+		{
+			Object column = columns.get(i);
+			targets[i] = column instanceof Integer ? (Integer) column : in
+					.index((String) column);
+		}
+		return targets;
+	}
+
+	/**
+	 * Accumulate a row into the group map.
+	 *
+	 * @param map
+	 *            the group map
+	 * @param row
+	 *            the row
+	 * @param groups
+	 *            the indices of the group columns
+	 * @param targets
+	 *            the indices of the aggregated columns
+	 * @param functions
+	 *            the aggregate functions
+	 * @param index
+	 *            the index of the row, which is used in the error message
+	 */
+	static void accumulate(Map<RowKey, Accumulator> map, String[] row,
+			int[] groups, int[] targets, Function[] functions, long index)
+	{
+		RowKey key = RowKey.of(row, groups);
+		Accumulator a = map.get(key);
+		if (a == null)
+			map.put(key, a = new Accumulator(functions.length));
+		a.rows++;
+		for (int i = 0; i < functions.length; i++)
+		{
+			if (functions[i] == Function.COUNT || targets[i] >= row.length)
+				continue;
+			String s = row[targets[i]];
+			if (s == null || (s = s.trim()).isEmpty())
+				continue;
+			try
+			{
+				if (integral(s))
+					try
+					{
+						add(a, i, functions[i], 1, Long.parseLong(s));
+						continue;
+					}
+					catch (NumberFormatException e)
+					{
+						// out of the range of long, parsed as double
+					}
+				add(a, i, functions[i], 1, Double.parseDouble(s));
+			}
+			catch (NumberFormatException e)
+			{
+				throw new IllegalArgumentException(String.format(
+						"The field(row, column) = (%d, %d) \"%s\" is not a number.",
+						index, targets[i], s), e);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the value consists of digits with an optional sign.
+	 *
+	 * @param s
+	 *            the non-empty value
+	 * @return <tt>true</tt> if the value is integral
+	 */
+	private static boolean integral(String s)
+	{
+		int i = s.charAt(0) == '-' || s.charAt(0) == '+' ? 1 : 0;
+		if (i == s.length())
+			return false;
+		for (; i < s.length(); i++)
+			if (s.charAt(i) < '0' || s.charAt(i) > '9')
+				return false;
+		return true;
+	}
+
+	/**
+	 * Add integral values into the accumulator.
+	 *
+	 * @param a
+	 *            the accumulator
+	 * @param i
+	 *            the index of the aggregate
+	 * @param function
+	 *            the aggregate function
+	 * @param count
+	 *            the amount of values
+	 * @param value
+	 *            the accumulated value
+	 */
+	private static void add(Accumulator a, int i, Function function,
+			long count, long value)
+	{
+		if (count == 0)
+			return;
+		if (a.real[i])
+		{
+			add(a, i, function, count, (double) value);
+			return;
+		}
+		switch (function)
+		{
+			case SUM:
+			case AVG:
+				try
+				{
+					a.longs[i] = Math.addExact(a.longs[i], value);
+				}
+				catch (ArithmeticException e)
+				{
+					add(a, i, function, count, (double) value);
+					return;
+				}
+				break;
+			case MIN:
+				if (a.counts[i] == 0 || value < a.longs[i])
+					a.longs[i] = value;
+				break;
+			case MAX:
+				if (a.counts[i] == 0 || value > a.longs[i])
+					a.longs[i] = value;
+				break;
+			default:
+				break;
+		}
+		a.counts[i] += count;
+	}
+
+	/**
+	 * Add values into the accumulator.
+	 *
+	 * @param a
+	 *            the accumulator
+	 * @param i
+	 *            the index of the aggregate
+	 * @param function
+	 *            the aggregate function
+	 * @param count
+	 *            the amount of values
+	 * @param value
+	 *            the accumulated value
+	 */
+	private static void add(Accumulator a, int i, Function function,
+			long count, double value)
+	{
+		if (count == 0)
+			return;
+		if (!a.real[i])
+		{
+			a.values[i] = a.longs[i];
+			a.real[i] = true;
+		}
+		switch (function)
+		{
+			case SUM:
+			case AVG:
+				a.values[i] += value;
+				break;
+			case MIN:
+				if (a.counts[i] == 0 || value < a.values[i])
+					a.values[i] = value;
+				break;
+			case MAX:
+				if (a.counts[i] == 0 || value > a.values[i])
+					a.values[i] = value;
+				break;
+			default:
+				break;
+		}
+		a.counts[i] += count;
+	}
+
+	/**
+	 * Merge the partial aggregates into the group map.
+	 *
+	 * @param map
+	 *            the group map
+	 * @param partial
+	 *            the partial aggregates
+	 * @param functions
+	 *            the aggregate functions
+	 */
+	static void merge(Map<RowKey, Accumulator> map,
+			Map<RowKey, Accumulator> partial, Function[] functions)
+	{
+		for (Map.Entry<RowKey, Accumulator> e : partial.entrySet())
+		{
+			Accumulator a = map.get(e.getKey());
+			if (a == null)
+				map.put(e.getKey(), e.getValue());
+			else
+			{
+				Accumulator b = e.getValue();
+				a.rows += b.rows;
+				for (int i = 0; i < functions.length; i++)
+					if (b.real[i])
+						add(a, i, functions[i], b.counts[i], b.values[i]);
+					else
+						add(a, i, functions[i], b.counts[i], b.longs[i]);
+			}
+		}
+	}
+
+	/**
+	 * Build the result CSV data.
+	 *
+	 * @param in
+	 *            the row reader
+	 * @param map
+	 *            the group map
+	 * @param functions
+	 *            the aggregate functions
+	 * @return the aggregated CSV data
+	 */
+	private CSV result(CSVRowReader in, Map<RowKey, Accumulator> map,
+			Function[] functions)
+	{
+		int[] groups = groups(in);
+		int columns = groups.length + functions.length;
+		CSV csv = new CSV(columns, map.size(), in.isTitled());
+		if (in.isTitled())
+		{
+			String[] titles = new String[columns];
+			for (int i = 0; i < groups.length; i++)
+				titles[i] = in.getTitles()[groups[i]];
+			for (int i = 0; i < functions.length; i++)
+			{
+				Object column = this.columns.get(i);
+				titles[groups.length + i] = String.format("%s(%s)",
+						functions[i], column instanceof Integer ? in
+								.getTitles()[(Integer) column] : column);
+			}
+			csv.setTitles(titles);
+		}
+		int row = 0;
+		for (Map.Entry<RowKey, Accumulator> e : map.entrySet())
+		{
+			String[] line = csv.data[row++];
+			String[] key = e.getKey().values;
+			System.arraycopy(key, 0, line, 0, key.length);
+			Accumulator a = e.getValue();
+			for (int i = 0; i < functions.length; i++)
+			{
+				String s;
+				if (functions[i] == Function.COUNT)
+					s = Long.toString(a.rows);
+				else if (a.counts[i] == 0)
+					s = null;
+				else if (functions[i] == Function.AVG)
+					s = format((a.real[i] ? a.values[i] : a.longs[i])
+							/ a.counts[i]);
+				else if (a.real[i])
+					s = format(a.values[i]);
+				else
+					s = Long.toString(a.longs[i]);
+				line[groups.length + i] = s;
+			}
+		}
+		return csv;
+	}
+
+	/**
+	 * Format the aggregated value, the integral values are formatted without
+	 * fraction.
+	 *
+	 * @param value
+	 *            the aggregated value
+	 * @return the formatted value
+	 */
+	private static String format(double value)
+	{
+		if (value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE)
+			return Long.toString((long) value);
+		else
+			return Double.toString(value);
+	}
+
+	/**
+	 * Get the amount of rows in each chunk of the parallel mode.
+	 *
+	 * @return the chunk size
+	 */
+	public int getChunkSize()
+	{
+		return chunkSize;
+	}
+
+	/**
+	 * Set the amount of rows in each chunk of the parallel mode.
+	 *
+	 * @param chunkSize
+	 *            the value of chunk size
+	 */
+	public void setChunkSize(int chunkSize)
+	{
+		if (chunkSize < 1)
+			throw new IllegalArgumentException(String.format(
+					"Illegal chunk size: %d.", chunkSize));
+		this.chunkSize = chunkSize;
+	}
+}
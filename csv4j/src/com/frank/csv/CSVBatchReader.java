@@ -0,0 +1,656 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVBatchReader.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The reader of many CSV files of the same schema, such as all the files of
+ * a directory matching a glob pattern.
+ * <p>
+ * The files are read concurrently, at most {@link #getParallelism()} files
+ * are read at once, and they are consumed in the given order. The rows are
+ * either merged into one {@link CSV} instance, which is allocated once from
+ * the row counts of the files, or returned as an ordered stream.
+ * </p>
+ * <p>
+ * If the files are titled, the titles of the first file read are the
+ * titles of the result. The titles of another file are compatible if they
+ * contain the same titles, possibly in a different order, in which case its
+ * fields are rearranged in the order of the result. A file which cannot be
+ * read or whose titles are incompatible is skipped and recorded in
+ * {@link #getErrors()}, unless the reader fails fast. The listener is
+ * notified in the order of the files in the calling thread.
+ * </p>
+ * <p>
+ * The batch reader is not thread safe, the titles and the errors are those
+ * of the last read.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class CSVBatchReader
+{
+	/**
+	 * The listener of the progress of a batch read.
+	 */
+	public static interface Listener
+	{
+		/**
+		 * Called when a file is read.
+		 *
+		 * @param file
+		 *            the file
+		 * @param rows
+		 *            the amount of data rows of the file
+		 * @param completed
+		 *            the amount of files completed, including the failed ones
+		 * @param total
+		 *            the amount of files
+		 */
+		void fileRead(File file, int rows, int completed, int total);
+
+		/**
+		 * Called when a file is skipped for an error.
+		 *
+		 * @param file
+		 *            the file
+		 * @param error
+		 *            the error
+		 * @param completed
+		 *            the amount of files completed, including the failed ones
+		 * @param total
+		 *            the amount of files
+		 */
+		void fileFailed(File file, Exception error, int completed, int total);
+	}
+
+	/**
+	 * The files being read, which are consumed in order.
+	 */
+	private final class Batch implements Closeable
+	{
+		/**
+		 * The files.
+		 */
+		private final List<File>				files;
+		/**
+		 * The executor of the reads.
+		 */
+		private final ExecutorService			pool;
+		/**
+		 * The flag whether the executor is created by the batch.
+		 */
+		private final boolean					owned;
+		/**
+		 * The pending reads in the order of the files.
+		 */
+		private final ArrayDeque<Future<CSV>>	futures	= new ArrayDeque<Future<CSV>>();
+		/**
+		 * The index of the next file to submit.
+		 */
+		private int								submitted;
+		/**
+		 * The index of the next file to consume.
+		 */
+		private int								completed;
+
+		/**
+		 * Construct an instance of batch and start reading the files.
+		 *
+		 * @param files
+		 *            the files
+		 */
+		Batch(List<File> files)
+		{
+			this.files = files;
+			this.owned = executor == null;
+			this.pool = owned ? Executors.newFixedThreadPool(Math.max(1,
+					Math.min(parallelism, files.size()))) : executor;
+			submit();
+		}
+
+		/**
+		 * Submit the files until the amount of pending reads reaches the
+		 * parallelism.
+		 */
+		private void submit()
+		{
+			while (futures.size() < parallelism && submitted < files.size())
+			{
+				final File file = files.get(submitted++);
+				futures.add(pool.submit(() -> reader.read(file)));
+			}
+		}
+
+		/**
+		 * Returns the rows of the next file read successfully, in the order
+		 * of the titles of the result.
+		 *
+		 * @return the rows, or <tt>null</tt> if all the files are consumed
+		 * @throws IOException
+		 *             if a file fails and the reader fails fast, or the read
+		 *             is interrupted.
+		 */
+		String[][] next() throws IOException
+		{
+			while (completed < files.size())
+			{
+				File file = files.get(completed++);
+				Future<CSV> future = futures.poll();
+				submit();
+				try
+				{
+					CSV csv = future.get();
+					String[][] rows = rows(file, csv);
+					if (listener != null)
+						listener.fileRead(file, rows.length, completed,
+								files.size());
+					return rows;
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new IOException("The batch read is interrupted.", e);
+				}
+				catch (ExecutionException e)
+				{
+					if (e.getCause() instanceof Error)
+						throw (Error) e.getCause();
+					fail(file, (Exception) e.getCause(), completed);
+				}
+				catch (IOException | RuntimeException e)
+				{
+					fail(file, e, completed);
+				}
+			}
+			close();
+			return null;
+		}
+
+		/**
+		 * Record the error of a file.
+		 *
+		 * @param file
+		 *            the file
+		 * @param error
+		 *            the error
+		 * @param completed
+		 *            the amount of files completed
+		 * @throws IOException
+		 *             if the reader fails fast.
+		 */
+		private void fail(File file, Exception error, int completed)
+				throws IOException
+		{
+			errors.put(file, error);
+			if (listener != null)
+				listener.fileFailed(file, error, completed, files.size());
+			if (failFast)
+				throw new IOException(String.format("Failed to read %s.",
+						file), error);
+		}
+
+		/**
+		 * Cancel the pending reads and release the executor if it is created
+		 * by the batch.
+		 *
+		 * @see java.io.Closeable#close()
+		 */
+		public void close()
+		{
+			for (Future<CSV> future : futures)
+				future.cancel(true);
+			futures.clear();
+			if (owned)
+				pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * The reader of each file.
+	 */
+	protected final CSVReader					reader;
+	/**
+	 * The executor of the reads, or <tt>null</tt> if an executor is created
+	 * for each batch.
+	 */
+	private ExecutorService						executor;
+	/**
+	 * The maximum amount of files read at once.
+	 */
+	private int									parallelism	= Runtime
+																	.getRuntime()
+																	.availableProcessors();
+	/**
+	 * The flag whether the first failed file fails the batch.
+	 */
+	private boolean								failFast;
+	/**
+	 * The listener of the progress, or <tt>null</tt> if the progress is not
+	 * reported.
+	 */
+	private Listener							listener;
+	/**
+	 * The titles of the result of the last read, or <tt>null</tt> if it is
+	 * untitled or no file is read.
+	 */
+	private String[]							titles;
+	/**
+	 * The amount of columns of the result of the last read.
+	 */
+	private int									columns;
+	/**
+	 * The errors of the files skipped by the last read.
+	 */
+	private final LinkedHashMap<File, Exception>	errors		= new LinkedHashMap<File, Exception>();
+
+	/**
+	 * Construct an instance of batch reader.
+	 *
+	 * @param reader
+	 *            the reader of each file
+	 */
+	public CSVBatchReader(CSVReader reader)
+	{
+		if (reader == null)
+			throw new IllegalArgumentException("The reader is null.");
+		this.reader = reader;
+	}
+
+	/**
+	 * List the regular files of a directory matching a glob pattern, such as
+	 * <code>*.csv</code>, in the order of their names.
+	 *
+	 * @param directory
+	 *            the directory
+	 * @param glob
+	 *            the glob pattern of the file names
+	 * @return the files
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public static List<File> list(File directory, String glob)
+			throws IOException
+	{
+		List<File> files = new ArrayList<File>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(
+				directory.toPath(), glob))
+		{
+			for (Path path : stream)
+				if (Files.isRegularFile(path))
+					files.add(path.toFile());
+		}
+		Collections.sort(files);
+		return files;
+	}
+
+	/**
+	 * Read the files of a directory matching a glob pattern and merge them.
+	 *
+	 * @param directory
+	 *            the directory
+	 * @param glob
+	 *            the glob pattern of the file names
+	 * @return the merged CSV data
+	 * @throws IOException
+	 *             if an I/O error occurs while listing the directory, or a
+	 *             file fails and the reader fails fast.
+	 * @see #list(File, String)
+	 */
+	public CSV read(File directory, String glob) throws IOException
+	{
+		return read(list(directory, glob));
+	}
+
+	/**
+	 * Read the files and merge them in the given order.
+	 *
+	 * @param files
+	 *            the files
+	 * @return the merged CSV data
+	 * @throws IOException
+	 *             if a file fails and the reader fails fast.
+	 */
+	public CSV read(List<File> files) throws IOException
+	{
+		reset();
+		List<String[][]> parts = new ArrayList<String[][]>(files.size());
+		long total = 0;
+		Batch batch = new Batch(files);
+		try
+		{
+			String[][] rows;
+			while ((rows = batch.next()) != null)
+			{
+				parts.add(rows);
+				total += rows.length;
+			}
+		}
+		finally
+		{
+			batch.close();
+		}
+		if (total > Integer.MAX_VALUE - 8)
+			throw new IOException(String.format(
+					"The amount of rows(%d) exceeds the capacity of CSV data.",
+					total));
+		String[][] data = new String[(int) total][];
+		int offset = 0;
+		for (int i = 0; i < parts.size(); i++)
+		{
+			String[][] rows = parts.get(i);
+			parts.set(i, null);
+			for (String[] row : rows)
+				data[offset++] = row.length < columns ? Arrays.copyOf(row,
+						columns) : row;
+		}
+		return new CSV(columns, titles, data);
+	}
+
+	/**
+	 * Read the files of a directory matching a glob pattern as an ordered
+	 * stream of rows.
+	 *
+	 * @param directory
+	 *            the directory
+	 * @param glob
+	 *            the glob pattern of the file names
+	 * @return the stream of the data rows
+	 * @throws IOException
+	 *             if an I/O error occurs while listing the directory, or the
+	 *             first file fails and the reader fails fast.
+	 * @see #stream(List)
+	 */
+	public Stream<String[]> stream(File directory, String glob)
+			throws IOException
+	{
+		return stream(list(directory, glob));
+	}
+
+	/**
+	 * Read the files as a stream of rows in the given order. The first file
+	 * is read before the stream is returned, so that {@link #getTitles()}
+	 * returns the titles of the rows. The errors while consuming the stream
+	 * are thrown as {@link UncheckedIOException}, and closing the stream
+	 * cancels the pending reads.
+	 *
+	 * @param files
+	 *            the files
+	 * @return the stream of the data rows
+	 * @throws IOException
+	 *             if the first file fails and the reader fails fast.
+	 */
+	public Stream<String[]> stream(List<File> files) throws IOException
+	{
+		reset();
+		final Batch batch = new Batch(files);
+		final String[][] first;
+		try
+		{
+			first = batch.next();
+		}
+		catch (IOException | RuntimeException e)
+		{
+			batch.close();
+			throw e;
+		}
+		Iterator<String[]> iterator = new Iterator<String[]>() {
+			private String[][]	rows	= first;
+			private int			index;
+
+			@Override
+			public boolean hasNext()
+			{
+				while (rows != null && index == rows.length)
+					try
+					{
+						rows = batch.next();
+						index = 0;
+					}
+					catch (IOException e)
+					{
+						throw new UncheckedIOException(e);
+					}
+				return rows != null;
+			}
+
+			@Override
+			public String[] next()
+			{
+				if (!hasNext())
+					throw new NoSuchElementException();
+				String[] row = rows[index];
+				rows[index++] = null;
+				return row;
+			}
+		};
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(iterator,
+						Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(batch::close);
+	}
+
+	/**
+	 * Reset the state of the last read.
+	 */
+	private void reset()
+	{
+		titles = null;
+		columns = 0;
+		errors.clear();
+	}
+
+	/**
+	 * Returns the rows of a file in the order of the titles of the result.
+	 *
+	 * @param file
+	 *            the file
+	 * @param csv
+	 *            the CSV data of the file, or <tt>null</tt> if the file is
+	 *            empty
+	 * @return the rows, which are empty if the file is empty
+	 * @throws IOException
+	 *             if the titles of the file are incompatible.
+	 */
+	private String[][] rows(File file, CSV csv) throws IOException
+	{
+		if (csv == null)
+			return new String[0][];
+		int[] mapping = null;
+		if (csv.isTitled())
+		{
+			String[] t = csv.getTitles();
+			if (titles == null)
+			{
+				titles = t.clone();
+				columns = titles.length;
+			}
+			else if (!Arrays.equals(titles, t))
+				mapping = mapping(file, t);
+		}
+		else
+			columns = Math.max(columns, csv.columns());
+		String[][] data = csv.getData();
+		int n = csv.rows();
+		if (mapping == null)
+			return data.length == n ? data : Arrays.copyOf(data, n);
+		String[][] rows = new String[n][];
+		for (int i = 0; i < n; i++)
+		{
+			String[] row = new String[columns];
+			for (int j = 0; j < columns; j++)
+				if (mapping[j] < data[i].length)
+					row[j] = data[i][mapping[j]];
+			rows[i] = row;
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns the mapping from the columns of the result to the columns of
+	 * a file whose titles are in a different order.
+	 *
+	 * @param file
+	 *            the file
+	 * @param t
+	 *            the titles of the file
+	 * @return the column of the file of each column of the result
+	 * @throws IOException
+	 *             if the titles of the file are incompatible.
+	 */
+	private int[] mapping(File file, String[] t) throws IOException
+	{
+		Map<String, Integer> index = new HashMap<String, Integer>(t.length * 2);
+		for (int i = 0; i < t.length; i++)
+			index.put(t[i], i);
+		int[] mapping = new int[titles.length];
+		boolean compatible = t.length == titles.length
+				&& index.size() == t.length;
+		for (int i = 0; compatible && i < titles.length; i++)
+		{
+			Integer column = index.get(titles[i]);
+			compatible = column != null;
+			if (compatible)
+				mapping[i] = column;
+		}
+		if (compatible)
+			return mapping;
+		throw new IOException(String.format(
+				"The titles of %s %s are incompatible with %s.", file,
+				Arrays.toString(t), Arrays.toString(titles)));
+	}
+
+	/**
+	 * Returns the titles of the result of the last read.
+	 *
+	 * @return the titles, or <tt>null</tt> if the files are untitled or no
+	 *         file is read
+	 */
+	public String[] getTitles()
+	{
+		return titles == null ? null : titles.clone();
+	}
+
+	/**
+	 * Returns the errors of the files skipped by the last read, in the
+	 * order of the files.
+	 *
+	 * @return the errors by the files
+	 */
+	public Map<File, Exception> getErrors()
+	{
+		return new LinkedHashMap<File, Exception>(errors);
+	}
+
+	/**
+	 * Get the executor of the reads.
+	 *
+	 * @return the executor, or <tt>null</tt> if an executor is created for
+	 *         each read
+	 */
+	public ExecutorService getExecutor()
+	{
+		return executor;
+	}
+
+	/**
+	 * Get the maximum amount of files read at once.
+	 *
+	 * @return the parallelism
+	 */
+	public int getParallelism()
+	{
+		return parallelism;
+	}
+
+	/**
+	 * Set the executor of the reads, and the maximum amount of files read
+	 * at once.
+	 *
+	 * @param executor
+	 *            the executor, or <tt>null</tt> to create a fixed thread
+	 *            pool of the parallelism for each read
+	 * @param parallelism
+	 *            the maximum amount of files read at once
+	 */
+	public void setExecutor(ExecutorService executor, int parallelism)
+	{
+		if (parallelism < 1)
+			throw new IllegalArgumentException(String.format(
+					"The parallelism(%d) must be positive.", parallelism));
+		this.executor = executor;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Returns the state that whether the first failed file fails the read.
+	 *
+	 * @return <tt>true</tt> if the read fails fast
+	 */
+	public boolean isFailFast()
+	{
+		return failFast;
+	}
+
+	/**
+	 * Set the state that whether the first failed file fails the read, the
+	 * failed files are skipped by default.
+	 *
+	 * @param failFast
+	 *            <tt>true</tt> if the read fails fast
+	 */
+	public void setFailFast(boolean failFast)
+	{
+		this.failFast = failFast;
+	}
+
+	/**
+	 * Get the listener of the progress.
+	 *
+	 * @return the listener, or <tt>null</tt> if the progress is not reported
+	 */
+	public Listener getListener()
+	{
+		return listener;
+	}
+
+	/**
+	 * Set the listener of the progress.
+	 *
+	 * @param listener
+	 *            the listener, or <tt>null</tt> to stop reporting
+	 */
+	public void setListener(Listener listener)
+	{
+		this.listener = listener;
+	}
+}
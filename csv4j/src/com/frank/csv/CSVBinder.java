@@ -0,0 +1,911 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVBinder.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.IOException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The binder from CSV rows to objects of a class, whose fields are bound to
+ * the columns by their titles or by the {@link CSVColumn} annotations.
+ * <p>
+ * The indices of the columns are resolved once for each file or data set.
+ * The fields are set by method handles, the fields of <tt>int</tt>,
+ * <tt>long</tt>, <tt>double</tt> and <tt>boolean</tt> are set without
+ * boxing, and the objects are created by a constructor function generated
+ * by {@link LambdaMetafactory} if the constructor is accessible, so no
+ * reflection is done per row. On the streaming reader, the fields of each
+ * line are set as they are split, without an intermediate array.
+ * </p>
+ * <p>
+ * A bound class has a no-argument constructor of any access, its static,
+ * transient and final fields are not bound unless the final fields are
+ * annotated, which is an error. The records of Java 16 or later are bound
+ * by their canonical constructors instead, the annotations are read from
+ * their fields. The empty and the missing fields are left as the default
+ * values. The values are converted by the converters of the field types,
+ * the strings, the primitive types and their wrappers, {@link BigDecimal},
+ * {@link BigInteger}, {@link LocalDate}, {@link LocalTime},
+ * {@link LocalDateTime} and the enumerations are converted by default, other
+ * types need a converter added by {@link #addConverter(Class, Function)}.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ * @param <T>
+ *            the class of the objects
+ */
+public class CSVBinder<T>
+{
+	/**
+	 * A bindable field, or a component of a record.
+	 */
+	private static final class Member
+	{
+		/**
+		 * The name of the field.
+		 */
+		final String	name;
+		/**
+		 * The type of the field.
+		 */
+		final Class<?>	type;
+		/**
+		 * The title of the column.
+		 */
+		final String	title;
+		/**
+		 * The index of the column, or -1 if it is found by the title.
+		 */
+		final int		index;
+		/**
+		 * The flag whether the column is required.
+		 */
+		final boolean	annotated;
+		/**
+		 * The setter of the field, or <tt>null</tt> for a record component.
+		 */
+		final MethodHandle	setter;
+		/**
+		 * The position of the record component.
+		 */
+		final int		position;
+
+		/**
+		 * Construct an instance of member.
+		 *
+		 * @param field
+		 *            the field
+		 * @param setter
+		 *            the setter of the field, or <tt>null</tt> for a record
+		 *            component
+		 * @param position
+		 *            the position of the record component
+		 */
+		Member(Field field, MethodHandle setter, int position)
+		{
+			CSVColumn column = field.getAnnotation(CSVColumn.class);
+			this.name = field.getName();
+			this.type = field.getType();
+			this.title = column == null || column.value().isEmpty() ? name
+					: column.value();
+			this.index = column == null ? -1 : column.index();
+			this.annotated = column != null;
+			this.setter = setter;
+			this.position = position;
+		}
+	}
+
+	/**
+	 * The binding of a member to a column.
+	 */
+	private abstract static class Property
+	{
+		/**
+		 * The bound member.
+		 */
+		final Member	member;
+
+		/**
+		 * Construct an instance of property.
+		 *
+		 * @param member
+		 *            the bound member
+		 */
+		Property(Member member)
+		{
+			this.member = member;
+		}
+
+		/**
+		 * Set the member of the target.
+		 *
+		 * @param target
+		 *            the object, or the arguments of a record
+		 * @param value
+		 *            the value of the column
+		 * @throws Throwable
+		 *             if the conversion or the setter fails.
+		 */
+		abstract void set(Object target, String value) throws Throwable;
+	}
+
+	/**
+	 * The property of an <tt>int</tt> field.
+	 */
+	private static final class IntProperty extends Property
+	{
+		/**
+		 * The setter of type <tt>(Object, int)void</tt>.
+		 */
+		private final MethodHandle	setter;
+
+		/**
+		 * Construct an instance of property.
+		 *
+		 * @param member
+		 *            the bound member
+		 */
+		IntProperty(Member member)
+		{
+			super(member);
+			setter = member.setter.asType(MethodType.methodType(void.class,
+					Object.class, int.class));
+		}
+
+		/**
+		 * @see com.frank.csv.CSVBinder.Property#set(java.lang.Object,
+		 *      java.lang.String)
+		 */
+		void set(Object target, String value) throws Throwable
+		{
+			setter.invokeExact(target, Integer.parseInt(value));
+		}
+	}
+
+	/**
+	 * The property of a <tt>long</tt> field.
+	 */
+	private static final class LongProperty extends Property
+	{
+		/**
+		 * The setter of type <tt>(Object, long)void</tt>.
+		 */
+		private final MethodHandle	setter;
+
+		/**
+		 * Construct an instance of property.
+		 *
+		 * @param member
+		 *            the bound member
+		 */
+		LongProperty(Member member)
+		{
+			super(member);
+			setter = member.setter.asType(MethodType.methodType(void.class,
+					Object.class, long.class));
+		}
+
+		/**
+		 * @see com.frank.csv.CSVBinder.Property#set(java.lang.Object,
+		 *      java.lang.String)
+		 */
+		void set(Object target, String value) throws Throwable
+		{
+			setter.invokeExact(target, Long.parseLong(value));
+		}
+	}
+
+	/**
+	 * The property of a <tt>double</tt> field.
+	 */
+	private static final class DoubleProperty extends Property
+	{
+		/**
+		 * The setter of type <tt>(Object, double)void</tt>.
+		 */
+		private final MethodHandle	setter;
+
+		/**
+		 * Construct an instance of property.
+		 *
+		 * @param member
+		 *            the bound member
+		 */
+		DoubleProperty(Member member)
+		{
+			super(member);
+			setter = member.setter.asType(MethodType.methodType(void.class,
+					Object.class, double.class));
+		}
+
+		/**
+		 * @see com.frank.csv.CSVBinder.Property#set(java.lang.Object,
+		 *      java.lang.String)
+		 */
+		void set(Object target, String value) throws Throwable
+		{
+			setter.invokeExact(target, Double.parseDouble(value));
+		}
+	}
+
+	/**
+	 * The property of a <tt>boolean</tt> field.
+	 */
+	private static final class BooleanProperty extends Property
+	{
+		/**
+		 * The setter of type <tt>(Object, boolean)void</tt>.
+		 */
+		private final MethodHandle	setter;
+
+		/**
+		 * Construct an instance of property.
+		 *
+		 * @param member
+		 *            the bound member
+		 */
+		BooleanProperty(Member member)
+		{
+			super(member);
+			setter = member.setter.asType(MethodType.methodType(void.class,
+					Object.class, boolean.class));
+		}
+
+		/**
+		 * @see com.frank.csv.CSVBinder.Property#set(java.lang.Object,
+		 *      java.lang.String)
+		 */
+		void set(Object target, String value) throws Throwable
+		{
+			setter.invokeExact(target, Boolean.parseBoolean(value));
+		}
+	}
+
+	/**
+	 * The property of a field of other types, the value is converted by a
+	 * converter.
+	 */
+	private static final class ObjectProperty extends Property
+	{
+		/**
+		 * The setter of type <tt>(Object, Object)void</tt>.
+		 */
+		private final MethodHandle				setter;
+		/**
+		 * The converter of the values.
+		 */
+		private final Function<String, ?>	converter;
+
+		/**
+		 * Construct an instance of property.
+		 *
+		 * @param member
+		 *            the bound member
+		 * @param converter
+		 *            the converter of the values
+		 */
+		ObjectProperty(Member member, Function<String, ?> converter)
+		{
+			super(member);
+			this.setter = member.setter.asType(MethodType.methodType(
+					void.class, Object.class, Object.class));
+			this.converter = converter;
+		}
+
+		/**
+		 * @see com.frank.csv.CSVBinder.Property#set(java.lang.Object,
+		 *      java.lang.String)
+		 */
+		void set(Object target, String value) throws Throwable
+		{
+			setter.invokeExact(target, (Object) converter.apply(value));
+		}
+	}
+
+	/**
+	 * The property of a record component, the value is stored in the
+	 * arguments of the canonical constructor.
+	 */
+	private static final class ArgumentProperty extends Property
+	{
+		/**
+		 * The converter of the values.
+		 */
+		private final Function<String, ?>	converter;
+
+		/**
+		 * Construct an instance of property.
+		 *
+		 * @param member
+		 *            the bound member
+		 * @param converter
+		 *            the converter of the values
+		 */
+		ArgumentProperty(Member member, Function<String, ?> converter)
+		{
+			super(member);
+			this.converter = converter;
+		}
+
+		/**
+		 * @see com.frank.csv.CSVBinder.Property#set(java.lang.Object,
+		 *      java.lang.String)
+		 */
+		void set(Object target, String value)
+		{
+			((Object[]) target)[member.position] = converter.apply(value);
+		}
+	}
+
+	/**
+	 * The handler which sets the fields of the current target.
+	 */
+	private final class Sink implements CSVScanner.FieldHandler
+	{
+		/**
+		 * The properties by the indices of the columns.
+		 */
+		final Property[]	properties;
+		/**
+		 * The current target.
+		 */
+		Object				target;
+		/**
+		 * The index of the current row, for the error messages.
+		 */
+		long				row;
+
+		/**
+		 * Construct an instance of sink.
+		 *
+		 * @param properties
+		 *            the properties by the indices of the columns
+		 */
+		Sink(Property[] properties)
+		{
+			this.properties = properties;
+		}
+
+		/**
+		 * @see com.frank.csv.CSVScanner.FieldHandler#field(int,
+		 *      java.lang.String)
+		 */
+		public void field(int index, String value)
+		{
+			if (index >= properties.length || properties[index] == null
+					|| value == null || value.isEmpty())
+				return;
+			Property property = properties[index];
+			try
+			{
+				property.set(target, value);
+			}
+			catch (RuntimeException e)
+			{
+				throw new IllegalArgumentException(String.format(
+						"Cannot bind \"%s\" of row %d, column %d to %s.%s.",
+						value, row, index, type.getSimpleName(),
+						property.member.name), e);
+			}
+			catch (Error e)
+			{
+				throw e;
+			}
+			catch (Throwable e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * The default converters by the types.
+	 */
+	private static final HashMap<Class<?>, Function<String, ?>>	DEFAULTS	= new HashMap<Class<?>, Function<String, ?>>();
+	static
+	{
+		DEFAULTS.put(String.class, Function.identity());
+		DEFAULTS.put(Integer.class, Integer::valueOf);
+		DEFAULTS.put(int.class, Integer::valueOf);
+		DEFAULTS.put(Long.class, Long::valueOf);
+		DEFAULTS.put(long.class, Long::valueOf);
+		DEFAULTS.put(Double.class, Double::valueOf);
+		DEFAULTS.put(double.class, Double::valueOf);
+		DEFAULTS.put(Float.class, Float::valueOf);
+		DEFAULTS.put(float.class, Float::valueOf);
+		DEFAULTS.put(Short.class, Short::valueOf);
+		DEFAULTS.put(short.class, Short::valueOf);
+		DEFAULTS.put(Byte.class, Byte::valueOf);
+		DEFAULTS.put(byte.class, Byte::valueOf);
+		DEFAULTS.put(Boolean.class, Boolean::valueOf);
+		DEFAULTS.put(boolean.class, Boolean::valueOf);
+		Function<String, Character> character = s -> {
+			if (s.length() != 1)
+				throw new IllegalArgumentException(String.format(
+						"\"%s\" is not a single character.", s));
+			return s.charAt(0);
+		};
+		DEFAULTS.put(Character.class, character);
+		DEFAULTS.put(char.class, character);
+		DEFAULTS.put(BigDecimal.class, BigDecimal::new);
+		DEFAULTS.put(BigInteger.class, BigInteger::new);
+		DEFAULTS.put(LocalDate.class, LocalDate::parse);
+		DEFAULTS.put(LocalTime.class, LocalTime::parse);
+		DEFAULTS.put(LocalDateTime.class, LocalDateTime::parse);
+	}
+
+	/**
+	 * The class of the objects.
+	 */
+	protected final Class<T>								type;
+	/**
+	 * The bindable members.
+	 */
+	private final List<Member>								members		= new ArrayList<Member>();
+	/**
+	 * The converters added by the types.
+	 */
+	private final HashMap<Class<?>, Function<String, ?>>	converters	= new HashMap<Class<?>, Function<String, ?>>();
+	/**
+	 * The constructor of the objects, or <tt>null</tt> for a record.
+	 */
+	private final Supplier<?>								constructor;
+	/**
+	 * The canonical constructor of type <tt>(Object[])Object</tt> of a
+	 * record, or <tt>null</tt> for other classes.
+	 */
+	private final MethodHandle								canonical;
+	/**
+	 * The default arguments of the canonical constructor of a record.
+	 */
+	private final Object[]									defaults;
+
+	/**
+	 * Construct an instance of binder of the specified class.
+	 *
+	 * @param type
+	 *            the class of the objects
+	 * @throws IllegalArgumentException
+	 *             if the class cannot be bound.
+	 */
+	public CSVBinder(Class<T> type)
+	{
+		this.type = type;
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		try
+		{
+			Class<?> superclass = type.getSuperclass();
+			if (superclass != null
+					&& superclass.getName().equals("java.lang.Record"))
+			{
+				List<Class<?>> types = new ArrayList<Class<?>>();
+				for (Object component : (Object[]) Class.class.getMethod(
+						"getRecordComponents").invoke(type))
+				{
+					Method name = component.getClass().getMethod("getName");
+					Field field = type.getDeclaredField((String) name
+							.invoke(component));
+					members.add(new Member(field, null, types.size()));
+					types.add(field.getType());
+				}
+				Constructor<T> c = type.getDeclaredConstructor(types
+						.toArray(new Class<?>[types.size()]));
+				c.setAccessible(true);
+				canonical = lookup.unreflectConstructor(c)
+						.asSpreader(Object[].class, types.size())
+						.asType(MethodType.methodType(Object.class,
+								Object[].class));
+				defaults = new Object[types.size()];
+				for (int i = 0; i < defaults.length; i++)
+					defaults[i] = zero(types.get(i));
+				constructor = null;
+				return;
+			}
+			for (Class<?> c = type; c != null && c != Object.class; c = c
+					.getSuperclass())
+				for (Field field : c.getDeclaredFields())
+				{
+					int modifiers = field.getModifiers();
+					if (Modifier.isStatic(modifiers)
+							|| Modifier.isTransient(modifiers)
+							|| field.isSynthetic())
+						continue;
+					if (Modifier.isFinal(modifiers))
+					{
+						if (field.isAnnotationPresent(CSVColumn.class))
+							throw new IllegalArgumentException(String.format(
+									"The annotated field %s.%s is final.",
+									c.getSimpleName(), field.getName()));
+						continue;
+					}
+					field.setAccessible(true);
+					members.add(new Member(field, lookup.unreflectSetter(field),
+							-1));
+				}
+			constructor = constructor(lookup, type);
+			canonical = null;
+			defaults = null;
+		}
+		catch (ReflectiveOperationException e)
+		{
+			throw new IllegalArgumentException(String.format(
+					"The class %s cannot be bound: %s", type.getName(), e), e);
+		}
+	}
+
+	/**
+	 * Returns the constructor function of a class, which is generated by
+	 * {@link LambdaMetafactory} if the constructor is public and visible to
+	 * this class, or calls the method handle of the constructor otherwise.
+	 *
+	 * @param lookup
+	 *            the lookup of this class
+	 * @param type
+	 *            the class
+	 * @return the constructor function
+	 * @throws ReflectiveOperationException
+	 *             if the class has no no-argument constructor.
+	 */
+	private static Supplier<?> constructor(MethodHandles.Lookup lookup,
+			Class<?> type) throws ReflectiveOperationException
+	{
+		Constructor<?> c = type.getDeclaredConstructor();
+		if (Modifier.isAbstract(type.getModifiers()))
+			throw new InstantiationException(String.format(
+					"The class %s is abstract.", type.getName()));
+		boolean visible = Modifier.isPublic(type.getModifiers())
+				&& Modifier.isPublic(c.getModifiers())
+				&& (type.getEnclosingClass() == null || Modifier
+						.isStatic(type.getModifiers()))
+				&& visible(type);
+		c.setAccessible(true);
+		MethodHandle handle = lookup.unreflectConstructor(c);
+		if (visible)
+			try
+			{
+				return (Supplier<?>) LambdaMetafactory
+						.metafactory(lookup, "get",
+								MethodType.methodType(Supplier.class),
+								MethodType.methodType(Object.class), handle,
+								MethodType.methodType(type)).getTarget()
+						.invokeExact();
+			}
+			catch (Throwable e)
+			{
+				// fall back to the method handle
+			}
+		final MethodHandle generic = handle.asType(MethodType
+				.methodType(Object.class));
+		return () -> {
+			try
+			{
+				return generic.invokeExact();
+			}
+			catch (RuntimeException | Error e)
+			{
+				throw e;
+			}
+			catch (Throwable e)
+			{
+				throw new IllegalStateException(e);
+			}
+		};
+	}
+
+	/**
+	 * Returns whether the class is visible from the class loader of this
+	 * class, which defines the functions generated by
+	 * {@link LambdaMetafactory}.
+	 *
+	 * @param type
+	 *            the class
+	 * @return <tt>true</tt> if the class is visible
+	 */
+	private static boolean visible(Class<?> type)
+	{
+		try
+		{
+			return Class.forName(type.getName(), false,
+					CSVBinder.class.getClassLoader()) == type;
+		}
+		catch (ClassNotFoundException | LinkageError e)
+		{
+			// defined by a child loader, such as a webapp or plugin loader
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the default value of a type.
+	 *
+	 * @param type
+	 *            the type
+	 * @return the zero value of a primitive type, or <tt>null</tt>
+	 */
+	private static Object zero(Class<?> type)
+	{
+		if (!type.isPrimitive())
+			return null;
+		if (type == boolean.class)
+			return false;
+		if (type == char.class)
+			return '\0';
+		if (type == byte.class)
+			return (byte) 0;
+		if (type == short.class)
+			return (short) 0;
+		if (type == int.class)
+			return 0;
+		if (type == long.class)
+			return 0L;
+		if (type == float.class)
+			return 0f;
+		return 0d;
+	}
+
+	/**
+	 * Add a converter of a type, which replaces the default converter of
+	 * the type. The converters are resolved when the columns are resolved.
+	 *
+	 * @param type
+	 *            the type of the fields
+	 * @param converter
+	 *            the converter from the values of the columns
+	 */
+	public <V> void addConverter(Class<V> type,
+			Function<String, ? extends V> converter)
+	{
+		if (type == null || converter == null)
+			throw new IllegalArgumentException(
+					"The type and the converter must not be null.");
+		converters.put(type, converter);
+	}
+
+	/**
+	 * Returns the converter of a type.
+	 *
+	 * @param type
+	 *            the type
+	 * @return the converter
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Function<String, ?> converter(final Class<?> type)
+	{
+		Function<String, ?> converter = converters.get(type);
+		if (converter == null)
+			converter = DEFAULTS.get(type);
+		if (converter == null && type.isEnum())
+			converter = s -> Enum.valueOf((Class) type, s);
+		if (converter == null)
+			throw new IllegalStateException(String.format(
+					"No converter is added for the type %s.", type.getName()));
+		return converter;
+	}
+
+	/**
+	 * Resolve the properties by the indices of the columns.
+	 *
+	 * @param titles
+	 *            the titles, or <tt>null</tt> if the data is untitled
+	 * @return the properties by the indices of the columns
+	 * @throws NoSuchElementException
+	 *             if the title of an annotated field is not found.
+	 */
+	private Property[] resolve(String[] titles)
+	{
+		HashMap<String, Integer> index = new HashMap<String, Integer>();
+		if (titles != null)
+			for (int i = titles.length - 1; i >= 0; i--)
+				index.put(titles[i], i);
+		List<Property> properties = new ArrayList<Property>();
+		int columns = 0;
+		for (Member member : members)
+		{
+			int column = member.index;
+			if (column < 0 && titles != null)
+			{
+				Integer i = index.get(member.title);
+				if (i == null && member.annotated)
+					throw new NoSuchElementException(String.format(
+							"There is no such title \"%s\" for %s.%s.",
+							member.title, type.getSimpleName(), member.name));
+				column = i == null ? -1 : i;
+			}
+			if (column < 0)
+				continue;
+			properties.add(property(member));
+			columns = Math.max(columns, column + 1);
+		}
+		if (properties.isEmpty())
+			throw new IllegalStateException(String.format(
+					"No column is bound to %s.", type.getName()));
+		Property[] byColumn = new Property[columns];
+		for (Property property : properties)
+		{
+			Member member = property.member;
+			int column = member.index >= 0 ? member.index : index
+					.get(member.title);
+			if (byColumn[column] != null)
+				throw new IllegalStateException(String.format(
+						"The column %d is bound to both %s and %s.", column,
+						byColumn[column].member.name, member.name));
+			byColumn[column] = property;
+		}
+		return byColumn;
+	}
+
+	/**
+	 * Create the property of a member.
+	 *
+	 * @param member
+	 *            the member
+	 * @return the property
+	 */
+	private Property property(Member member)
+	{
+		Class<?> t = member.type;
+		if (member.setter == null)
+			return new ArgumentProperty(member, converter(t));
+		if (!converters.containsKey(t))
+		{
+			if (t == int.class)
+				return new IntProperty(member);
+			if (t == long.class)
+				return new LongProperty(member);
+			if (t == double.class)
+				return new DoubleProperty(member);
+			if (t == boolean.class)
+				return new BooleanProperty(member);
+		}
+		return new ObjectProperty(member, converter(t));
+	}
+
+	/**
+	 * Returns a new target, which is the object, or the arguments of a
+	 * record.
+	 *
+	 * @return the target
+	 */
+	private Object target()
+	{
+		return constructor != null ? constructor.get() : defaults.clone();
+	}
+
+	/**
+	 * Returns the object of a target.
+	 *
+	 * @param target
+	 *            the target
+	 * @return the object
+	 */
+	private T object(Object target)
+	{
+		if (canonical == null)
+			return type.cast(target);
+		try
+		{
+			return type.cast(canonical.invokeExact((Object[]) target));
+		}
+		catch (RuntimeException | Error e)
+		{
+			throw e;
+		}
+		catch (Throwable e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Bind the remaining rows of the reader to objects and pass them to the
+	 * action one by one. The columns are resolved by the titles of the
+	 * reader if it is titled, otherwise only the fields annotated with
+	 * indices are bound.
+	 *
+	 * @param in
+	 *            the row reader
+	 * @param action
+	 *            the action of the objects
+	 * @return the amount of objects
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 * @throws IllegalArgumentException
+	 *             if a value cannot be converted.
+	 */
+	public long bind(CSVRowReader in, Consumer<? super T> action)
+			throws IOException
+	{
+		Sink sink = new Sink(resolve(in.isTitled() ? in.getTitles() : null));
+		long count = 0;
+		String line;
+		while ((line = in.nextLine()) != null)
+		{
+			sink.target = target();
+			sink.row = in.getRow() - 1;
+			in.reader.scanLine(line, sink);
+			action.accept(object(sink.target));
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Bind the remaining rows of the reader to a list of objects.
+	 *
+	 * @param in
+	 *            the row reader
+	 * @return the objects
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 * @throws IllegalArgumentException
+	 *             if a value cannot be converted.
+	 * @see #bind(CSVRowReader, Consumer)
+	 */
+	public List<T> bind(CSVRowReader in) throws IOException
+	{
+		List<T> list = new ArrayList<T>();
+		bind(in, list::add);
+		return list;
+	}
+
+	/**
+	 * Bind the rows of the CSV data to a list of objects. The columns are
+	 * resolved by the titles of the data if it is titled, otherwise only the
+	 * fields annotated with indices are bound.
+	 *
+	 * @param csv
+	 *            the CSV data
+	 * @return the objects
+	 * @throws IllegalArgumentException
+	 *             if a value cannot be converted.
+	 */
+	public List<T> bind(CSV csv)
+	{
+		Sink sink = new Sink(resolve(csv.isTitled() ? csv.getTitles() : null));
+		int columns = Math.min(sink.properties.length, csv.columns());
+		List<T> list = new ArrayList<T>(csv.rows());
+		for (int row = 0; row < csv.rows(); row++)
+		{
+			sink.target = target();
+			sink.row = row;
+			for (int column = 0; column < columns; column++)
+				if (sink.properties[column] != null)
+					sink.field(column, csv.getData(row, column));
+			list.add(object(sink.target));
+		}
+		return list;
+	}
+
+	/**
+	 * Returns the class of the objects.
+	 *
+	 * @return the class
+	 */
+	public Class<T> getType()
+	{
+		return type;
+	}
+}
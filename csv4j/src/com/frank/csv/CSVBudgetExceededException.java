@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVBudgetExceededException.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.IOException;
+
+/**
+ * The exception thrown by {@link CSVReader} when the estimated size of the
+ * data being read exceeds the memory budget.
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ * @see CSVReader#setMemoryBudget(long)
+ */
+public class CSVBudgetExceededException extends IOException
+{
+	/**
+	 * The serial version UID.
+	 */
+	private static final long	serialVersionUID	= 1L;
+
+	/**
+	 * The memory budget in bytes.
+	 */
+	private final long			budget;
+	/**
+	 * The estimated size in bytes when the budget is exceeded.
+	 */
+	private final long			size;
+	/**
+	 * The amount of data rows read when the budget is exceeded.
+	 */
+	private final long			rows;
+
+	/**
+	 * Construct an instance of budget exceeded exception.
+	 *
+	 * @param budget
+	 *            the memory budget in bytes
+	 * @param size
+	 *            the estimated size in bytes
+	 * @param rows
+	 *            the amount of data rows read
+	 */
+	public CSVBudgetExceededException(long budget, long size, long rows)
+	{
+		super(String.format(
+				"The estimated size of CSV data(%d bytes after %d rows) exceeds the memory budget(%d bytes).",
+				size, rows, budget));
+		this.budget = budget;
+		this.size = size;
+		this.rows = rows;
+	}
+
+	/**
+	 * Returns the memory budget in bytes.
+	 *
+	 * @return the budget
+	 */
+	public long getBudget()
+	{
+		return budget;
+	}
+
+	/**
+	 * Returns the estimated size in bytes when the budget is exceeded.
+	 *
+	 * @return the estimated size
+	 */
+	public long getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns the amount of data rows read when the budget is exceeded.
+	 *
+	 * @return the amount of rows
+	 */
+	public long getRows()
+	{
+		return rows;
+	}
+}
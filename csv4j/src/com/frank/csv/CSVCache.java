@@ -0,0 +1,567 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVCache.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The size-bounded cache of parsed CSV files in front of a {@link CSVReader}.
+ * <p>
+ * The entries are keyed by the canonical path of the file and the reader
+ * settings (character set, title condition, delimiter, separator, quote and
+ * trimming), and validated by
+ * the modification time and the length of the file, so that a changed file is
+ * parsed again. The entries are evicted in LRU order when the estimated size
+ * of the cached CSV data exceeds the byte budget. Concurrent requests for the
+ * same file are coalesced into one parse.
+ * </p>
+ * <p>
+ * The cached CSV instances are shared by all the callers, they should not be
+ * modified. Copy them into a {@link ConcurrentCSV} or a new {@link CSV} if
+ * modifications are required. The settings of the reader should not be
+ * changed while the cache is in use by other threads. The reads of a reader
+ * with a memory budget bypass the cache, because they may return
+ * {@link SpilledCSV} instances, which are owned and closed by the callers.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class CSVCache
+{
+	/**
+	 * The key of a cached CSV file.
+	 */
+	static final class Key
+	{
+		/**
+		 * The canonical path of the file.
+		 */
+		final String	path;
+		/**
+		 * The character set of the reader.
+		 */
+		final Charset	charset;
+		/**
+		 * The flag for the data whether it is titled.
+		 */
+		final boolean	isTitled;
+		/**
+		 * The delimiter of the reader.
+		 */
+		final String	delimiter;
+		/**
+		 * The field separator of the reader.
+		 */
+		final char		separator;
+		/**
+		 * The quote character of the reader.
+		 */
+		final char		quote;
+		/**
+		 * The flag whether the reader trims the fields.
+		 */
+		final boolean	trim;
+
+		/**
+		 * Construct an instance of key.
+		 *
+		 * @param path
+		 *            the canonical path of the file
+		 * @param reader
+		 *            the CSV reader
+		 */
+		Key(String path, CSVReader reader)
+		{
+			this.path = path;
+			this.charset = reader.getCharset();
+			this.isTitled = reader.isTitled();
+			this.delimiter = reader.getDelimiter();
+			this.separator = reader.getSeparator();
+			this.quote = reader.getQuote();
+			this.trim = reader.isTrim();
+		}
+
+		/**
+		 * @see java.lang.Object#hashCode()
+		 */
+		public int hashCode()
+		{
+			int hash = path.hashCode();
+			hash = hash * 31 + (charset == null ? 0 : charset.hashCode());
+			hash = hash * 31 + (isTitled ? 1 : 0);
+			hash = hash * 31 + (delimiter == null ? 0 : delimiter.hashCode());
+			hash = hash * 31 + separator;
+			hash = hash * 31 + quote;
+			return hash * 31 + (trim ? 1 : 0);
+		}
+
+		/**
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof Key))
+				return false;
+			Key k = (Key) o;
+			return path.equals(k.path)
+					&& (charset == null ? k.charset == null : charset
+							.equals(k.charset))
+					&& isTitled == k.isTitled
+					&& (delimiter == null ? k.delimiter == null : delimiter
+							.equals(k.delimiter)) && separator == k.separator
+					&& quote == k.quote && trim == k.trim;
+		}
+	}
+
+	/**
+	 * The entry of a cached CSV file.
+	 */
+	static final class Entry
+	{
+		/**
+		 * The modification time of the file when it was read.
+		 */
+		final long					modified;
+		/**
+		 * The length of the file when it was read.
+		 */
+		final long					length;
+		/**
+		 * The estimated size of the CSV data.
+		 */
+		final long					weight;
+		/**
+		 * The strongly retained CSV data, or <tt>null</tt> if softly
+		 * retained.
+		 */
+		final CSV					csv;
+		/**
+		 * The softly retained CSV data, or <tt>null</tt> if strongly
+		 * retained.
+		 */
+		final SoftReference<CSV>	reference;
+
+		/**
+		 * Construct an instance of entry.
+		 *
+		 * @param modified
+		 *            the modification time of the file
+		 * @param length
+		 *            the length of the file
+		 * @param csv
+		 *            the CSV data
+		 * @param soft
+		 *            the flag whether the CSV data is softly retained
+		 */
+		Entry(long modified, long length, CSV csv, boolean soft)
+		{
+			this(modified, length, csv, csv == null ? 0 : csv.estimateSize(),
+					soft);
+		}
+
+		/**
+		 * Construct an instance of entry.
+		 *
+		 * @param modified
+		 *            the modification time of the file
+		 * @param length
+		 *            the length of the file
+		 * @param csv
+		 *            the CSV data
+		 * @param weight
+		 *            the estimated size of the CSV data
+		 * @param soft
+		 *            the flag whether the CSV data is softly retained
+		 */
+		private Entry(long modified, long length, CSV csv, long weight,
+				boolean soft)
+		{
+			this.modified = modified;
+			this.length = length;
+			this.weight = weight;
+			this.csv = soft ? null : csv;
+			this.reference = soft ? new SoftReference<CSV>(csv) : null;
+		}
+
+		/**
+		 * Returns the entry which retains the CSV data of this strongly
+		 * retained entry softly.
+		 *
+		 * @return the softly retained entry
+		 */
+		Entry soften()
+		{
+			return new Entry(modified, length, csv, weight, true);
+		}
+
+		/**
+		 * Returns the cached CSV data.
+		 *
+		 * @return the CSV data, or <tt>null</tt> if it has been reclaimed
+		 */
+		CSV get()
+		{
+			return reference == null ? csv : reference.get();
+		}
+	}
+
+	/**
+	 * The reader for the CSV files.
+	 */
+	protected final CSVReader								reader;
+	/**
+	 * The maximum estimated size of the cached CSV data in bytes.
+	 */
+	protected final long									maxBytes;
+	/**
+	 * The flag whether the CSV data is softly retained.
+	 */
+	protected final boolean									soft;
+	/**
+	 * The cached entries in access order.
+	 */
+	private final LinkedHashMap<Key, Entry>					entries;
+	/**
+	 * The loading tasks, which coalesce concurrent requests.
+	 */
+	private final ConcurrentHashMap<Key, FutureTask<Entry>>	loading;
+	/**
+	 * The estimated size of the cached CSV data.
+	 */
+	private long											weight;
+	/**
+	 * The amount of hits.
+	 */
+	private long											hits;
+	/**
+	 * The amount of misses.
+	 */
+	private long											misses;
+	/**
+	 * The amount of evictions.
+	 */
+	private long											evictions;
+	/**
+	 * The amount of files parsed.
+	 */
+	private long											loads;
+
+	/**
+	 * Construct an instance of CSV cache with strongly retained entries.
+	 *
+	 * @param reader
+	 *            the reader for the CSV files
+	 * @param maxBytes
+	 *            the maximum estimated size of the cached CSV data in bytes
+	 */
+	public CSVCache(CSVReader reader, long maxBytes)
+	{
+		this(reader, maxBytes, false);
+	}
+
+	/**
+	 * Construct an instance of CSV cache.
+	 *
+	 * @param reader
+	 *            the reader for the CSV files
+	 * @param maxBytes
+	 *            the maximum estimated size of the cached CSV data in bytes
+	 * @param soft
+	 *            if <tt>true</tt> the entries are retained by soft references
+	 *            and may be reclaimed by the garbage collector under memory
+	 *            pressure
+	 */
+	public CSVCache(CSVReader reader, long maxBytes, boolean soft)
+	{
+		if (maxBytes <= 0)
+			throw new IllegalArgumentException(String.format(
+					"Illegal byte budget: %d.", maxBytes));
+		this.reader = reader;
+		this.maxBytes = maxBytes;
+		this.soft = soft;
+		entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+		loading = new ConcurrentHashMap<Key, FutureTask<Entry>>();
+	}
+
+	/**
+	 * Read CSV data from specified file, the cached data is returned if the
+	 * file has not been changed since it was read.
+	 *
+	 * @param file
+	 *            the CSV file
+	 * @return CSV instance, which should not be modified
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public CSV read(File file) throws IOException
+	{
+		if (reader.getMemoryBudget() > 0)
+			return reader.read(file);
+		final File canonical = file.getCanonicalFile();
+		Key key = new Key(canonical.getPath(), reader);
+		long modified = canonical.lastModified();
+		long length = canonical.length();
+		synchronized (this)
+		{
+			Entry entry = entries.get(key);
+			if (entry != null)
+			{
+				CSV csv = entry.get();
+				if (csv != null && entry.modified == modified
+						&& entry.length == length)
+				{
+					hits++;
+					return csv;
+				}
+				entries.remove(key);
+				weight -= entry.weight;
+				if (csv == null)
+					evictions++;
+			}
+			misses++;
+		}
+		// the loaded entry retains the CSV data strongly until it is returned
+		FutureTask<Entry> task = new FutureTask<Entry>(new Callable<Entry>() {
+			public Entry call() throws Exception
+			{
+				long modified = canonical.lastModified();
+				long length = canonical.length();
+				return new Entry(modified, length, reader.read(canonical),
+						false);
+			}
+		});
+		FutureTask<Entry> running = loading.putIfAbsent(key, task);
+		if (running == null)
+		{
+			running = task;
+			try
+			{
+				task.run();
+				Entry entry = get(task);
+				synchronized (this)
+				{
+					loads++;
+					put(key, soft ? entry.soften() : entry);
+				}
+			}
+			finally
+			{
+				loading.remove(key, task);
+			}
+		}
+		return get(running).csv;
+	}
+
+	/**
+	 * Read CSV data from specified file.
+	 *
+	 * @param filename
+	 *            the CSV file name
+	 * @return CSV instance, which should not be modified
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public CSV read(String filename) throws IOException
+	{
+		return read(new File(filename));
+	}
+
+	/**
+	 * Wait for the loading task and unwrap its failure.
+	 *
+	 * @param task
+	 *            the loading task
+	 * @return the loaded entry
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private static Entry get(FutureTask<Entry> task) throws IOException
+	{
+		boolean interrupted = false;
+		try
+		{
+			while (true)
+				try
+				{
+					return task.get();
+				}
+				catch (InterruptedException e)
+				{
+					interrupted = true;
+				}
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException(cause);
+		}
+		finally
+		{
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Put the loaded entry into the cache and evict the least recently used
+	 * entries until the cache fits the byte budget. The caller should hold
+	 * the lock of this cache.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @param entry
+	 *            the loaded entry
+	 */
+	private void put(Key key, Entry entry)
+	{
+		if (entry.get() == null || entry.weight > maxBytes)
+			return;
+		Entry old = entries.put(key, entry);
+		if (old != null)
+			weight -= old.weight;
+		weight += entry.weight;
+		Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+		while (weight > maxBytes && it.hasNext())
+		{
+			Entry eldest = it.next().getValue();
+			it.remove();
+			weight -= eldest.weight;
+			evictions++;
+		}
+	}
+
+	/**
+	 * Remove the cached data of the specified file.
+	 *
+	 * @param file
+	 *            the CSV file
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public synchronized void invalidate(File file) throws IOException
+	{
+		Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+		String path = file.getCanonicalPath();
+		while (it.hasNext())
+		{
+			Map.Entry<Key, Entry> e = it.next();
+			if (e.getKey().path.equals(path))
+			{
+				weight -= e.getValue().weight;
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Remove all the cached data.
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+		weight = 0;
+	}
+
+	/**
+	 * Returns the amount of cached files.
+	 *
+	 * @return the amount of cached files
+	 */
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Returns the estimated size of the cached CSV data in bytes.
+	 *
+	 * @return the estimated size
+	 */
+	public synchronized long getWeight()
+	{
+		return weight;
+	}
+
+	/**
+	 * Returns the maximum estimated size of the cached CSV data in bytes.
+	 *
+	 * @return the byte budget
+	 */
+	public long getMaxBytes()
+	{
+		return maxBytes;
+	}
+
+	/**
+	 * Returns the amount of requests served from the cache.
+	 *
+	 * @return the amount of hits
+	 */
+	public synchronized long getHitCount()
+	{
+		return hits;
+	}
+
+	/**
+	 * Returns the amount of requests which are not served from the cache.
+	 *
+	 * @return the amount of misses
+	 */
+	public synchronized long getMissCount()
+	{
+		return misses;
+	}
+
+	/**
+	 * Returns the amount of entries evicted by the byte budget or reclaimed
+	 * by the garbage collector.
+	 *
+	 * @return the amount of evictions
+	 */
+	public synchronized long getEvictionCount()
+	{
+		return evictions;
+	}
+
+	/**
+	 * Returns the amount of files parsed by the reader. Coalesced requests
+	 * are counted as misses but parsed only once.
+	 *
+	 * @return the amount of loads
+	 */
+	public synchronized long getLoadCount()
+	{
+		return loads;
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	public synchronized String toString()
+	{
+		return String
+				.format("CSVCache[size=%d, weight=%d/%d, hits=%d, misses=%d, loads=%d, evictions=%d]",
+						entries.size(), weight, maxBytes, hits, misses, loads,
+						evictions);
+	}
+}
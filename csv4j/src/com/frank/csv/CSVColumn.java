@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVColumn.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The annotation of a field bound to a CSV column by {@link CSVBinder}. The
+ * fields without this annotation are bound to the columns of their names.
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface CSVColumn
+{
+	/**
+	 * The title of the column, the default is the name of the field.
+	 *
+	 * @return the title
+	 */
+	String value() default "";
+
+	/**
+	 * The index of the column, which takes precedence over the title and is
+	 * required for the untitled data. The default is -1, which means the
+	 * column is found by the title.
+	 *
+	 * @return the index
+	 */
+	int index() default -1;
+}
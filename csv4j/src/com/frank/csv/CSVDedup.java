@@ -0,0 +1,791 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVDedup.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The streaming deduplication of CSV rows, which keeps the first or the last
+ * row of each key and writes the kept rows in the input order.
+ * <p>
+ * The rows are identified by 64-bit fingerprints of the key columns, or of
+ * the whole rows if no key column is specified, which are kept in a
+ * primitive hash set instead of the fields. Two different keys are
+ * mistaken for duplicates only if their fingerprints collide. Keeping the
+ * first rows needs a single pass, the rows are written as soon as they are
+ * read. Keeping the last rows needs a second pass, the rows are spilled to a
+ * temporary file and written after the input is exhausted.
+ * </p>
+ * <p>
+ * If the fingerprints exceed the memory budget, the remaining rows are
+ * partitioned to temporary files by their fingerprints, each partition is
+ * deduplicated on its own and the kept rows are merged back in the input
+ * order. The budget applies to each partition, so the inputs of up to
+ * {@value #PARTITIONS} times the budget in fingerprints stay in the budget.
+ * </p>
+ * <p>
+ * In the approximate mode, the fingerprints are added to a Bloom filter of
+ * a fixed size instead, only the first rows can be kept. A distinct row is
+ * dropped as a duplicate at the false positive rate of the filter.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class CSVDedup
+{
+	/**
+	 * The row of each key to keep.
+	 */
+	public static enum Keep
+	{
+		/**
+		 * Keep the first row of each key.
+		 */
+		FIRST,
+		/**
+		 * Keep the last row of each key.
+		 */
+		LAST
+	}
+
+	/**
+	 * The head of a partition in the merge.
+	 */
+	private static final class Head
+	{
+		/**
+		 * The input of the partition, whose tag is the sequence number of the
+		 * current row.
+		 */
+		final RowFile.Input	in;
+		/**
+		 * The current row.
+		 */
+		String[]			row;
+
+		/**
+		 * Construct an instance of head.
+		 *
+		 * @param in
+		 *            the input of the partition
+		 */
+		Head(RowFile.Input in)
+		{
+			this.in = in;
+		}
+	}
+
+	/**
+	 * The temporary files of the partitions, each row is tagged with its
+	 * sequence number in the input.
+	 */
+	private final class Partitions
+	{
+		/**
+		 * The files of the partitions.
+		 */
+		private final RowFile[]			files	= new RowFile[PARTITIONS];
+		/**
+		 * The outputs of the partitions.
+		 */
+		private final RowFile.Output[]	outputs	= new RowFile.Output[PARTITIONS];
+
+		/**
+		 * Construct an instance of empty partitions.
+		 *
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		Partitions() throws IOException
+		{
+			partitioned = true;
+			try
+			{
+				for (int i = 0; i < PARTITIONS; i++)
+				{
+					files[i] = new RowFile(directory, false);
+					outputs[i] = files[i].openOutput();
+				}
+			}
+			catch (IOException | RuntimeException e)
+			{
+				delete();
+				throw e;
+			}
+		}
+
+		/**
+		 * Add a row to the partition of its fingerprint.
+		 *
+		 * @param fingerprint
+		 *            the fingerprint of the row
+		 * @param seq
+		 *            the sequence number of the row
+		 * @param row
+		 *            the fields of the row
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		void add(long fingerprint, long seq, String[] row) throws IOException
+		{
+			outputs[(int) (fingerprint >>> 64 - PARTITION_BITS)].handle(seq,
+					row);
+		}
+
+		/**
+		 * Deduplicate the partitions and write the kept rows in the input
+		 * order, the temporary files are deleted.
+		 *
+		 * @param keys
+		 *            the indices of the key columns
+		 * @param out
+		 *            the handler of the kept rows
+		 * @return the amount of kept rows
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		long flush(int[] keys, CSVRowHandler out) throws IOException
+		{
+			RowFile[] kept = new RowFile[PARTITIONS];
+			try
+			{
+				for (int i = 0; i < PARTITIONS; i++)
+				{
+					outputs[i].close();
+					outputs[i] = null;
+					kept[i] = new RowFile(directory, false);
+					reduce(files[i], kept[i], keys);
+					files[i].delete();
+				}
+				return merge(kept, out);
+			}
+			finally
+			{
+				for (RowFile file : kept)
+					if (file != null)
+						file.delete();
+				delete();
+			}
+		}
+
+		/**
+		 * Close the outputs and delete the files of the partitions.
+		 */
+		void delete()
+		{
+			for (int i = 0; i < PARTITIONS; i++)
+			{
+				if (outputs[i] != null)
+					try
+					{
+						outputs[i].close();
+					}
+					catch (IOException e)
+					{
+						// the file is deleted anyway
+					}
+				if (files[i] != null)
+					files[i].delete();
+			}
+		}
+	}
+
+	/**
+	 * The amount of bits of the fingerprints which select the partition.
+	 */
+	private static final int	PARTITION_BITS	= 6;
+	/**
+	 * The amount of partitions when the memory budget is exceeded.
+	 */
+	public static final int		PARTITIONS		= 1 << PARTITION_BITS;
+
+	/**
+	 * The titles of the key columns, or <tt>null</tt> if the keys are given by
+	 * indices or the whole rows are compared.
+	 */
+	private final String[]		keyTitles;
+	/**
+	 * The indices of the key columns, or <tt>null</tt> if the keys are given
+	 * by titles or the whole rows are compared.
+	 */
+	private final int[]			keyColumns;
+	/**
+	 * The row of each key to keep.
+	 */
+	private Keep				keep			= Keep.FIRST;
+	/**
+	 * The memory budget of the fingerprints in bytes.
+	 */
+	private long				memoryBudget	= 64L << 20;
+	/**
+	 * The directory of the temporary files, or <tt>null</tt> for the
+	 * default temporary directory.
+	 */
+	private File				directory;
+	/**
+	 * The expected amount of distinct rows in the approximate mode, or 0 if
+	 * the deduplication is exact.
+	 */
+	private long				expectedRows;
+	/**
+	 * The false positive rate of the Bloom filter in the approximate mode.
+	 */
+	private double				falsePositiveRate;
+	/**
+	 * The amount of duplicated rows dropped by the last deduplication.
+	 */
+	private long				duplicates;
+	/**
+	 * The flag whether the last deduplication was partitioned to disk.
+	 */
+	private boolean				partitioned;
+
+	/**
+	 * Construct an instance of deduplication of the whole rows.
+	 */
+	public CSVDedup()
+	{
+		this.keyTitles = null;
+		this.keyColumns = null;
+	}
+
+	/**
+	 * Construct an instance of deduplication keyed on the specified columns.
+	 *
+	 * @param keys
+	 *            the titles of the key columns
+	 */
+	public CSVDedup(String... keys)
+	{
+		if (keys.length == 0)
+			throw new IllegalArgumentException("No key column is specified.");
+		this.keyTitles = keys.clone();
+		this.keyColumns = null;
+	}
+
+	/**
+	 * Construct an instance of deduplication keyed on the specified columns.
+	 *
+	 * @param keys
+	 *            the indices of the key columns
+	 */
+	public CSVDedup(int... keys)
+	{
+		if (keys.length == 0)
+			throw new IllegalArgumentException("No key column is specified.");
+		this.keyTitles = null;
+		this.keyColumns = keys.clone();
+	}
+
+	/**
+	 * Deduplicate the rows of the reader into the handler. The titles are
+	 * handled first if the reader is titled.
+	 *
+	 * @param in
+	 *            the row reader
+	 * @param out
+	 *            the handler of the kept rows
+	 * @return the amount of kept data rows
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public long dedup(CSVRowReader in, CSVRowHandler out) throws IOException
+	{
+		if (expectedRows > 0 && keep != Keep.FIRST)
+			throw new IllegalStateException(
+					"Only the first rows can be kept in the approximate mode.");
+		duplicates = 0;
+		partitioned = false;
+		int[] keys = keyColumns != null ? keyColumns
+				: keyTitles != null ? RowKey.indices(in, keyTitles) : null;
+		if (in.isTitled())
+			out.handle(in.getTitles());
+		if (expectedRows > 0)
+			return approximate(in, out, keys);
+		return keep == Keep.FIRST ? first(in, out, keys) : last(in, out, keys);
+	}
+
+	/**
+	 * Deduplicate a CSV file into another CSV file.
+	 *
+	 * @param input
+	 *            the input file
+	 * @param reader
+	 *            the reader of the input file
+	 * @param output
+	 *            the output file
+	 * @param writer
+	 *            the writer of the output file
+	 * @return the amount of kept data rows
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public long dedup(File input, CSVReader reader, File output,
+			CSVWriter writer) throws IOException
+	{
+		CSVRowReader in = reader.open(input);
+		try
+		{
+			CSVRowWriter out = writer.open(output);
+			try
+			{
+				return dedup(in, out);
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Keep the first rows with a Bloom filter.
+	 *
+	 * @param in
+	 *            the row reader
+	 * @param out
+	 *            the handler of the kept rows
+	 * @param keys
+	 *            the indices of the key columns
+	 * @return the amount of kept rows
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private long approximate(CSVRowReader in, CSVRowHandler out, int[] keys)
+			throws IOException
+	{
+		BloomFilter filter = new BloomFilter(expectedRows, falsePositiveRate);
+		long rows = 0;
+		String[] row;
+		while ((row = in.next()) != null)
+			if (filter.add(RowKey.hash64(row, keys)))
+			{
+				out.handle(row);
+				rows++;
+			}
+			else
+				duplicates++;
+		return rows;
+	}
+
+	/**
+	 * Keep the first rows.
+	 *
+	 * @param in
+	 *            the row reader
+	 * @param out
+	 *            the handler of the kept rows
+	 * @param keys
+	 *            the indices of the key columns
+	 * @return the amount of kept rows
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private long first(CSVRowReader in, CSVRowHandler out, int[] keys)
+			throws IOException
+	{
+		LongHashSet seen = new LongHashSet();
+		long rows = 0, seq = 0;
+		String[] row;
+		while (seen.bytes() <= memoryBudget && (row = in.next()) != null)
+		{
+			if (seen.add(RowKey.hash64(row, keys)))
+			{
+				out.handle(row);
+				rows++;
+			}
+			else
+				duplicates++;
+			seq++;
+		}
+		if (seen.bytes() <= memoryBudget)
+			return rows;
+		// the rows written are filtered out before partitioning
+		Partitions partitions = new Partitions();
+		try
+		{
+			while ((row = in.next()) != null)
+			{
+				long fingerprint = RowKey.hash64(row, keys);
+				if (seen.contains(fingerprint))
+					duplicates++;
+				else
+					partitions.add(fingerprint, seq, row);
+				seq++;
+			}
+		}
+		catch (IOException | RuntimeException e)
+		{
+			partitions.delete();
+			throw e;
+		}
+		seen.clear();
+		return rows + partitions.flush(keys, out);
+	}
+
+	/**
+	 * Keep the last rows.
+	 *
+	 * @param in
+	 *            the row reader
+	 * @param out
+	 *            the handler of the kept rows
+	 * @param keys
+	 *            the indices of the key columns
+	 * @return the amount of kept rows
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private long last(CSVRowReader in, CSVRowHandler out, int[] keys)
+			throws IOException
+	{
+		LongHashMap last = new LongHashMap();
+		RowFile spill = new RowFile(directory, false);
+		try
+		{
+			long seq = 0;
+			String[] row;
+			RowFile.Output output = spill.openOutput();
+			try
+			{
+				while (last.bytes() <= memoryBudget
+						&& (row = in.next()) != null)
+				{
+					last.put(RowKey.hash64(row, keys), seq++);
+					output.handle(row);
+				}
+			}
+			finally
+			{
+				output.close();
+			}
+			RowFile.Input input = spill.openInput();
+			try
+			{
+				if (last.bytes() > memoryBudget)
+				{
+					last.clear();
+					return partition(input, in, keys, out);
+				}
+				long rows = 0;
+				for (seq = 0; (row = input.read()) != null; seq++)
+					if (last.get(RowKey.hash64(row, keys), -1) == seq)
+					{
+						out.handle(row);
+						rows++;
+					}
+					else
+						duplicates++;
+				return rows;
+			}
+			finally
+			{
+				input.close();
+			}
+		}
+		finally
+		{
+			spill.delete();
+		}
+	}
+
+	/**
+	 * Partition the spilled rows and the remaining rows, and keep the last
+	 * rows of the partitions.
+	 *
+	 * @param spilled
+	 *            the input of the spilled rows
+	 * @param in
+	 *            the row reader of the remaining rows
+	 * @param keys
+	 *            the indices of the key columns
+	 * @param out
+	 *            the handler of the kept rows
+	 * @return the amount of kept rows
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private long partition(RowFile.Input spilled, CSVRowReader in,
+			int[] keys, CSVRowHandler out) throws IOException
+	{
+		Partitions partitions = new Partitions();
+		try
+		{
+			long seq = 0;
+			String[] row;
+			while ((row = spilled.read()) != null)
+				partitions.add(RowKey.hash64(row, keys), seq++, row);
+			while ((row = in.next()) != null)
+				partitions.add(RowKey.hash64(row, keys), seq++, row);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			partitions.delete();
+			throw e;
+		}
+		return partitions.flush(keys, out);
+	}
+
+	/**
+	 * Deduplicate a partition, the kept rows are written with their sequence
+	 * numbers.
+	 *
+	 * @param partition
+	 *            the file of the partition
+	 * @param kept
+	 *            the file of the kept rows
+	 * @param keys
+	 *            the indices of the key columns
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private void reduce(RowFile partition, RowFile kept, int[] keys)
+			throws IOException
+	{
+		LongHashSet seen = null;
+		LongHashMap last = null;
+		String[] row;
+		if (keep == Keep.FIRST)
+			seen = new LongHashSet();
+		else
+		{
+			last = new LongHashMap();
+			RowFile.Input in = partition.openInput();
+			try
+			{
+				while ((row = in.readTagged()) != null)
+					last.put(RowKey.hash64(row, keys), in.tag);
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		RowFile.Input in = partition.openInput();
+		try
+		{
+			RowFile.Output out = kept.openOutput();
+			try
+			{
+				while ((row = in.readTagged()) != null)
+				{
+					long fingerprint = RowKey.hash64(row, keys);
+					if (seen != null ? seen.add(fingerprint) : last.get(
+							fingerprint, -1) == in.tag)
+						out.handle(in.tag, row);
+					else
+						duplicates++;
+				}
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Merge the kept rows of the partitions in the order of their sequence
+	 * numbers.
+	 *
+	 * @param kept
+	 *            the files of the kept rows
+	 * @param out
+	 *            the handler of the kept rows
+	 * @return the amount of kept rows
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private static long merge(RowFile[] kept, CSVRowHandler out)
+			throws IOException
+	{
+		PriorityQueue<Head> heap = new PriorityQueue<Head>(kept.length,
+				new Comparator<Head>() {
+					public int compare(Head a, Head b)
+					{
+						return Long.compare(a.in.tag, b.in.tag);
+					}
+				});
+		List<RowFile.Input> inputs = new ArrayList<RowFile.Input>();
+		long rows = 0;
+		try
+		{
+			for (RowFile file : kept)
+			{
+				Head head = new Head(file.openInput());
+				inputs.add(head.in);
+				if ((head.row = head.in.readTagged()) != null)
+					heap.add(head);
+			}
+			while (!heap.isEmpty())
+			{
+				Head head = heap.poll();
+				out.handle(head.row);
+				rows++;
+				if ((head.row = head.in.readTagged()) != null)
+					heap.add(head);
+			}
+			return rows;
+		}
+		finally
+		{
+			for (RowFile.Input in : inputs)
+				in.close();
+		}
+	}
+
+	/**
+	 * Returns the amount of duplicated rows dropped by the last
+	 * deduplication.
+	 *
+	 * @return the amount of duplicates
+	 */
+	public long getDuplicates()
+	{
+		return duplicates;
+	}
+
+	/**
+	 * Returns the state that whether the last deduplication was partitioned
+	 * to disk because the memory budget was exceeded.
+	 *
+	 * @return <tt>true</tt> if the rows were partitioned
+	 */
+	public boolean isPartitioned()
+	{
+		return partitioned;
+	}
+
+	/**
+	 * Get the row of each key to keep.
+	 *
+	 * @return the row to keep
+	 */
+	public Keep getKeep()
+	{
+		return keep;
+	}
+
+	/**
+	 * Set the row of each key to keep, the default is {@link Keep#FIRST}.
+	 *
+	 * @param keep
+	 *            the row to keep
+	 */
+	public void setKeep(Keep keep)
+	{
+		if (keep == null)
+			throw new IllegalArgumentException("The row to keep is null.");
+		this.keep = keep;
+	}
+
+	/**
+	 * Returns the state that whether the deduplication is approximate.
+	 *
+	 * @return <tt>true</tt> if the approximate mode is enabled
+	 */
+	public boolean isApproximate()
+	{
+		return expectedRows > 0;
+	}
+
+	/**
+	 * Enable the approximate mode, the fingerprints are added to a Bloom
+	 * filter sized for the expected amount of distinct rows, which takes
+	 * about <code>-1.44 * log2(falsePositiveRate)</code> bits per row
+	 * regardless of the memory budget.
+	 *
+	 * @param expectedRows
+	 *            the expected amount of distinct rows
+	 * @param falsePositiveRate
+	 *            the rate of the distinct rows dropped as duplicates, at the
+	 *            expected amount of rows
+	 */
+	public void setApproximate(long expectedRows, double falsePositiveRate)
+	{
+		if (expectedRows < 1)
+			throw new IllegalArgumentException(String.format(
+					"The expected amount of rows(%d) must be positive.",
+					expectedRows));
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1))
+			throw new IllegalArgumentException(String.format(
+					"The false positive rate(%f) must be in (0, 1).",
+					falsePositiveRate));
+		this.expectedRows = expectedRows;
+		this.falsePositiveRate = falsePositiveRate;
+	}
+
+	/**
+	 * Disable the approximate mode.
+	 */
+	public void setExact()
+	{
+		this.expectedRows = 0;
+	}
+
+	/**
+	 * Get the memory budget of the fingerprints in bytes.
+	 *
+	 * @return the memory budget
+	 */
+	public long getMemoryBudget()
+	{
+		return memoryBudget;
+	}
+
+	/**
+	 * Set the memory budget of the fingerprints in bytes. Each distinct key
+	 * takes 8 to 32 bytes of fingerprints when keeping the first rows, and 16
+	 * to 64 bytes when keeping the last rows.
+	 *
+	 * @param memoryBudget
+	 *            the memory budget
+	 */
+	public void setMemoryBudget(long memoryBudget)
+	{
+		if (memoryBudget <= 0)
+			throw new IllegalArgumentException(String.format(
+					"The memory budget(%d) must be positive.", memoryBudget));
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Get the directory of the temporary files.
+	 *
+	 * @return the directory, or <tt>null</tt> for the default temporary
+	 *         directory
+	 */
+	public File getDirectory()
+	{
+		return directory;
+	}
+
+	/**
+	 * Set the directory of the temporary files.
+	 *
+	 * @param directory
+	 *            the directory, or <tt>null</tt> for the default temporary
+	 *            directory
+	 */
+	public void setDirectory(File directory)
+	{
+		this.directory = directory;
+	}
+}
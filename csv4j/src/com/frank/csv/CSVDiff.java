@@ -0,0 +1,678 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVDiff.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The difference between two snapshots of CSV data, whose rows are matched by
+ * key columns.
+ * <p>
+ * The rows are compared by 64-bit hashes computed while parsing, only the
+ * changed rows are kept in memory. The first pass hashes the keys and the
+ * contents of the rows before, the second pass reads the rows after, keeps
+ * the changed rows and stores the added rows in a temporary file, which are
+ * reported when the pass completes. The third pass reads the rows before
+ * again and reports the removed and the changed rows. The added rows are
+ * reported in the order after, the others in the order before. Two
+ * different keys or contents are mistaken for equal only if their 64-bit
+ * hashes collide.
+ * </p>
+ * <p>
+ * If the hashes and the changed rows exceed the memory budget, the inputs
+ * are sorted by the key columns with {@link CSVSorter} and merged, and all
+ * the differences are reported in the order of the keys. Nothing is
+ * reported before the fallback, so both ways report the same differences.
+ * The keys must be unique in the snapshot before, an
+ * {@link IllegalArgumentException} is thrown otherwise. The duplicated keys
+ * after are matched in the order they appear, the first row of a key is
+ * compared with the row before and the others are added.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class CSVDiff
+{
+	/**
+	 * The listener of the differences.
+	 */
+	public static interface Listener
+	{
+		/**
+		 * Called when a row is added.
+		 *
+		 * @param row
+		 *            the row after
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		void added(String[] row) throws IOException;
+
+		/**
+		 * Called when a row is removed.
+		 *
+		 * @param row
+		 *            the row before
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		void removed(String[] row) throws IOException;
+
+		/**
+		 * Called when a row is changed.
+		 *
+		 * @param before
+		 *            the row before
+		 * @param after
+		 *            the row after
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		void changed(String[] before, String[] after) throws IOException;
+	}
+
+	/**
+	 * The differences collected in memory.
+	 */
+	public static class Result implements Listener
+	{
+		/**
+		 * The added rows.
+		 */
+		protected final List<String[]>		added	= new ArrayList<String[]>();
+		/**
+		 * The removed rows.
+		 */
+		protected final List<String[]>		removed	= new ArrayList<String[]>();
+		/**
+		 * The changed rows, each element contains the row before and the row
+		 * after.
+		 */
+		protected final List<String[][]>	changed	= new ArrayList<String[][]>();
+
+		/**
+		 * @see com.frank.csv.CSVDiff.Listener#added(java.lang.String[])
+		 */
+		public void added(String[] row)
+		{
+			added.add(row);
+		}
+
+		/**
+		 * @see com.frank.csv.CSVDiff.Listener#removed(java.lang.String[])
+		 */
+		public void removed(String[] row)
+		{
+			removed.add(row);
+		}
+
+		/**
+		 * @see com.frank.csv.CSVDiff.Listener#changed(java.lang.String[],
+		 *      java.lang.String[])
+		 */
+		public void changed(String[] before, String[] after)
+		{
+			changed.add(new String[][] { before, after });
+		}
+
+		/**
+		 * Returns the added rows.
+		 *
+		 * @return the added rows
+		 */
+		public List<String[]> getAdded()
+		{
+			return added;
+		}
+
+		/**
+		 * Returns the removed rows.
+		 *
+		 * @return the removed rows
+		 */
+		public List<String[]> getRemoved()
+		{
+			return removed;
+		}
+
+		/**
+		 * Returns the changed rows, each element contains the row before and
+		 * the row after.
+		 *
+		 * @return the changed rows
+		 */
+		public List<String[][]> getChanged()
+		{
+			return changed;
+		}
+
+		/**
+		 * @see java.lang.Object#toString()
+		 */
+		public String toString()
+		{
+			return String.format("CSVDiff.Result[added=%d, removed=%d, changed=%d]",
+					added.size(), removed.size(), changed.size());
+		}
+	}
+
+	/**
+	 * The value of the matched keys whose rows are not changed.
+	 */
+	private static final long	UNCHANGED		= -1;
+	/**
+	 * The value of the keys which are not matched.
+	 */
+	private static final long	MISSING			= -2;
+
+	/**
+	 * The titles of the key columns, or <tt>null</tt> if the keys are given by
+	 * indices.
+	 */
+	private final String[]		keyTitles;
+	/**
+	 * The indices of the key columns, or <tt>null</tt> if the keys are given
+	 * by titles.
+	 */
+	private final int[]			keyColumns;
+	/**
+	 * The memory budget of the hashes and the changed rows in bytes.
+	 */
+	private long				memoryBudget	= 64L << 20;
+	/**
+	 * The directory of the temporary files, or <tt>null</tt> for the
+	 * default temporary directory.
+	 */
+	private File				directory;
+	/**
+	 * The flag whether the last difference was computed by sort-merge.
+	 */
+	private boolean				sorted;
+
+	/**
+	 * Construct an instance of CSV difference keyed on the specified
+	 * columns.
+	 *
+	 * @param keys
+	 *            the titles of the key columns
+	 */
+	public CSVDiff(String... keys)
+	{
+		if (keys.length == 0)
+			throw new IllegalArgumentException("No key column is specified.");
+		this.keyTitles = keys.clone();
+		this.keyColumns = null;
+	}
+
+	/**
+	 * Construct an instance of CSV difference keyed on the specified
+	 * columns.
+	 *
+	 * @param keys
+	 *            the indices of the key columns
+	 */
+	public CSVDiff(int... keys)
+	{
+		if (keys.length == 0)
+			throw new IllegalArgumentException("No key column is specified.");
+		this.keyTitles = null;
+		this.keyColumns = keys.clone();
+	}
+
+	/**
+	 * Compute the difference between two CSV files and collect it in
+	 * memory.
+	 *
+	 * @param before
+	 *            the file before
+	 * @param after
+	 *            the file after
+	 * @param reader
+	 *            the reader of both files
+	 * @return the difference
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public Result diff(File before, File after, CSVReader reader)
+			throws IOException
+	{
+		Result result = new Result();
+		diff(before, after, reader, result);
+		return result;
+	}
+
+	/**
+	 * Compute the difference between two CSV files and report it to the
+	 * listener.
+	 *
+	 * @param before
+	 *            the file before
+	 * @param after
+	 *            the file after
+	 * @param reader
+	 *            the reader of both files
+	 * @param listener
+	 *            the listener of the differences
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void diff(File before, File after, CSVReader reader,
+			Listener listener) throws IOException
+	{
+		LongHashMap hashes = hash(before, reader);
+		sorted = hashes == null
+				|| !diff(hashes, before, after, reader, listener);
+		if (sorted)
+			merge(before, after, reader, listener);
+	}
+
+	/**
+	 * Hash the keys and the contents of the rows before.
+	 *
+	 * @param before
+	 *            the file before
+	 * @param reader
+	 *            the reader
+	 * @return the map from the key hashes to the content hashes, or
+	 *         <tt>null</tt> if the memory budget is exceeded
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 * @throws IllegalArgumentException
+	 *             if a key is duplicated.
+	 */
+	private LongHashMap hash(File before, CSVReader reader) throws IOException
+	{
+		CSVRowReader in = reader.open(before);
+		try
+		{
+			int[] keys = keys(in);
+			LongHashMap hashes = new LongHashMap();
+			String[] row;
+			while ((row = in.next()) != null)
+			{
+				long key = RowKey.hash64(row, keys);
+				if (hashes.containsKey(key))
+					throw duplicate(in.getRow());
+				hashes.put(key, RowKey.hash64(row, null));
+				if (hashes.bytes() > memoryBudget)
+					return null;
+			}
+			return hashes;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Compute the difference with the hashes of the rows before. Nothing is
+	 * reported if the memory budget is exceeded.
+	 *
+	 * @param hashes
+	 *            the map from the key hashes to the content hashes before
+	 * @param before
+	 *            the file before
+	 * @param after
+	 *            the file after
+	 * @param reader
+	 *            the reader
+	 * @param listener
+	 *            the listener of the differences
+	 * @return <tt>false</tt> if the memory budget is exceeded
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private boolean diff(LongHashMap hashes, File before, File after,
+			CSVReader reader, Listener listener) throws IOException
+	{
+		// the matched keys, mapped to the index of the changed row after
+		LongHashMap matched = new LongHashMap();
+		List<String[]> changed = new ArrayList<String[]>();
+		long size = hashes.bytes();
+		RowFile added = new RowFile(directory, false);
+		try
+		{
+			RowFile.Output out = added.openOutput();
+			try
+			{
+				CSVRowReader in = reader.open(after);
+				try
+				{
+					int[] keys = keys(in);
+					String[] row;
+					while ((row = in.next()) != null)
+					{
+						long key = RowKey.hash64(row, keys);
+						long hash = hashes.get(key, 0);
+						if (!hashes.containsKey(key) || matched.containsKey(key))
+							out.handle(row);
+						else if (hash == RowKey.hash64(row, null))
+							matched.put(key, UNCHANGED);
+						else
+						{
+							matched.put(key, changed.size());
+							changed.add(row);
+							size += CSV.sizeOf(row) + 16;
+						}
+						if (size + matched.bytes() > memoryBudget)
+							return false;
+					}
+				}
+				finally
+				{
+					in.close();
+				}
+			}
+			finally
+			{
+				out.close();
+			}
+			RowFile.Input input = added.openInput();
+			try
+			{
+				String[] row;
+				while ((row = input.read()) != null)
+					listener.added(row);
+			}
+			finally
+			{
+				input.close();
+			}
+		}
+		finally
+		{
+			added.delete();
+		}
+		if (matched.size() == hashes.size() && changed.isEmpty())
+			return true;
+		CSVRowReader in = reader.open(before);
+		try
+		{
+			int[] keys = keys(in);
+			String[] row;
+			while ((row = in.next()) != null)
+			{
+				long index = matched.get(RowKey.hash64(row, keys), MISSING);
+				if (index == MISSING)
+					listener.removed(row);
+				else if (index != UNCHANGED)
+					listener.changed(row, changed.get((int) index));
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+		return true;
+	}
+
+	/**
+	 * Compute the difference by sorting both files by the keys and merging
+	 * them.
+	 *
+	 * @param before
+	 *            the file before
+	 * @param after
+	 *            the file after
+	 * @param reader
+	 *            the reader
+	 * @param listener
+	 *            the listener of the differences
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private void merge(File before, File after, CSVReader reader,
+			Listener listener) throws IOException
+	{
+		RowFile a = null, b = null;
+		try
+		{
+			int[] keys, keysAfter;
+			CSVRowReader in = reader.open(before);
+			try
+			{
+				keys = keys(in);
+				a = sort(in, keys, true);
+			}
+			finally
+			{
+				in.close();
+			}
+			in = reader.open(after);
+			try
+			{
+				keysAfter = keys(in);
+				b = sort(in, keysAfter, false);
+			}
+			finally
+			{
+				in.close();
+			}
+			RowFile.Input x = a.openInput(), y = b.openInput();
+			try
+			{
+				String[] p = x.read(), q = y.read();
+				while (p != null || q != null)
+				{
+					int c = p == null ? 1 : q == null ? -1 : compare(p, q,
+							keys, keysAfter);
+					if (c < 0)
+					{
+						listener.removed(p);
+						p = x.read();
+					}
+					else if (c > 0)
+					{
+						listener.added(q);
+						q = y.read();
+					}
+					else
+					{
+						if (!Arrays.equals(p, q))
+							listener.changed(p, q);
+						p = x.read();
+						q = y.read();
+					}
+				}
+			}
+			finally
+			{
+				x.close();
+				y.close();
+			}
+		}
+		finally
+		{
+			if (a != null)
+				a.delete();
+			if (b != null)
+				b.delete();
+		}
+	}
+
+	/**
+	 * Sort the rows by the keys into a temporary file.
+	 *
+	 * @param in
+	 *            the row reader
+	 * @param keys
+	 *            the indices of the key columns
+	 * @param unique
+	 *            the flag whether the keys must be unique
+	 * @return the temporary file
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 * @throws IllegalArgumentException
+	 *             if the keys must be unique and a key is duplicated.
+	 */
+	private RowFile sort(CSVRowReader in, final int[] keys, boolean unique)
+			throws IOException
+	{
+		CSVSorter sorter = new CSVSorter();
+		for (int key : keys)
+			sorter.addKey(key, CSVSorter.Type.STRING, true);
+		sorter.setStable(true);
+		sorter.setMemoryBudget(memoryBudget);
+		sorter.setDirectory(directory);
+		RowFile file = new RowFile(directory, false);
+		try
+		{
+			final RowFile.Output out = file.openOutput();
+			try
+			{
+				if (unique)
+					sorter.sort(in, new CSVRowHandler() {
+						private String[]	last;
+						private long		rows;
+
+						public void handle(String[] row) throws IOException
+						{
+							rows++;
+							if (last != null
+									&& compare(last, row, keys, keys) == 0)
+								throw duplicate(rows);
+							last = row;
+							out.handle(row);
+						}
+					});
+				else
+					sorter.sort(in, out);
+			}
+			finally
+			{
+				out.close();
+			}
+			return file;
+		}
+		catch (IOException | RuntimeException e)
+		{
+			file.delete();
+			throw e;
+		}
+	}
+
+	/**
+	 * Compare the keys of two rows in the order of {@link CSVSorter}, the
+	 * empty and the missing fields are the greatest.
+	 *
+	 * @param a
+	 *            the first row
+	 * @param b
+	 *            the second row
+	 * @param keysA
+	 *            the indices of the key columns of the first row
+	 * @param keysB
+	 *            the indices of the key columns of the second row
+	 * @return the comparison result
+	 */
+	private static int compare(String[] a, String[] b, int[] keysA,
+			int[] keysB)
+	{
+		for (int i = 0; i < keysA.length; i++)
+		{
+			String s = keysA[i] < a.length ? a[keysA[i]] : null;
+			String t = keysB[i] < b.length ? b[keysB[i]] : null;
+			boolean x = s == null || s.isEmpty();
+			boolean y = t == null || t.isEmpty();
+			int c = x || y ? (x == y ? 0 : x ? 1 : -1) : s.compareTo(t);
+			if (c != 0)
+				return c;
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the exception of a duplicated key in the file before.
+	 *
+	 * @param row
+	 *            the index of the row, in the file order or in the key order
+	 * @return the exception
+	 */
+	private static IllegalArgumentException duplicate(long row)
+	{
+		return new IllegalArgumentException(String.format(
+				"The key of row %d is duplicated in the file before.", row));
+	}
+
+	/**
+	 * Resolve the indices of the key columns.
+	 *
+	 * @param in
+	 *            the row reader
+	 * @return the indices of the key columns
+	 */
+	private int[] keys(CSVRowReader in)
+	{
+		return keyColumns != null ? keyColumns : RowKey.indices(in, keyTitles);
+	}
+
+	/**
+	 * Returns the state that whether the last difference was computed by
+	 * sort-merge because the memory budget was exceeded.
+	 *
+	 * @return <tt>true</tt> if sort-merge was used
+	 */
+	public boolean isSorted()
+	{
+		return sorted;
+	}
+
+	/**
+	 * Get the memory budget of the hashes and the changed rows in bytes.
+	 *
+	 * @return the memory budget
+	 */
+	public long getMemoryBudget()
+	{
+		return memoryBudget;
+	}
+
+	/**
+	 * Set the memory budget of the hashes and the changed rows in bytes.
+	 * Each row before takes 16 to 64 bytes of hashes, and each changed row
+	 * after is kept until it is reported. The difference falls back to
+	 * sort-merge if the hashes and the changed rows exceed the budget.
+	 *
+	 * @param memoryBudget
+	 *            the memory budget
+	 */
+	public void setMemoryBudget(long memoryBudget)
+	{
+		if (memoryBudget <= 0)
+			throw new IllegalArgumentException(String.format(
+					"The memory budget(%d) must be positive.", memoryBudget));
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Get the directory of the temporary files.
+	 *
+	 * @return the directory, or <tt>null</tt> for the default temporary
+	 *         directory
+	 */
+	public File getDirectory()
+	{
+		return directory;
+	}
+
+	/**
+	 * Set the directory of the temporary files.
+	 *
+	 * @param directory
+	 *            the directory, or <tt>null</tt> for the default temporary
+	 *            directory
+	 */
+	public void setDirectory(File directory)
+	{
+		this.directory = directory;
+	}
+}
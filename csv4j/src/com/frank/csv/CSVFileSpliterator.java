@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVFileSpliterator.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * The spliterator for the rows of a CSV file, which is split by byte range
+ * at the record boundaries.
+ * <p>
+ * Each spliterator covers a byte range of the file and owns the records
+ * starting in the range. A range always begins at the start of a record, the
+ * split point is moved forward to the byte after the next delimiter
+ * character, so no record is read twice or cut in two. The bytes are read by
+ * positional reads from a file channel shared by all the spliterators, which
+ * is closed by the stream.
+ * </p>
+ * <p>
+ * The delimiter characters are searched as bytes, so the charset must encode
+ * them in single bytes which never appear in the encoding of other
+ * characters, see {@link #supports(Charset, String)}.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+final class CSVFileSpliterator implements Spliterator<String[]>
+{
+	/**
+	 * The minimum amount of bytes in a split.
+	 */
+	static final int			MIN_SPLIT	= 1 << 16;
+
+	/**
+	 * The CSV reader which parses the lines.
+	 */
+	private final CSVReader		reader;
+	/**
+	 * The shared file channel.
+	 */
+	private final FileChannel	channel;
+	/**
+	 * The character set of the file.
+	 */
+	private final Charset		charset;
+	/**
+	 * The delimiter bytes.
+	 */
+	private final byte[]		delimiter;
+	/**
+	 * The position of the next byte to scan.
+	 */
+	private long				position;
+	/**
+	 * The end of the byte range, exclusive.
+	 */
+	private final long			end;
+	/**
+	 * The read buffer, allocated on the first read.
+	 */
+	private ByteBuffer			buffer;
+	/**
+	 * The bytes of the current line.
+	 */
+	private byte[]				line		= new byte[256];
+
+	/**
+	 * Construct an instance of CSV file spliterator.
+	 *
+	 * @param reader
+	 *            the CSV reader which parses the lines
+	 * @param channel
+	 *            the shared file channel
+	 * @param charset
+	 *            the character set of the file
+	 * @param start
+	 *            the start of the byte range, which is the start of a record
+	 * @param end
+	 *            the end of the byte range, exclusive
+	 */
+	CSVFileSpliterator(CSVReader reader, FileChannel channel, Charset charset,
+			long start, long end)
+	{
+		this.reader = reader;
+		this.channel = channel;
+		this.charset = charset;
+		this.delimiter = reader.getDelimiter().getBytes(charset);
+		this.position = start;
+		this.end = end;
+	}
+
+	/**
+	 * Returns the state that whether the file can be split in the specified
+	 * charset by the specified delimiter. The delimiter must consist of ASCII
+	 * characters and the charset must be one of the ASCII compatible charsets
+	 * which never use the ASCII bytes in multi-byte sequences.
+	 *
+	 * @param charset
+	 *            the character set of the file
+	 * @param delimiter
+	 *            the delimiter for row data
+	 * @return <tt>true</tt> if the file can be split
+	 */
+	static boolean supports(Charset charset, String delimiter)
+	{
+		for (int i = 0; i < delimiter.length(); i++)
+			if (delimiter.charAt(i) >= 0x80)
+				return false;
+		String name = charset.name();
+		if (name.equals("GBK") || name.equals("GB18030"))
+		{
+			// the trailing bytes of the double-byte characters start at 0x40
+			for (int i = 0; i < delimiter.length(); i++)
+				if (delimiter.charAt(i) >= 0x40)
+					return false;
+			return true;
+		}
+		return name.equals("UTF-8") || name.equals("US-ASCII")
+				|| name.startsWith("ISO-8859-")
+				|| name.startsWith("windows-125") || name.equals("EUC-JP")
+				|| name.equals("EUC-KR");
+	}
+
+	/**
+	 * Returns the position after the first record of the file, which is
+	 * skipped as the title row.
+	 *
+	 * @param reader
+	 *            the CSV reader
+	 * @param channel
+	 *            the file channel
+	 * @param charset
+	 *            the character set of the file
+	 * @return the position after the title row
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	static long skipTitle(CSVReader reader, FileChannel channel,
+			Charset charset) throws IOException
+	{
+		CSVFileSpliterator s = new CSVFileSpliterator(reader, channel,
+				charset, 0, channel.size());
+		return s.readLine() == -1 ? channel.size() : s.position;
+	}
+
+	/**
+	 * Returns the state that whether the byte is a delimiter byte.
+	 *
+	 * @param b
+	 *            the byte
+	 * @return <tt>true</tt> if the byte is a delimiter byte
+	 */
+	private boolean isDelimiter(byte b)
+	{
+		for (byte d : delimiter)
+			if (b == d)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Read the next non-empty line into {@link #line}.
+	 *
+	 * @return the length of the line, or -1 if the end of the range has been
+	 *         reached
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private int readLine() throws IOException
+	{
+		if (buffer == null)
+		{
+			buffer = ByteBuffer.allocate((int) Math.min(
+					Math.max(reader.getBufferSize(), 1024),
+					Math.max(end - position, 16)));
+			buffer.limit(0);
+		}
+		int length = 0;
+		while (position < end)
+		{
+			if (!buffer.hasRemaining())
+			{
+				buffer.clear();
+				buffer.limit((int) Math.min(buffer.capacity(), end - position));
+				int r = 0;
+				while (buffer.hasRemaining() && r != -1)
+					r = channel.read(buffer, position + buffer.position());
+				buffer.flip();
+				if (!buffer.hasRemaining())
+					break;
+			}
+			byte b = buffer.get();
+			position++;
+			if (isDelimiter(b))
+			{
+				if (length > 0)
+					return length;
+			}
+			else
+			{
+				if (length == line.length)
+					line = Arrays.copyOf(line, length << 1);
+				line[length++] = b;
+			}
+		}
+		return length > 0 ? length : -1;
+	}
+
+	/**
+	 * @see java.util.Spliterator#tryAdvance(java.util.function.Consumer)
+	 */
+	@Override
+	public boolean tryAdvance(Consumer<? super String[]> action)
+	{
+		int length;
+		try
+		{
+			length = readLine();
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		if (length == -1)
+			return false;
+		action.accept(reader.parseLine(new String(line, 0, length, charset)));
+		return true;
+	}
+
+	/**
+	 * Split the unread part of the range at the first record boundary after
+	 * its middle.
+	 *
+	 * @see java.util.Spliterator#trySplit()
+	 */
+	@Override
+	public Spliterator<String[]> trySplit()
+	{
+		if (buffer != null || end - position < 2L * MIN_SPLIT)
+			return null;
+		long middle = position + (end - position) / 2;
+		ByteBuffer scan = ByteBuffer.allocate(4096);
+		try
+		{
+			long p = middle - 1;
+			while (p < end)
+			{
+				scan.clear();
+				scan.limit((int) Math.min(scan.capacity(), end - p));
+				int r = channel.read(scan, p);
+				if (r <= 0)
+					return null;
+				for (int i = 0; i < r; i++)
+					if (isDelimiter(scan.get(i)))
+					{
+						long boundary = p + i + 1;
+						if (boundary >= end)
+							return null;
+						CSVFileSpliterator prefix = new CSVFileSpliterator(
+								reader, channel, charset, position, boundary);
+						position = boundary;
+						return prefix;
+					}
+				p += r;
+			}
+			return null;
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns the amount of unread bytes in the range, which is an upper
+	 * bound of the amount of rows.
+	 *
+	 * @see java.util.Spliterator#estimateSize()
+	 */
+	@Override
+	public long estimateSize()
+	{
+		return end - position;
+	}
+
+	/**
+	 * @see java.util.Spliterator#characteristics()
+	 */
+	@Override
+	public int characteristics()
+	{
+		return ORDERED | NONNULL;
+	}
+}
@@ -0,0 +1,609 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVFormat.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * The immutable dialect of CSV data, which is created by a {@link Builder}.
+ * <p>
+ * A format can be shared by any number of threads. It reads the CSV data in
+ * the same way as a {@link CSVReader} of the same settings, the reader is
+ * kept inside and never modified. The byte buffer, the character buffer,
+ * the decoder and the content builder of the reads are kept per thread and
+ * reused, so reading many small files does not allocate them again. A
+ * content builder grown over {@value #MAX_RETAINED} characters by a large
+ * file is released after the read.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public final class CSVFormat
+{
+	/**
+	 * The builder of a {@link CSVFormat}.
+	 */
+	public static final class Builder
+	{
+		/**
+		 * The separator of the fields in a row.
+		 */
+		private char	separator		= ',';
+		/**
+		 * The quotation mark of the fields.
+		 */
+		private char	quote			= '"';
+		/**
+		 * The separator of the rows, each character of it separates rows.
+		 */
+		private String	recordSeparator	= "\r\n";
+		/**
+		 * The character set.
+		 */
+		private Charset	charset			= Charset.defaultCharset();
+		/**
+		 * The flag whether the first row is the header.
+		 */
+		private boolean	header;
+		/**
+		 * The flag whether the fields are trimmed.
+		 */
+		private boolean	trim;
+		/**
+		 * The size of the buffers.
+		 */
+		private int		bufferSize		= 1 << 14;
+
+		/**
+		 * Construct an instance of builder with the default settings.
+		 */
+		private Builder()
+		{
+		}
+
+		/**
+		 * Set the separator of the fields in a row, the default is the
+		 * comma.
+		 *
+		 * @param separator
+		 *            the separator
+		 * @return this builder
+		 */
+		public Builder separator(char separator)
+		{
+			this.separator = separator;
+			return this;
+		}
+
+		/**
+		 * Set the quotation mark of the fields, the default is the double
+		 * quotation mark.
+		 *
+		 * @param quote
+		 *            the quotation mark
+		 * @return this builder
+		 */
+		public Builder quote(char quote)
+		{
+			this.quote = quote;
+			return this;
+		}
+
+		/**
+		 * Set the separator of the rows, each character of it separates
+		 * rows and the empty rows are skipped. The default is
+		 * <code>"\r\n"</code>.
+		 *
+		 * @param recordSeparator
+		 *            the separator of the rows
+		 * @return this builder
+		 */
+		public Builder recordSeparator(String recordSeparator)
+		{
+			this.recordSeparator = recordSeparator;
+			return this;
+		}
+
+		/**
+		 * Set the character set, the default is the default character set
+		 * of the platform.
+		 *
+		 * @param charset
+		 *            the character set
+		 * @return this builder
+		 */
+		public Builder charset(Charset charset)
+		{
+			this.charset = charset;
+			return this;
+		}
+
+		/**
+		 * Set the state that whether the first row is the header of titles,
+		 * the default is <tt>false</tt>.
+		 *
+		 * @param header
+		 *            <tt>true</tt> if the first row is the header
+		 * @return this builder
+		 */
+		public Builder header(boolean header)
+		{
+			this.header = header;
+			return this;
+		}
+
+		/**
+		 * Set the state that whether the leading and trailing white spaces of
+		 * the fields are removed, the default is <tt>false</tt>.
+		 *
+		 * @param trim
+		 *            <tt>true</tt> if the fields are trimmed
+		 * @return this builder
+		 */
+		public Builder trim(boolean trim)
+		{
+			this.trim = trim;
+			return this;
+		}
+
+		/**
+		 * Set the size of the buffers in bytes and characters, the default
+		 * is 16384.
+		 *
+		 * @param bufferSize
+		 *            the size of the buffers
+		 * @return this builder
+		 */
+		public Builder bufferSize(int bufferSize)
+		{
+			this.bufferSize = bufferSize;
+			return this;
+		}
+
+		/**
+		 * Build the format.
+		 *
+		 * @return the format
+		 * @throws IllegalArgumentException
+		 *             if the settings are inconsistent.
+		 */
+		public CSVFormat build()
+		{
+			if (charset == null)
+				throw new IllegalArgumentException("The charset is null.");
+			if (recordSeparator == null || recordSeparator.isEmpty())
+				throw new IllegalArgumentException(
+						"The record separator is empty.");
+			if (recordSeparator.indexOf(separator) >= 0
+					|| recordSeparator.indexOf(quote) >= 0)
+				throw new IllegalArgumentException(
+						String.format(
+								"The record separator \"%s\" contains the separator '%c' or the quotation mark '%c'.",
+								recordSeparator, separator, quote));
+			if (separator == quote)
+				throw new IllegalArgumentException(String.format(
+						"The separator and the quotation mark are both '%c'.",
+						separator));
+			if (bufferSize < 16)
+				throw new IllegalArgumentException(String.format(
+						"The buffer size(%d) is less than 16.", bufferSize));
+			return new CSVFormat(this);
+		}
+	}
+
+	/**
+	 * The buffers of the reads of a thread.
+	 */
+	private static final class Scratch
+	{
+		/**
+		 * The byte buffer.
+		 */
+		final ByteBuffer		bytes;
+		/**
+		 * The character buffer.
+		 */
+		final CharBuffer		chars;
+		/**
+		 * The decoder of the character set.
+		 */
+		final CharsetDecoder	decoder;
+		/**
+		 * The builder of the content.
+		 */
+		StringBuilder			content;
+
+		/**
+		 * Construct an instance of scratch buffers.
+		 *
+		 * @param charset
+		 *            the character set
+		 * @param bufferSize
+		 *            the size of the buffers
+		 */
+		Scratch(Charset charset, int bufferSize)
+		{
+			bytes = ByteBuffer.allocate(bufferSize);
+			chars = CharBuffer.allocate(bufferSize);
+			decoder = charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			content = new StringBuilder(bufferSize);
+		}
+	}
+
+	/**
+	 * The maximum capacity of a content builder retained after a read.
+	 */
+	public static final int				MAX_RETAINED	= 1 << 20;
+	/**
+	 * The default format: comma separated, double quoted, the rows separated
+	 * by carriage returns or line feeds, in the default character set and
+	 * without header.
+	 */
+	public static final CSVFormat		DEFAULT			= builder().build();
+
+	/**
+	 * The separator of the fields in a row.
+	 */
+	private final char					separator;
+	/**
+	 * The quotation mark of the fields.
+	 */
+	private final char					quote;
+	/**
+	 * The separator of the rows.
+	 */
+	private final String				recordSeparator;
+	/**
+	 * The character set.
+	 */
+	private final Charset				charset;
+	/**
+	 * The flag whether the first row is the header.
+	 */
+	private final boolean				header;
+	/**
+	 * The flag whether the fields are trimmed.
+	 */
+	private final boolean				trim;
+	/**
+	 * The size of the buffers.
+	 */
+	private final int					bufferSize;
+	/**
+	 * The reader of the settings, which is never modified.
+	 */
+	private final CSVReader				reader;
+	/**
+	 * The buffers of the reads of each thread.
+	 */
+	private final ThreadLocal<Scratch>	scratch;
+
+	/**
+	 * Construct an instance of format from the builder.
+	 *
+	 * @param builder
+	 *            the builder
+	 */
+	private CSVFormat(Builder builder)
+	{
+		this.separator = builder.separator;
+		this.quote = builder.quote;
+		this.recordSeparator = builder.recordSeparator;
+		this.charset = builder.charset;
+		this.header = builder.header;
+		this.trim = builder.trim;
+		this.bufferSize = builder.bufferSize;
+		this.reader = newReader();
+		this.scratch = ThreadLocal.withInitial(() -> new Scratch(charset,
+				bufferSize));
+	}
+
+	/**
+	 * Returns a new builder with the default settings.
+	 *
+	 * @return the builder
+	 */
+	public static Builder builder()
+	{
+		return new Builder();
+	}
+
+	/**
+	 * Returns a new builder with the settings of this format.
+	 *
+	 * @return the builder
+	 */
+	public Builder toBuilder()
+	{
+		return builder().separator(separator).quote(quote)
+				.recordSeparator(recordSeparator).charset(charset)
+				.header(header).trim(trim).bufferSize(bufferSize);
+	}
+
+	/**
+	 * Returns a new reader of the settings of this format, which can be
+	 * configured further and is not shared.
+	 *
+	 * @return the reader
+	 */
+	public CSVReader newReader()
+	{
+		CSVReader reader = new CSVReader(charset, header);
+		reader.setSeparator(separator);
+		reader.setQuote(quote);
+		reader.setDelimiter(recordSeparator);
+		reader.setTrim(trim);
+		reader.setBufferSize(bufferSize);
+		return reader;
+	}
+
+	/**
+	 * Read CSV data from the specified input stream, which is closed
+	 * afterwards.
+	 *
+	 * @param in
+	 *            the input stream
+	 * @return CSV instance, or <tt>null</tt> if the content is empty
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public CSV read(InputStream in) throws IOException
+	{
+		Scratch s = scratch.get();
+		try
+		{
+			return reader.parse(decode(in, s), header);
+		}
+		finally
+		{
+			in.close();
+			if (s.content.capacity() > MAX_RETAINED)
+				s.content = new StringBuilder(bufferSize);
+			else
+				s.content.setLength(0);
+		}
+	}
+
+	/**
+	 * Read CSV data from the specified file.
+	 *
+	 * @param file
+	 *            the file
+	 * @return CSV instance, or <tt>null</tt> if the content is empty
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public CSV read(File file) throws IOException
+	{
+		return read(new FileInputStream(file));
+	}
+
+	/**
+	 * Parse CSV data from the specified content.
+	 *
+	 * @param content
+	 *            the content
+	 * @return CSV instance, or <tt>null</tt> if the content is empty
+	 */
+	public CSV parse(String content)
+	{
+		return reader.parse(content, header);
+	}
+
+	/**
+	 * Parse a line to the fields.
+	 *
+	 * @param line
+	 *            the line
+	 * @return the fields
+	 */
+	public String[] parseLine(String line)
+	{
+		return reader.parseLine(line);
+	}
+
+	/**
+	 * Open a streaming row reader on the specified input stream.
+	 *
+	 * @param in
+	 *            the input stream
+	 * @return the row reader, which should be closed after use
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public CSVRowReader open(InputStream in) throws IOException
+	{
+		return reader.open(in);
+	}
+
+	/**
+	 * Open a streaming row reader on the specified file.
+	 *
+	 * @param file
+	 *            the file
+	 * @return the row reader, which should be closed after use
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public CSVRowReader open(File file) throws IOException
+	{
+		return reader.open(file);
+	}
+
+	/**
+	 * Decode the whole input stream with the buffers of the thread.
+	 *
+	 * @param in
+	 *            the input stream
+	 * @param s
+	 *            the buffers of the thread
+	 * @return the content
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private static String decode(InputStream in, Scratch s) throws IOException
+	{
+		ByteBuffer bytes = s.bytes;
+		CharBuffer chars = s.chars;
+		CharsetDecoder decoder = s.decoder;
+		StringBuilder content = s.content;
+		decoder.reset();
+		bytes.clear();
+		boolean eof = false;
+		while (!eof)
+		{
+			int n = in.read(bytes.array(), bytes.position(), bytes.remaining());
+			if (n < 0)
+				eof = true;
+			else
+				bytes.position(bytes.position() + n);
+			bytes.flip();
+			CoderResult result;
+			do
+			{
+				chars.clear();
+				result = decoder.decode(bytes, chars, eof);
+				chars.flip();
+				content.append(chars);
+			}
+			while (result.isOverflow());
+			bytes.compact();
+		}
+		CoderResult result;
+		do
+		{
+			chars.clear();
+			result = decoder.flush(chars);
+			chars.flip();
+			content.append(chars);
+		}
+		while (result.isOverflow());
+		return content.toString();
+	}
+
+	/**
+	 * Get the separator of the fields in a row.
+	 *
+	 * @return the separator
+	 */
+	public char getSeparator()
+	{
+		return separator;
+	}
+
+	/**
+	 * Get the quotation mark of the fields.
+	 *
+	 * @return the quotation mark
+	 */
+	public char getQuote()
+	{
+		return quote;
+	}
+
+	/**
+	 * Get the separator of the rows.
+	 *
+	 * @return the separator of the rows
+	 */
+	public String getRecordSeparator()
+	{
+		return recordSeparator;
+	}
+
+	/**
+	 * Get the character set.
+	 *
+	 * @return the character set
+	 */
+	public Charset getCharset()
+	{
+		return charset;
+	}
+
+	/**
+	 * Returns the state that whether the first row is the header.
+	 *
+	 * @return <tt>true</tt> if the first row is the header
+	 */
+	public boolean isHeader()
+	{
+		return header;
+	}
+
+	/**
+	 * Returns the state that whether the fields are trimmed.
+	 *
+	 * @return <tt>true</tt> if the fields are trimmed
+	 */
+	public boolean isTrim()
+	{
+		return trim;
+	}
+
+	/**
+	 * Get the size of the buffers.
+	 *
+	 * @return the size of the buffers
+	 */
+	public int getBufferSize()
+	{
+		return bufferSize;
+	}
+
+	/**
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (!(obj instanceof CSVFormat))
+			return false;
+		CSVFormat f = (CSVFormat) obj;
+		return separator == f.separator && quote == f.quote
+				&& recordSeparator.equals(f.recordSeparator)
+				&& charset.equals(f.charset) && header == f.header
+				&& trim == f.trim && bufferSize == f.bufferSize;
+	}
+
+	/**
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode()
+	{
+		int h = separator;
+		h = 31 * h + quote;
+		h = 31 * h + recordSeparator.hashCode();
+		h = 31 * h + charset.hashCode();
+		h = 31 * h + (header ? 1 : 0);
+		h = 31 * h + (trim ? 1 : 0);
+		return 31 * h + bufferSize;
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString()
+	{
+		return String.format(
+				"CSVFormat[separator='%c', quote='%c', recordSeparator=\"%s\", charset=%s, header=%b, trim=%b]",
+				separator, quote, recordSeparator.replace("\r", "\\r")
+						.replace("\n", "\\n"), charset, header, trim);
+	}
+}
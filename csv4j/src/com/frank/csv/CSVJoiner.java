@@ -0,0 +1,697 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVJoiner.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * The hash join between two CSV data sets on one or more key columns.
+ * <p>
+ * One side, which is called the build side, is loaded into a hash table, and
+ * the other side, which is called the probe side, is streamed through it. The
+ * build side is the right side for the {@link Type#LEFT} and the
+ * {@link Type#SEMI} joins, and the smaller side for the {@link Type#INNER}
+ * join of two {@link CSV} instances. When the hash table exceeds the memory
+ * budget, both sides are partitioned by the key into temporary files and the
+ * partitions are joined one by one (grace hash join), in which case the order
+ * of the joined rows follows the partitions instead of the probe side.
+ * </p>
+ * <p>
+ * The joined rows contain the fields of the left row followed by the non-key
+ * fields of the right row. The right fields are <tt>null</tt> if a row of
+ * the {@link Type#LEFT} join has no match. The {@link Type#SEMI} join returns
+ * the left rows which have at least one match, each of them once.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class CSVJoiner
+{
+	/**
+	 * The types of join.
+	 */
+	public static enum Type
+	{
+		/**
+		 * The rows which have matches on both sides.
+		 */
+		INNER,
+		/**
+		 * All the left rows, with the matched right rows if any.
+		 */
+		LEFT,
+		/**
+		 * The left rows which have matches on the right side.
+		 */
+		SEMI
+	}
+
+	/**
+	 * The maximum depth of the recursive partitioning.
+	 */
+	private static final int	MAX_DEPTH	= 4;
+
+	/**
+	 * The source of rows.
+	 */
+	private static interface Source
+	{
+		/**
+		 * Returns the next row.
+		 *
+		 * @return the next row, or <tt>null</tt> if no more rows
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		String[] next() throws IOException;
+	}
+
+	/**
+	 * The type of join.
+	 */
+	protected final Type		type;
+	/**
+	 * The key titles of the left side, or <tt>null</tt> if joined by indices.
+	 */
+	protected final String[]	leftTitles;
+	/**
+	 * The key titles of the right side, or <tt>null</tt> if joined by
+	 * indices.
+	 */
+	protected final String[]	rightTitles;
+	/**
+	 * The key indices of the left side, or <tt>null</tt> if joined by titles.
+	 */
+	protected final int[]		leftColumns;
+	/**
+	 * The key indices of the right side, or <tt>null</tt> if joined by
+	 * titles.
+	 */
+	protected final int[]		rightColumns;
+	/**
+	 * The memory budget of the hash table in bytes.
+	 */
+	protected long				memoryBudget	= 64L << 20;
+	/**
+	 * The amount of partitions when the build side is spilled.
+	 */
+	protected int				partitions		= 16;
+	/**
+	 * The directory of the temporary files, or <tt>null</tt> for the default
+	 * temporary directory.
+	 */
+	protected File				directory;
+
+	/**
+	 * Construct an instance of joiner on the key columns with the same titles
+	 * on both sides.
+	 *
+	 * @param type
+	 *            the type of join
+	 * @param keys
+	 *            the titles of the key columns
+	 */
+	public CSVJoiner(Type type, String... keys)
+	{
+		this(type, keys, keys);
+	}
+
+	/**
+	 * Construct an instance of joiner on the key columns specified by titles.
+	 *
+	 * @param type
+	 *            the type of join
+	 * @param leftKeys
+	 *            the titles of the left key columns
+	 * @param rightKeys
+	 *            the titles of the right key columns
+	 */
+	public CSVJoiner(Type type, String[] leftKeys, String[] rightKeys)
+	{
+		check(leftKeys.length, rightKeys.length);
+		this.type = type;
+		this.leftTitles = leftKeys.clone();
+		this.rightTitles = rightKeys.clone();
+		this.leftColumns = null;
+		this.rightColumns = null;
+	}
+
+	/**
+	 * Construct an instance of joiner on the key columns specified by indices.
+	 *
+	 * @param type
+	 *            the type of join
+	 * @param leftKeys
+	 *            the indices of the left key columns
+	 * @param rightKeys
+	 *            the indices of the right key columns
+	 */
+	public CSVJoiner(Type type, int[] leftKeys, int[] rightKeys)
+	{
+		check(leftKeys.length, rightKeys.length);
+		this.type = type;
+		this.leftTitles = null;
+		this.rightTitles = null;
+		this.leftColumns = leftKeys.clone();
+		this.rightColumns = rightKeys.clone();
+	}
+
+	/**
+	 * Check the amount of the key columns.
+	 *
+	 * @param left
+	 *            the amount of the left key columns
+	 * @param right
+	 *            the amount of the right key columns
+	 */
+	private static void check(int left, int right)
+	{
+		if (left == 0 || left != right)
+			throw new IllegalArgumentException(String.format(
+					"Illegal key columns: %d left keys and %d right keys.",
+					left, right));
+	}
+
+	/**
+	 * Join two CSV data sets.
+	 *
+	 * @param left
+	 *            the left CSV data
+	 * @param right
+	 *            the right CSV data
+	 * @return the joined CSV data
+	 * @throws IOException
+	 *             if an I/O error occurs while spilling.
+	 */
+	public CSV join(final CSV left, final CSV right) throws IOException
+	{
+		int[] leftKeys = leftColumns != null ? leftColumns : indices(left,
+				leftTitles);
+		int[] rightKeys = rightColumns != null ? rightColumns : indices(right,
+				rightTitles);
+		int[] rest = rest(right.columns(), rightKeys);
+		final int width = type == Type.SEMI ? left.columns() : left
+				.columns() + rest.length;
+		final List<String[]> rows = new ArrayList<String[]>();
+		CSVRowHandler out = new CSVRowHandler() {
+			public void handle(String[] row)
+			{
+				rows.add(type != Type.SEMI && row.length == width ? row
+						: Arrays.copyOf(row, width));
+			}
+		};
+		boolean swap = type == Type.INNER && left.rows() < right.rows();
+		if (swap)
+			join(source(left), source(right), leftKeys, rightKeys, rest,
+					left.columns(), true, out, 0);
+		else
+			join(source(right), source(left), rightKeys, leftKeys, rest,
+					left.columns(), false, out, 0);
+		String[] titles = null;
+		if (left.isTitled() && (type == Type.SEMI || right.isTitled()))
+			titles = titles(left.getTitles(), type == Type.SEMI ? null : right
+					.getTitles(), rest);
+		return new CSV(width, titles, rows.toArray(new String[rows.size()][]));
+	}
+
+	/**
+	 * Join two streams of rows. The left side is streamed and the right side
+	 * is loaded into the hash table.
+	 *
+	 * @param left
+	 *            the left row reader, which is read to the end but not closed
+	 * @param right
+	 *            the right row reader, which is read to the end but not
+	 *            closed
+	 * @param out
+	 *            the handler of the joined rows
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void join(final CSVRowReader left, final CSVRowReader right,
+			CSVRowHandler out) throws IOException
+	{
+		int[] leftKeys = leftColumns != null ? leftColumns : RowKey.indices(
+				left, leftTitles);
+		int[] rightKeys = rightColumns != null ? rightColumns : RowKey
+				.indices(right, rightTitles);
+		final String[] first = right.isTitled() ? null : right.next();
+		int rightWidth = right.isTitled() ? right.getTitles().length
+				: first == null ? 0 : first.length;
+		int leftWidth = left.isTitled() ? left.getTitles().length : -1;
+		Source build = new Source() {
+			private boolean	peeked	= first == null;
+
+			public String[] next() throws IOException
+			{
+				if (peeked)
+					return right.next();
+				peeked = true;
+				return first;
+			}
+		};
+		Source probe = new Source() {
+			public String[] next() throws IOException
+			{
+				return left.next();
+			}
+		};
+		join(build, probe, rightKeys, leftKeys, rest(rightWidth, rightKeys),
+				leftWidth, false, out, 0);
+	}
+
+	/**
+	 * Returns the titles of the joined rows.
+	 *
+	 * @param left
+	 *            the left titles
+	 * @param right
+	 *            the right titles, or <tt>null</tt> for the semi join
+	 * @param rest
+	 *            the indices of the right non-key columns
+	 * @return the joined titles
+	 */
+	private static String[] titles(String[] left, String[] right, int[] rest)
+	{
+		if (right == null)
+			return left.clone();
+		String[] titles = new String[left.length + rest.length];
+		System.arraycopy(left, 0, titles, 0, left.length);
+		for (int i = 0; i < rest.length; i++)
+			titles[left.length + i] = right[rest[i]];
+		return titles;
+	}
+
+	/**
+	 * Returns the titles of the joined rows of two row readers.
+	 *
+	 * @param left
+	 *            the left row reader
+	 * @param right
+	 *            the right row reader
+	 * @return the joined titles
+	 */
+	public String[] titles(CSVRowReader left, CSVRowReader right)
+	{
+		int[] rightKeys = rightColumns != null ? rightColumns : RowKey
+				.indices(right, rightTitles);
+		return titles(left.getTitles(), type == Type.SEMI ? null : right
+				.getTitles(), rest(right.getTitles().length, rightKeys));
+	}
+
+	/**
+	 * Resolve the indices of the specified titles in the CSV data.
+	 *
+	 * @param csv
+	 *            the CSV data
+	 * @param titles
+	 *            the specified titles
+	 * @return the indices of the titles
+	 */
+	private static int[] indices(CSV csv, String[] titles)
+	{
+		int[] indices = new int[titles.length];
+		for (int i = 0; i < titles.length; i++)
+		{
+			indices[i] = csv.index(titles[i]);
+			if (indices[i] == -1)
+				throw new NoSuchElementException(String.format(
+						"There is no such title \"%s\" in current CSV data.",
+						titles[i]));
+		}
+		return indices;
+	}
+
+	/**
+	 * Returns the indices of the non-key columns.
+	 *
+	 * @param width
+	 *            the amount of columns
+	 * @param keys
+	 *            the indices of the key columns
+	 * @return the indices of the non-key columns
+	 */
+	private static int[] rest(int width, int[] keys)
+	{
+		boolean[] key = new boolean[width];
+		int count = width;
+		for (int k : keys)
+			if (k < width && !key[k])
+			{
+				key[k] = true;
+				count--;
+			}
+		int[] rest = new int[count];
+		for (int i = 0, j = 0; i < width; i++)
+			if (!key[i])
+				rest[j++] = i;
+		return rest;
+	}
+
+	/**
+	 * Returns the source of the rows of the CSV data.
+	 *
+	 * @param csv
+	 *            the CSV data
+	 * @return the source of rows
+	 */
+	private static Source source(final CSV csv)
+	{
+		return new Source() {
+			private int	row;
+
+			public String[] next()
+			{
+				return row < csv.rows() ? csv.getRow(row++) : null;
+			}
+		};
+	}
+
+	/**
+	 * Returns the source of the rows of the row file.
+	 *
+	 * @param in
+	 *            the input of the row file
+	 * @return the source of rows
+	 */
+	private static Source source(final RowFile.Input in)
+	{
+		return new Source() {
+			public String[] next() throws IOException
+			{
+				return in.read();
+			}
+		};
+	}
+
+	/**
+	 * Join the build side and the probe side.
+	 *
+	 * @param build
+	 *            the build side
+	 * @param probe
+	 *            the probe side
+	 * @param buildKeys
+	 *            the key indices of the build side
+	 * @param probeKeys
+	 *            the key indices of the probe side
+	 * @param rest
+	 *            the indices of the right non-key columns
+	 * @param leftWidth
+	 *            the amount of the left columns, or -1 if unknown
+	 * @param swap
+	 *            <tt>true</tt> if the build side is the left side
+	 * @param out
+	 *            the handler of the joined rows
+	 * @param depth
+	 *            the depth of partitioning
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private void join(Source build, Source probe, int[] buildKeys,
+			int[] probeKeys, int[] rest, int leftWidth, boolean swap,
+			CSVRowHandler out, int depth) throws IOException
+	{
+		HashMap<RowKey, List<String[]>> table = new HashMap<RowKey, List<String[]>>();
+		long size = 0;
+		String[] row;
+		while ((row = build.next()) != null)
+		{
+			RowKey key = RowKey.of(row, buildKeys);
+			List<String[]> rows = table.get(key);
+			if (rows == null)
+				table.put(key, rows = new ArrayList<String[]>(1));
+			rows.add(row);
+			size += CSV.sizeOf(row) + 64;
+			if (size > memoryBudget && depth < MAX_DEPTH)
+			{
+				spill(table, build, probe, buildKeys, probeKeys, rest,
+						leftWidth, swap, out, depth);
+				return;
+			}
+		}
+		while ((row = probe.next()) != null)
+		{
+			List<String[]> matches = table.get(RowKey.of(row, probeKeys));
+			if (type == Type.SEMI)
+			{
+				if (matches != null)
+					out.handle(row);
+			}
+			else if (matches == null)
+			{
+				if (type == Type.LEFT)
+					out.handle(combine(row, null, rest, leftWidth));
+			}
+			else
+				for (String[] match : matches)
+					out.handle(swap ? combine(match, row, rest, leftWidth)
+							: combine(row, match, rest, leftWidth));
+		}
+	}
+
+	/**
+	 * Partition both sides into temporary files and join the partitions one
+	 * by one.
+	 *
+	 * @param table
+	 *            the hash table of the build rows read so far
+	 * @param build
+	 *            the rest of the build side
+	 * @param probe
+	 *            the probe side
+	 * @param buildKeys
+	 *            the key indices of the build side
+	 * @param probeKeys
+	 *            the key indices of the probe side
+	 * @param rest
+	 *            the indices of the right non-key columns
+	 * @param leftWidth
+	 *            the amount of the left columns, or -1 if unknown
+	 * @param swap
+	 *            <tt>true</tt> if the build side is the left side
+	 * @param out
+	 *            the handler of the joined rows
+	 * @param depth
+	 *            the depth of partitioning
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private void spill(Map<RowKey, List<String[]>> table, Source build,
+			Source probe, int[] buildKeys, int[] probeKeys, int[] rest,
+			int leftWidth, boolean swap, CSVRowHandler out, int depth)
+			throws IOException
+	{
+		RowFile[] builds = new RowFile[partitions];
+		RowFile[] probes = new RowFile[partitions];
+		RowFile.Output[] outputs = new RowFile.Output[partitions];
+		try
+		{
+			for (int i = 0; i < partitions; i++)
+			{
+				builds[i] = new RowFile(directory, false);
+				probes[i] = new RowFile(directory, false);
+			}
+			for (int i = 0; i < partitions; i++)
+				outputs[i] = builds[i].openOutput();
+			for (Map.Entry<RowKey, List<String[]>> e : table.entrySet())
+			{
+				RowFile.Output output = outputs[partition(e.getKey(), depth)];
+				for (String[] row : e.getValue())
+					output.handle(row);
+			}
+			table.clear();
+			String[] row;
+			while ((row = build.next()) != null)
+				outputs[partition(RowKey.of(row, buildKeys), depth)]
+						.handle(row);
+			close(outputs);
+			for (int i = 0; i < partitions; i++)
+				outputs[i] = probes[i].openOutput();
+			while ((row = probe.next()) != null)
+				outputs[partition(RowKey.of(row, probeKeys), depth)]
+						.handle(row);
+			close(outputs);
+			for (int i = 0; i < partitions; i++)
+			{
+				if (probes[i].rows > 0
+						&& (builds[i].rows > 0 || type == Type.LEFT))
+				{
+					RowFile.Input b = builds[i].openInput();
+					RowFile.Input p = probes[i].openInput();
+					try
+					{
+						join(source(b), source(p), buildKeys, probeKeys, rest,
+								leftWidth, swap, out, depth + 1);
+					}
+					finally
+					{
+						b.close();
+						p.close();
+					}
+				}
+				builds[i].delete();
+				probes[i].delete();
+			}
+		}
+		finally
+		{
+			close(outputs);
+			for (int i = 0; i < partitions; i++)
+			{
+				if (builds[i] != null)
+					builds[i].delete();
+				if (probes[i] != null)
+					probes[i].delete();
+			}
+		}
+	}
+
+	/**
+	 * Close the outputs quietly.
+	 *
+	 * @param outputs
+	 *            the outputs
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private static void close(RowFile.Output[] outputs) throws IOException
+	{
+		for (int i = 0; i < outputs.length; i++)
+			if (outputs[i] != null)
+			{
+				RowFile.Output output = outputs[i];
+				outputs[i] = null;
+				output.close();
+			}
+	}
+
+	/**
+	 * Returns the partition of the key at the specified depth.
+	 *
+	 * @param key
+	 *            the key
+	 * @param depth
+	 *            the depth of partitioning
+	 * @return the partition index
+	 */
+	private int partition(RowKey key, int depth)
+	{
+		int h = key.hashCode() ^ (depth + 1) * 0x9E3779B9;
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return (h & 0x7fffffff) % partitions;
+	}
+
+	/**
+	 * Combine the left row and the right row.
+	 *
+	 * @param left
+	 *            the left row
+	 * @param right
+	 *            the right row, or <tt>null</tt> if no match
+	 * @param rest
+	 *            the indices of the right non-key columns
+	 * @param leftWidth
+	 *            the amount of the left columns, or -1 if unknown
+	 * @return the joined row
+	 */
+	private static String[] combine(String[] left, String[] right, int[] rest,
+			int leftWidth)
+	{
+		int width = leftWidth < 0 ? left.length : leftWidth;
+		String[] row = new String[width + rest.length];
+		System.arraycopy(left, 0, row, 0, Math.min(width, left.length));
+		if (right != null)
+			for (int i = 0; i < rest.length; i++)
+				if (rest[i] < right.length)
+					row[width + i] = right[rest[i]];
+		return row;
+	}
+
+	/**
+	 * Get the memory budget of the hash table in bytes.
+	 *
+	 * @return the memory budget
+	 */
+	public long getMemoryBudget()
+	{
+		return memoryBudget;
+	}
+
+	/**
+	 * Set the memory budget of the hash table in bytes, which is compared
+	 * with the estimated size of the build rows.
+	 *
+	 * @param memoryBudget
+	 *            the value of memory budget
+	 */
+	public void setMemoryBudget(long memoryBudget)
+	{
+		if (memoryBudget <= 0)
+			throw new IllegalArgumentException(String.format(
+					"The memory budget(%d) must be positive.", memoryBudget));
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Get the amount of partitions when the build side is spilled.
+	 *
+	 * @return the amount of partitions
+	 */
+	public int getPartitions()
+	{
+		return partitions;
+	}
+
+	/**
+	 * Set the amount of partitions when the build side is spilled.
+	 *
+	 * @param partitions
+	 *            the value of partitions
+	 */
+	public void setPartitions(int partitions)
+	{
+		if (partitions < 2)
+			throw new IllegalArgumentException(String.format(
+					"Illegal amount of partitions: %d.", partitions));
+		this.partitions = partitions;
+	}
+
+	/**
+	 * Get the directory of the temporary files.
+	 *
+	 * @return the directory, or <tt>null</tt> for the default temporary
+	 *         directory
+	 */
+	public File getDirectory()
+	{
+		return directory;
+	}
+
+	/**
+	 * Set the directory of the temporary files.
+	 *
+	 * @param directory
+	 *            the directory, or <tt>null</tt> for the default temporary
+	 *            directory
+	 */
+	public void setDirectory(File directory)
+	{
+		this.directory = directory;
+	}
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVMetrics.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * The metrics of one CSV read or write operation, which is reported to a
+ * {@link CSVMetricsListener}.
+ * <p>
+ * The time of an operation is split into stages. For reading, {@link Stage#IO}
+ * is the time blocked in the underlying input stream, {@link Stage#DECODE} is
+ * the time of decoding the bytes into characters, {@link Stage#TOKENIZE} is
+ * the time of splitting the content into rows and fields, and
+ * {@link Stage#BUILD} is the time of allocating and filling the CSV data. For
+ * writing, {@link Stage#IO} is the time blocked in the underlying output
+ * stream and {@link Stage#FORMAT} is the time of formatting and encoding the
+ * fields.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class CSVMetrics
+{
+	/**
+	 * The stages of CSV reading and writing.
+	 */
+	public static enum Stage
+	{
+		/**
+		 * Blocked in the underlying stream.
+		 */
+		IO,
+		/**
+		 * Decoding the bytes into characters.
+		 */
+		DECODE,
+		/**
+		 * Splitting the content into rows and fields.
+		 */
+		TOKENIZE,
+		/**
+		 * Allocating and filling the CSV data.
+		 */
+		BUILD,
+		/**
+		 * Formatting and encoding the fields.
+		 */
+		FORMAT
+	}
+
+	/**
+	 * The amount of bytes read or written.
+	 */
+	protected long			bytes;
+	/**
+	 * The amount of characters read or written.
+	 */
+	protected long			chars;
+	/**
+	 * The amount of data rows, the title row is not counted.
+	 */
+	protected long			rows;
+	/**
+	 * The amount of fields in the data rows.
+	 */
+	protected long			fields;
+	/**
+	 * The amount of quoted fields.
+	 */
+	protected long			quotedFields;
+	/**
+	 * The amount of rows whose amount of fields differs from the columns.
+	 */
+	protected long			malformedRows;
+	/**
+	 * The time of each stage in nanoseconds.
+	 */
+	protected final long[]	nanos	= new long[Stage.values().length];
+	/**
+	 * The total time in nanoseconds.
+	 */
+	protected long			totalNanos;
+
+	/**
+	 * Returns the amount of bytes read or written.
+	 *
+	 * @return the bytes
+	 */
+	public long getBytes()
+	{
+		return bytes;
+	}
+
+	/**
+	 * Returns the amount of characters read or written.
+	 *
+	 * @return the characters
+	 */
+	public long getChars()
+	{
+		return chars;
+	}
+
+	/**
+	 * Returns the amount of data rows, the title row is not counted.
+	 *
+	 * @return the rows
+	 */
+	public long getRows()
+	{
+		return rows;
+	}
+
+	/**
+	 * Returns the amount of fields in the data rows.
+	 *
+	 * @return the fields
+	 */
+	public long getFields()
+	{
+		return fields;
+	}
+
+	/**
+	 * Returns the amount of quoted fields.
+	 *
+	 * @return the quoted fields
+	 */
+	public long getQuotedFields()
+	{
+		return quotedFields;
+	}
+
+	/**
+	 * Returns the amount of rows whose amount of fields differs from the
+	 * columns.
+	 *
+	 * @return the malformed rows
+	 */
+	public long getMalformedRows()
+	{
+		return malformedRows;
+	}
+
+	/**
+	 * Returns the time of the specified stage in nanoseconds.
+	 *
+	 * @param stage
+	 *            the specified stage
+	 * @return the time in nanoseconds
+	 */
+	public long getNanos(Stage stage)
+	{
+		return nanos[stage.ordinal()];
+	}
+
+	/**
+	 * Returns the total time in nanoseconds.
+	 *
+	 * @return the total time
+	 */
+	public long getTotalNanos()
+	{
+		return totalNanos;
+	}
+
+	/**
+	 * Returns the throughput of the operation.
+	 *
+	 * @return the bytes per second
+	 */
+	public double getBytesPerSecond()
+	{
+		return totalNanos == 0 ? 0 : bytes * 1e9 / totalNanos;
+	}
+
+	/**
+	 * Add time to the specified stage.
+	 *
+	 * @param stage
+	 *            the specified stage
+	 * @param nanos
+	 *            the time in nanoseconds
+	 */
+	void add(Stage stage, long nanos)
+	{
+		this.nanos[stage.ordinal()] += nanos;
+	}
+
+	/**
+	 * Accumulate the specified metrics into this metrics.
+	 *
+	 * @param metrics
+	 *            the specified metrics
+	 */
+	void add(CSVMetrics metrics)
+	{
+		bytes += metrics.bytes;
+		chars += metrics.chars;
+		rows += metrics.rows;
+		fields += metrics.fields;
+		quotedFields += metrics.quotedFields;
+		malformedRows += metrics.malformedRows;
+		for (int i = 0; i < nanos.length; i++)
+			nanos[i] += metrics.nanos[i];
+		totalNanos += metrics.totalNanos;
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append(String
+				.format("CSVMetrics[bytes=%d, chars=%d, rows=%d, fields=%d, quoted=%d, malformed=%d, total=%.3fms, %.1fMB/s",
+						bytes, chars, rows, fields, quotedFields,
+						malformedRows, totalNanos / 1e6,
+						getBytesPerSecond() / (1 << 20)));
+		for (Stage stage : Stage.values())
+			if (nanos[stage.ordinal()] > 0)
+				sb.append(String.format(", %s=%.3fms", stage,
+						nanos[stage.ordinal()] / 1e6));
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * The input stream which counts the bytes and the time blocked in the
+	 * underlying input stream.
+	 */
+	static class MeasuredInputStream extends FilterInputStream
+	{
+		/**
+		 * The metrics to record.
+		 */
+		private final CSVMetrics	metrics;
+
+		/**
+		 * Construct an instance of measured input stream.
+		 *
+		 * @param in
+		 *            the underlying input stream
+		 * @param metrics
+		 *            the metrics to record
+		 */
+		MeasuredInputStream(InputStream in, CSVMetrics metrics)
+		{
+			super(in);
+			this.metrics = metrics;
+		}
+
+		/**
+		 * @see java.io.FilterInputStream#read()
+		 */
+		public int read() throws IOException
+		{
+			long start = System.nanoTime();
+			int b = in.read();
+			metrics.add(Stage.IO, System.nanoTime() - start);
+			if (b != -1)
+				metrics.bytes++;
+			return b;
+		}
+
+		/**
+		 * @see java.io.FilterInputStream#read(byte[], int, int)
+		 */
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			long start = System.nanoTime();
+			int r = in.read(b, off, len);
+			metrics.add(Stage.IO, System.nanoTime() - start);
+			if (r > 0)
+				metrics.bytes += r;
+			return r;
+		}
+	}
+
+	/**
+	 * The output stream which counts the bytes and the time blocked in the
+	 * underlying output stream.
+	 */
+	static class MeasuredOutputStream extends FilterOutputStream
+	{
+		/**
+		 * The metrics to record.
+		 */
+		private final CSVMetrics	metrics;
+
+		/**
+		 * Construct an instance of measured output stream.
+		 *
+		 * @param out
+		 *            the underlying output stream
+		 * @param metrics
+		 *            the metrics to record
+		 */
+		MeasuredOutputStream(OutputStream out, CSVMetrics metrics)
+		{
+			super(out);
+			this.metrics = metrics;
+		}
+
+		/**
+		 * @see java.io.FilterOutputStream#write(int)
+		 */
+		public void write(int b) throws IOException
+		{
+			long start = System.nanoTime();
+			out.write(b);
+			metrics.add(Stage.IO, System.nanoTime() - start);
+			metrics.bytes++;
+		}
+
+		/**
+		 * @see java.io.FilterOutputStream#write(byte[], int, int)
+		 */
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			long start = System.nanoTime();
+			out.write(b, off, len);
+			metrics.add(Stage.IO, System.nanoTime() - start);
+			metrics.bytes += len;
+		}
+
+		/**
+		 * @see java.io.FilterOutputStream#flush()
+		 */
+		public void flush() throws IOException
+		{
+			long start = System.nanoTime();
+			out.flush();
+			metrics.add(Stage.IO, System.nanoTime() - start);
+		}
+
+		/**
+		 * @see java.io.FilterOutputStream#close()
+		 */
+		public void close() throws IOException
+		{
+			long start = System.nanoTime();
+			out.close();
+			metrics.add(Stage.IO, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * The writer which counts the characters written to the underlying
+	 * writer.
+	 */
+	static class MeasuredWriter extends FilterWriter
+	{
+		/**
+		 * The metrics to record.
+		 */
+		private final CSVMetrics	metrics;
+
+		/**
+		 * Construct an instance of measured writer.
+		 *
+		 * @param out
+		 *            the underlying writer
+		 * @param metrics
+		 *            the metrics to record
+		 */
+		MeasuredWriter(Writer out, CSVMetrics metrics)
+		{
+			super(out);
+			this.metrics = metrics;
+		}
+
+		/**
+		 * @see java.io.FilterWriter#write(int)
+		 */
+		public void write(int c) throws IOException
+		{
+			out.write(c);
+			metrics.chars++;
+		}
+
+		/**
+		 * @see java.io.FilterWriter#write(char[], int, int)
+		 */
+		public void write(char[] cbuf, int off, int len) throws IOException
+		{
+			out.write(cbuf, off, len);
+			metrics.chars += len;
+		}
+
+		/**
+		 * @see java.io.FilterWriter#write(java.lang.String, int, int)
+		 */
+		public void write(String str, int off, int len) throws IOException
+		{
+			out.write(str, off, len);
+			metrics.chars += len;
+		}
+	}
+}
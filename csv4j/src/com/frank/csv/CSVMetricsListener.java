@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVMetricsListener.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+/**
+ * The listener of the metrics of CSV reading and writing, which is installed
+ * by {@link CSVReader#setMetricsListener(CSVMetricsListener)} and
+ * {@link CSVWriter#setMetricsListener(CSVMetricsListener)}. The readers and
+ * writers do not measure anything if no listener is installed.
+ * <p>
+ * The listener is called on the thread which performs the operation, the
+ * implementation should be thread-safe if it is shared by readers or writers
+ * in different threads.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public interface CSVMetricsListener
+{
+	/**
+	 * Called when a read operation is completed.
+	 *
+	 * @param metrics
+	 *            the metrics of the read operation
+	 */
+	void readCompleted(CSVMetrics metrics);
+
+	/**
+	 * Called when a write operation is completed.
+	 *
+	 * @param metrics
+	 *            the metrics of the write operation
+	 */
+	void writeCompleted(CSVMetrics metrics);
+}
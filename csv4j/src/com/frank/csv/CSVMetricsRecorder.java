@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVMetricsRecorder.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+/**
+ * The in-memory metrics listener, which accumulates the metrics of all the
+ * read and write operations it receives. It can be shared by readers and
+ * writers in different threads.
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class CSVMetricsRecorder implements CSVMetricsListener
+{
+	/**
+	 * The accumulated metrics of the read operations.
+	 */
+	private CSVMetrics	reads	= new CSVMetrics();
+	/**
+	 * The accumulated metrics of the write operations.
+	 */
+	private CSVMetrics	writes	= new CSVMetrics();
+	/**
+	 * The amount of read operations.
+	 */
+	private long		readCount;
+	/**
+	 * The amount of write operations.
+	 */
+	private long		writeCount;
+
+	/**
+	 * @see com.frank.csv.CSVMetricsListener#readCompleted(com.frank.csv.CSVMetrics)
+	 */
+	public synchronized void readCompleted(CSVMetrics metrics)
+	{
+		readCount++;
+		reads.add(metrics);
+	}
+
+	/**
+	 * @see com.frank.csv.CSVMetricsListener#writeCompleted(com.frank.csv.CSVMetrics)
+	 */
+	public synchronized void writeCompleted(CSVMetrics metrics)
+	{
+		writeCount++;
+		writes.add(metrics);
+	}
+
+	/**
+	 * Returns a copy of the accumulated metrics of the read operations.
+	 *
+	 * @return the read metrics
+	 */
+	public synchronized CSVMetrics getReadMetrics()
+	{
+		CSVMetrics copy = new CSVMetrics();
+		copy.add(reads);
+		return copy;
+	}
+
+	/**
+	 * Returns a copy of the accumulated metrics of the write operations.
+	 *
+	 * @return the write metrics
+	 */
+	public synchronized CSVMetrics getWriteMetrics()
+	{
+		CSVMetrics copy = new CSVMetrics();
+		copy.add(writes);
+		return copy;
+	}
+
+	/**
+	 * Returns the amount of read operations.
+	 *
+	 * @return the amount of reads
+	 */
+	public synchronized long getReadCount()
+	{
+		return readCount;
+	}
+
+	/**
+	 * Returns the amount of write operations.
+	 *
+	 * @return the amount of writes
+	 */
+	public synchronized long getWriteCount()
+	{
+		return writeCount;
+	}
+
+	/**
+	 * Reset all the accumulated metrics.
+	 */
+	public synchronized void reset()
+	{
+		reads = new CSVMetrics();
+		writes = new CSVMetrics();
+		readCount = 0;
+		writeCount = 0;
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	public synchronized String toString()
+	{
+		return String.format("CSVMetricsRecorder[reads=%d %s, writes=%d %s]",
+				readCount, reads, writeCount, writes);
+	}
+}
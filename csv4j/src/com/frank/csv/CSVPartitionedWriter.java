@@ -0,0 +1,625 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVPartitionedWriter.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * The streaming writer which routes each row to one of many CSV files, the
+ * name of the file is chosen by a key function of the row. It is opened by
+ * {@link CSVWriter#openPartitioned(File, Function)}.
+ * <p>
+ * The rows are buffered per partition and written when the buffer of the
+ * partition is full, or when all the buffers exceed the memory budget. The
+ * titles are written once at the beginning of each file. At most
+ * {@link #getMaxOpenFiles()} files are kept open, the least recently
+ * written file is closed first and reopened for appending when it receives
+ * rows again. The files existing before are overwritten when they are
+ * opened for the first time.
+ * </p>
+ * <p>
+ * If an executor is set, the buffers of different partitions are written
+ * in parallel when all the buffers are flushed. The writer itself is not
+ * thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class CSVPartitionedWriter implements CSVRowHandler, Closeable,
+		Flushable
+{
+	/**
+	 * A partition file and its buffered rows.
+	 */
+	private static final class Partition
+	{
+		/**
+		 * The name of the partition file.
+		 */
+		final String				name;
+		/**
+		 * The partition file.
+		 */
+		final File					file;
+		/**
+		 * The buffered rows.
+		 */
+		final ArrayList<String[]>	buffer	= new ArrayList<String[]>();
+		/**
+		 * The estimated amount of heap bytes of the buffered rows.
+		 */
+		long						bytes;
+		/**
+		 * The amount of data rows routed to the partition.
+		 */
+		long						rows;
+		/**
+		 * The row writer of the file, or <tt>null</tt> if it is closed.
+		 */
+		CSVRowWriter				out;
+		/**
+		 * The flag whether the file has been created.
+		 */
+		boolean						created;
+
+		/**
+		 * Construct an instance of partition.
+		 *
+		 * @param name
+		 *            the name of the partition file
+		 * @param file
+		 *            the partition file
+		 */
+		Partition(String name, File file)
+		{
+			this.name = name;
+			this.file = file;
+		}
+
+		/**
+		 * Write the buffered rows and clear the buffer.
+		 *
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		void write() throws IOException
+		{
+			for (String[] row : buffer)
+				out.write(row);
+			buffer.clear();
+			buffer.trimToSize();
+		}
+	}
+
+	/**
+	 * The writer which formats the partition files.
+	 */
+	protected final CSVWriter						writer;
+	/**
+	 * The directory of the partition files.
+	 */
+	protected final File							directory;
+	/**
+	 * The function from a row to the name of its partition file.
+	 */
+	protected final Function<String[], String>		key;
+	/**
+	 * The titles written at the beginning of each file, or <tt>null</tt> if
+	 * the files are not titled.
+	 */
+	private String[]								titles;
+	/**
+	 * The partitions by the names of the files.
+	 */
+	private final HashMap<String, Partition>		partitions	= new HashMap<String, Partition>();
+	/**
+	 * The partitions whose files are open, in access order.
+	 */
+	private final LinkedHashMap<String, Partition>	open		= new LinkedHashMap<String, Partition>(
+																		16,
+																		0.75f,
+																		true);
+	/**
+	 * The maximum amount of open files.
+	 */
+	private int										maxOpenFiles	= 64;
+	/**
+	 * The maximum amount of buffered rows of a partition.
+	 */
+	private int										bufferSize		= 4096;
+	/**
+	 * The memory budget of all the buffered rows in bytes.
+	 */
+	private long									memoryBudget	= 64L << 20;
+	/**
+	 * The estimated amount of heap bytes of all the buffered rows.
+	 */
+	private long									buffered;
+	/**
+	 * The executor which writes the buffers in parallel, or <tt>null</tt> if
+	 * they are written in the current thread.
+	 */
+	private ExecutorService							executor;
+	/**
+	 * The amount of times the files are opened.
+	 */
+	private long									opens;
+	/**
+	 * The amount of data rows written.
+	 */
+	private long									rows;
+	/**
+	 * The flag for the writer whether it is closed.
+	 */
+	private boolean									closed;
+
+	/**
+	 * Construct an instance of partitioned writer.
+	 *
+	 * @param writer
+	 *            the writer which formats the partition files
+	 * @param directory
+	 *            the directory of the partition files
+	 * @param key
+	 *            the function from a row to the name of its partition file
+	 */
+	public CSVPartitionedWriter(CSVWriter writer, File directory,
+			Function<String[], String> key)
+	{
+		if (writer == null || directory == null || key == null)
+			throw new IllegalArgumentException(
+					"The writer, the directory and the key function must not be null.");
+		this.writer = writer;
+		this.directory = directory;
+		this.key = key;
+	}
+
+	/**
+	 * Route a row to the buffer of its partition.
+	 *
+	 * @param row
+	 *            the fields of the row
+	 * @throws IOException
+	 *             if an I/O error occurs while writing the buffers.
+	 */
+	public void write(String[] row) throws IOException
+	{
+		checkOpen();
+		String name = key.apply(row);
+		Partition partition = partitions.get(name);
+		if (partition == null)
+		{
+			partition = new Partition(name, file(name));
+			partitions.put(name, partition);
+		}
+		long size = CSV.sizeOf(row);
+		partition.buffer.add(row);
+		partition.bytes += size;
+		partition.rows++;
+		buffered += size;
+		rows++;
+		if (partition.buffer.size() >= bufferSize)
+		{
+			open(partition);
+			partition.write();
+			buffered -= partition.bytes;
+			partition.bytes = 0;
+		}
+		else if (buffered > memoryBudget)
+			drain();
+	}
+
+	/**
+	 * Route a row to the buffer of its partition.
+	 *
+	 * @see com.frank.csv.CSVRowHandler#handle(java.lang.String[])
+	 */
+	public void handle(String[] row) throws IOException
+	{
+		write(row);
+	}
+
+	/**
+	 * Write all the rows of the reader, the titles of the reader are written
+	 * to each file if it is titled.
+	 *
+	 * @param in
+	 *            the row reader
+	 * @return the amount of data rows written
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public long write(CSVRowReader in) throws IOException
+	{
+		if (in.isTitled())
+			setTitles(in.getTitles());
+		long count = 0;
+		String[] row;
+		while ((row = in.next()) != null)
+		{
+			write(row);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the partition file of the specified name.
+	 *
+	 * @param name
+	 *            the name of the partition file
+	 * @return the partition file
+	 */
+	private File file(String name)
+	{
+		if (name == null || name.isEmpty() || name.equals(".")
+				|| name.equals("..") || name.indexOf('/') >= 0
+				|| name.indexOf(File.separatorChar) >= 0)
+			throw new IllegalArgumentException(String.format(
+					"Invalid partition file name: %s.", name));
+		return new File(directory, name);
+	}
+
+	/**
+	 * Open the file of the partition, the least recently written files are
+	 * closed if too many files are open.
+	 *
+	 * @param partition
+	 *            the partition
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private void open(Partition partition) throws IOException
+	{
+		if (partition.out != null)
+		{
+			open.get(partition.name);
+			return;
+		}
+		Iterator<Partition> iterator = open.values().iterator();
+		while (open.size() >= maxOpenFiles)
+		{
+			Partition eldest = iterator.next();
+			iterator.remove();
+			CSVRowWriter out = eldest.out;
+			eldest.out = null;
+			out.close();
+		}
+		partition.out = writer.open(partition.file, partition.created);
+		opens++;
+		open.put(partition.name, partition);
+		if (!partition.created)
+		{
+			partition.created = true;
+			if (titles != null)
+				partition.out.write(titles);
+		}
+	}
+
+	/**
+	 * Write the buffers of all the partitions, in parallel if an executor is
+	 * set.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private void drain() throws IOException
+	{
+		List<Partition> pending = new ArrayList<Partition>();
+		for (Partition partition : partitions.values())
+			if (!partition.buffer.isEmpty())
+				pending.add(partition);
+		// the files of a batch are opened together, so none of them is
+		// closed while the batch is written
+		for (int from = 0; from < pending.size(); from += maxOpenFiles)
+		{
+			List<Partition> batch = pending.subList(from,
+					Math.min(from + maxOpenFiles, pending.size()));
+			for (Partition partition : batch)
+				open(partition);
+			if (executor == null || batch.size() == 1)
+				for (Partition partition : batch)
+					partition.write();
+			else
+				write(batch);
+			for (Partition partition : batch)
+			{
+				buffered -= partition.bytes;
+				partition.bytes = 0;
+			}
+		}
+	}
+
+	/**
+	 * Write the buffers of the open partitions by the executor.
+	 *
+	 * @param batch
+	 *            the open partitions
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private void write(List<Partition> batch) throws IOException
+	{
+		List<Future<Void>> futures = new ArrayList<Future<Void>>(batch.size());
+		try
+		{
+			for (final Partition partition : batch)
+				futures.add(executor.submit(() -> {
+					partition.write();
+					return null;
+				}));
+			for (Future<Void> future : futures)
+				future.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("The partitioned write is interrupted.", e);
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+		finally
+		{
+			for (Future<Void> future : futures)
+				future.cancel(true);
+		}
+	}
+
+	/**
+	 * Write the buffers of all the partitions and flush the open files.
+	 *
+	 * @see java.io.Flushable#flush()
+	 */
+	public void flush() throws IOException
+	{
+		checkOpen();
+		drain();
+		for (Partition partition : open.values())
+			partition.out.flush();
+	}
+
+	/**
+	 * Write the buffers of all the partitions and close the open files.
+	 *
+	 * @see java.io.Closeable#close()
+	 */
+	public void close() throws IOException
+	{
+		if (closed)
+			return;
+		closed = true;
+		IOException error = null;
+		try
+		{
+			drain();
+		}
+		catch (IOException e)
+		{
+			error = e;
+		}
+		for (Partition partition : open.values())
+			try
+			{
+				partition.out.close();
+				partition.out = null;
+			}
+			catch (IOException e)
+			{
+				if (error == null)
+					error = e;
+			}
+		open.clear();
+		if (error != null)
+			throw error;
+	}
+
+	/**
+	 * Check that the writer is not closed.
+	 */
+	private void checkOpen()
+	{
+		if (closed)
+			throw new IllegalStateException(
+					"The partitioned writer has been closed.");
+	}
+
+	/**
+	 * Get the titles written at the beginning of each file.
+	 *
+	 * @return the titles, or <tt>null</tt> if the files are not titled
+	 */
+	public String[] getTitles()
+	{
+		return titles == null ? null : titles.clone();
+	}
+
+	/**
+	 * Set the titles written at the beginning of each file, which should be
+	 * set before any row is written.
+	 *
+	 * @param titles
+	 *            the titles, or <tt>null</tt> if the files are not titled
+	 */
+	public void setTitles(String[] titles)
+	{
+		if (!partitions.isEmpty())
+			throw new IllegalStateException(
+					"The titles cannot be changed after rows are written.");
+		this.titles = titles == null ? null : titles.clone();
+	}
+
+	/**
+	 * Returns the names of the partition files.
+	 *
+	 * @return the names of the partition files
+	 */
+	public List<String> getPartitions()
+	{
+		return new ArrayList<String>(partitions.keySet());
+	}
+
+	/**
+	 * Returns the amount of data rows routed to the specified partition.
+	 *
+	 * @param name
+	 *            the name of the partition file
+	 * @return the amount of rows, or 0 if the partition does not exist
+	 */
+	public long getRows(String name)
+	{
+		Partition partition = partitions.get(name);
+		return partition == null ? 0 : partition.rows;
+	}
+
+	/**
+	 * Returns the amount of data rows routed to all the partitions.
+	 *
+	 * @return the amount of rows
+	 */
+	public long getRows()
+	{
+		return rows;
+	}
+
+	/**
+	 * Returns the amount of times the files are opened, including the
+	 * reopening after they are closed for the limit of open files.
+	 *
+	 * @return the amount of opens
+	 */
+	public long getOpens()
+	{
+		return opens;
+	}
+
+	/**
+	 * Returns the amount of files currently open.
+	 *
+	 * @return the amount of open files
+	 */
+	public int getOpenFiles()
+	{
+		return open.size();
+	}
+
+	/**
+	 * Get the maximum amount of open files.
+	 *
+	 * @return the maximum amount of open files
+	 */
+	public int getMaxOpenFiles()
+	{
+		return maxOpenFiles;
+	}
+
+	/**
+	 * Set the maximum amount of open files, the default is 64.
+	 *
+	 * @param maxOpenFiles
+	 *            the maximum amount of open files
+	 */
+	public void setMaxOpenFiles(int maxOpenFiles)
+	{
+		if (maxOpenFiles < 1)
+			throw new IllegalArgumentException(String.format(
+					"The maximum amount of open files(%d) must be positive.",
+					maxOpenFiles));
+		this.maxOpenFiles = maxOpenFiles;
+	}
+
+	/**
+	 * Get the maximum amount of buffered rows of a partition.
+	 *
+	 * @return the buffer size
+	 */
+	public int getBufferSize()
+	{
+		return bufferSize;
+	}
+
+	/**
+	 * Set the maximum amount of buffered rows of a partition, the default is
+	 * 4096.
+	 *
+	 * @param bufferSize
+	 *            the buffer size
+	 */
+	public void setBufferSize(int bufferSize)
+	{
+		if (bufferSize < 1)
+			throw new IllegalArgumentException(String.format(
+					"The buffer size(%d) must be positive.", bufferSize));
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Get the memory budget of all the buffered rows in bytes.
+	 *
+	 * @return the memory budget
+	 */
+	public long getMemoryBudget()
+	{
+		return memoryBudget;
+	}
+
+	/**
+	 * Set the memory budget of all the buffered rows in bytes, all the
+	 * buffers are written when it is exceeded. The default is 64MB.
+	 *
+	 * @param memoryBudget
+	 *            the memory budget
+	 */
+	public void setMemoryBudget(long memoryBudget)
+	{
+		if (memoryBudget <= 0)
+			throw new IllegalArgumentException(String.format(
+					"The memory budget(%d) must be positive.", memoryBudget));
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Returns the executor which writes the buffers in parallel.
+	 *
+	 * @return the executor, or <tt>null</tt> if the buffers are written in
+	 *         the current thread
+	 */
+	public ExecutorService getExecutor()
+	{
+		return executor;
+	}
+
+	/**
+	 * Set the executor which writes the buffers of different partitions in
+	 * parallel when all the buffers are written.
+	 *
+	 * @param executor
+	 *            the executor, or <tt>null</tt> to write the buffers in the
+	 *            current thread
+	 */
+	public void setExecutor(ExecutorService executor)
+	{
+		this.executor = executor;
+	}
+}
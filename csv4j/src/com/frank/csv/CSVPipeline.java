@@ -0,0 +1,597 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVPipeline.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * The streaming transformation from CSV rows to CSV rows, which connects a
+ * {@link CSVRowReader} to a {@link CSVRowHandler} without loading the whole
+ * data.
+ * <p>
+ * The stages are added by {@link #project(String...)},
+ * {@link #rename(String, String)}, {@link #map(String, Function)},
+ * {@link #filter(Predicate)} and their variants, and are applied to each row
+ * in the order they are added. The titles are transformed by the stages as
+ * well, the columns referred by titles are resolved against the titles
+ * produced by the previous stages. The dialect is changed by reading with a
+ * {@link CSVReader} and writing with a {@link CSVWriter} of different
+ * delimiters and charsets, see {@link #transform(File, CSVReader, File,
+ * CSVWriter)}.
+ * </p>
+ * <p>
+ * The memory use is bounded by one row, or by the pending chunks if an
+ * executor is set by {@link #setExecutor(ExecutorService)}. The stages are
+ * then applied by the executor in parallel and the rows are still written in
+ * the input order, so the functions of the stages must be thread-safe.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class CSVPipeline
+{
+	/**
+	 * The stage of a pipeline.
+	 */
+	private static interface Stage
+	{
+		/**
+		 * Resolve the stage against the input titles.
+		 *
+		 * @param titles
+		 *            the input titles, or <tt>null</tt> if untitled
+		 * @return the resolved stage
+		 */
+		Resolved resolve(String[] titles);
+	}
+
+	/**
+	 * The stage resolved against the input titles.
+	 */
+	private static interface Resolved
+	{
+		/**
+		 * Returns the output titles.
+		 *
+		 * @param titles
+		 *            the input titles, or <tt>null</tt> if untitled
+		 * @return the output titles, or <tt>null</tt> if untitled
+		 */
+		String[] titles(String[] titles);
+
+		/**
+		 * Apply the stage to a row.
+		 *
+		 * @param row
+		 *            the input row
+		 * @return the output row, or <tt>null</tt> if the row is dropped
+		 */
+		String[] apply(String[] row);
+	}
+
+	/**
+	 * The stages.
+	 */
+	private final List<Stage>	stages		= new ArrayList<Stage>();
+	/**
+	 * The executor of the stages, or <tt>null</tt> if the stages are applied
+	 * in the current thread.
+	 */
+	private ExecutorService		executor;
+	/**
+	 * The amount of lines in a chunk for the executor.
+	 */
+	private int					chunkSize	= 4096;
+
+	/**
+	 * Keep the specified columns in the specified order, the other columns
+	 * are dropped.
+	 *
+	 * @param titles
+	 *            the titles of the columns
+	 */
+	public void project(final String... titles)
+	{
+		stages.add(new Stage() {
+			public Resolved resolve(String[] input)
+			{
+				return projection(indices(input, titles));
+			}
+		});
+	}
+
+	/**
+	 * Keep the specified columns in the specified order, the other columns
+	 * are dropped.
+	 *
+	 * @param columns
+	 *            the indices of the columns
+	 */
+	public void project(final int... columns)
+	{
+		final int[] copy = columns.clone();
+		stages.add(new Stage() {
+			public Resolved resolve(String[] input)
+			{
+				return projection(copy);
+			}
+		});
+	}
+
+	/**
+	 * Rename a column.
+	 *
+	 * @param from
+	 *            the current title of the column
+	 * @param to
+	 *            the new title of the column
+	 */
+	public void rename(final String from, final String to)
+	{
+		stages.add(new Stage() {
+			public Resolved resolve(String[] input)
+			{
+				final int column = indices(input, from)[0];
+				return new Resolved() {
+					public String[] titles(String[] titles)
+					{
+						titles = titles.clone();
+						titles[column] = to;
+						return titles;
+					}
+
+					public String[] apply(String[] row)
+					{
+						return row;
+					}
+				};
+			}
+		});
+	}
+
+	/**
+	 * Map the fields of a column by the specified function. The missing
+	 * fields are passed to the function as <tt>null</tt>.
+	 *
+	 * @param title
+	 *            the title of the column
+	 * @param function
+	 *            the mapping function
+	 */
+	public void map(final String title, final Function<String, String> function)
+	{
+		stages.add(new Stage() {
+			public Resolved resolve(String[] input)
+			{
+				return mapping(indices(input, title)[0], function);
+			}
+		});
+	}
+
+	/**
+	 * Map the fields of a column by the specified function. The missing
+	 * fields are passed to the function as <tt>null</tt>.
+	 *
+	 * @param column
+	 *            the index of the column
+	 * @param function
+	 *            the mapping function
+	 */
+	public void map(final int column, final Function<String, String> function)
+	{
+		stages.add(new Stage() {
+			public Resolved resolve(String[] input)
+			{
+				return mapping(column, function);
+			}
+		});
+	}
+
+	/**
+	 * Map the whole rows by the specified function, the titles are not
+	 * changed. The function returns <tt>null</tt> to drop a row.
+	 *
+	 * @param function
+	 *            the mapping function
+	 */
+	public void map(final Function<String[], String[]> function)
+	{
+		stages.add(new Stage() {
+			public Resolved resolve(String[] input)
+			{
+				return new Resolved() {
+					public String[] titles(String[] titles)
+					{
+						return titles;
+					}
+
+					public String[] apply(String[] row)
+					{
+						return function.apply(row);
+					}
+				};
+			}
+		});
+	}
+
+	/**
+	 * Keep the rows accepted by the specified predicate.
+	 *
+	 * @param predicate
+	 *            the predicate of the rows
+	 */
+	public void filter(final Predicate<String[]> predicate)
+	{
+		map(row -> predicate.test(row) ? row : null);
+	}
+
+	/**
+	 * Keep the rows whose field of the specified column is accepted by the
+	 * specified predicate. The missing fields are passed to the predicate as
+	 * <tt>null</tt>.
+	 *
+	 * @param title
+	 *            the title of the column
+	 * @param predicate
+	 *            the predicate of the fields
+	 */
+	public void filter(final String title, final Predicate<String> predicate)
+	{
+		stages.add(new Stage() {
+			public Resolved resolve(String[] input)
+			{
+				final int column = indices(input, title)[0];
+				return new Resolved() {
+					public String[] titles(String[] titles)
+					{
+						return titles;
+					}
+
+					public String[] apply(String[] row)
+					{
+						return predicate.test(column < row.length ? row[column]
+								: null) ? row : null;
+					}
+				};
+			}
+		});
+	}
+
+	/**
+	 * Resolve the indices of the titles.
+	 *
+	 * @param input
+	 *            the input titles, or <tt>null</tt> if untitled
+	 * @param titles
+	 *            the titles to find
+	 * @return the indices
+	 */
+	private static int[] indices(String[] input, String... titles)
+	{
+		if (input == null)
+			throw new IllegalStateException(
+					"The current CSV data contains no titles.");
+		int[] indices = new int[titles.length];
+		search: for (int i = 0; i < titles.length; i++)
+		{
+			for (int j = 0; j < input.length; j++)
+				if (input[j].equals(titles[i]))
+				{
+					indices[i] = j;
+					continue search;
+				}
+			throw new NoSuchElementException(String.format(
+					"There is no such title \"%s\" in current CSV data.",
+					titles[i]));
+		}
+		return indices;
+	}
+
+	/**
+	 * Returns the resolved projection stage.
+	 *
+	 * @param columns
+	 *            the indices of the kept columns
+	 * @return the resolved stage
+	 */
+	private static Resolved projection(final int[] columns)
+	{
+		return new Resolved() {
+			public String[] titles(String[] titles)
+			{
+				return apply(titles);
+			}
+
+			public String[] apply(String[] row)
+			{
+				String[] result = new String[columns.length];
+				for (int i = 0; i < columns.length; i++)
+					if (columns[i] < row.length)
+						result[i] = row[columns[i]];
+				return result;
+			}
+		};
+	}
+
+	/**
+	 * Returns the resolved mapping stage.
+	 *
+	 * @param column
+	 *            the index of the mapped column
+	 * @param function
+	 *            the mapping function
+	 * @return the resolved stage
+	 */
+	private static Resolved mapping(final int column,
+			final Function<String, String> function)
+	{
+		return new Resolved() {
+			public String[] titles(String[] titles)
+			{
+				return titles;
+			}
+
+			public String[] apply(String[] row)
+			{
+				String[] result = row.length > column ? row.clone()
+						: Arrays.copyOf(row, column + 1);
+				result[column] = function.apply(result[column]);
+				return result;
+			}
+		};
+	}
+
+	/**
+	 * Resolve all the stages against the input titles.
+	 *
+	 * @param titles
+	 *            the input titles, or <tt>null</tt> if untitled
+	 * @return the resolved stages
+	 */
+	private Resolved[] resolve(String[] titles)
+	{
+		Resolved[] resolved = new Resolved[stages.size()];
+		for (int i = 0; i < resolved.length; i++)
+		{
+			resolved[i] = stages.get(i).resolve(titles);
+			if (titles != null)
+				titles = resolved[i].titles(titles);
+		}
+		return resolved;
+	}
+
+	/**
+	 * Returns the output titles of the resolved stages.
+	 *
+	 * @param resolved
+	 *            the resolved stages
+	 * @param titles
+	 *            the input titles
+	 * @return the output titles
+	 */
+	private static String[] titles(Resolved[] resolved, String[] titles)
+	{
+		for (Resolved stage : resolved)
+			titles = stage.titles(titles);
+		return titles;
+	}
+
+	/**
+	 * Apply the resolved stages to a row.
+	 *
+	 * @param resolved
+	 *            the resolved stages
+	 * @param row
+	 *            the input row
+	 * @return the output row, or <tt>null</tt> if the row is dropped
+	 */
+	private static String[] apply(Resolved[] resolved, String[] row)
+	{
+		for (int i = 0; i < resolved.length && row != null; i++)
+			row = resolved[i].apply(row);
+		return row;
+	}
+
+	/**
+	 * Transform the rows of the reader and pass them to the handler. The
+	 * transformed titles are passed to the handler first if the reader is
+	 * titled.
+	 *
+	 * @param in
+	 *            the row reader, which is read to the end but not closed
+	 * @param out
+	 *            the handler of the output rows
+	 * @return the amount of output data rows
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public long transform(final CSVRowReader in, CSVRowHandler out)
+			throws IOException
+	{
+		final Resolved[] resolved = resolve(in.isTitled() ? in.getTitles()
+				: null);
+		if (in.isTitled())
+			out.handle(titles(resolved, in.getTitles()));
+		long rows = 0;
+		if (executor == null)
+		{
+			String[] row;
+			while ((row = in.next()) != null)
+				if ((row = apply(resolved, row)) != null)
+				{
+					out.handle(row);
+					rows++;
+				}
+			return rows;
+		}
+		int pending = Runtime.getRuntime().availableProcessors() * 2;
+		ArrayDeque<Future<List<String[]>>> futures = new ArrayDeque<Future<List<String[]>>>();
+		try
+		{
+			while (true)
+			{
+				final List<String> lines = new ArrayList<String>(chunkSize);
+				String line;
+				while (lines.size() < chunkSize
+						&& (line = in.nextLine()) != null)
+					lines.add(line);
+				if (lines.isEmpty())
+					break;
+				futures.add(executor.submit(() -> {
+					List<String[]> result = new ArrayList<String[]>(lines
+							.size());
+					for (String s : lines)
+					{
+						String[] row = apply(resolved, in.parseLine(s));
+						if (row != null)
+							result.add(row);
+					}
+					return result;
+				}));
+				while (futures.size() > pending)
+					rows += write(futures.poll().get(), out);
+			}
+			while (!futures.isEmpty())
+				rows += write(futures.poll().get(), out);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("The transformation is interrupted.", e);
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+		finally
+		{
+			for (Future<?> future : futures)
+				future.cancel(true);
+		}
+		return rows;
+	}
+
+	/**
+	 * Pass the rows to the handler.
+	 *
+	 * @param rows
+	 *            the rows
+	 * @param out
+	 *            the handler
+	 * @return the amount of rows
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private static int write(List<String[]> rows, CSVRowHandler out)
+			throws IOException
+	{
+		for (String[] row : rows)
+			out.handle(row);
+		return rows.size();
+	}
+
+	/**
+	 * Transform the input file to the output file. The input is read with
+	 * the delimiter, the charset and the title flag of the reader, and the
+	 * output is written with the delimiter and the charset of the writer.
+	 *
+	 * @param input
+	 *            the input file
+	 * @param reader
+	 *            the CSV reader
+	 * @param output
+	 *            the output file
+	 * @param writer
+	 *            the CSV writer
+	 * @return the amount of output data rows
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public long transform(File input, CSVReader reader, File output,
+			CSVWriter writer) throws IOException
+	{
+		CSVRowReader in = reader.open(input);
+		try
+		{
+			CSVRowWriter out = writer.open(output);
+			try
+			{
+				return transform(in, out);
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Returns the executor of the stages.
+	 *
+	 * @return the executor, or <tt>null</tt> if the stages are applied in
+	 *         the current thread
+	 */
+	public ExecutorService getExecutor()
+	{
+		return executor;
+	}
+
+	/**
+	 * Set the executor of the stages. The lines are read in the current
+	 * thread and split into chunks, the chunks are parsed and transformed by
+	 * the executor, and the rows are written in the input order.
+	 *
+	 * @param executor
+	 *            the executor, or <tt>null</tt> to apply the stages in the
+	 *            current thread
+	 */
+	public void setExecutor(ExecutorService executor)
+	{
+		this.executor = executor;
+	}
+
+	/**
+	 * Returns the amount of lines in a chunk for the executor.
+	 *
+	 * @return the chunk size
+	 */
+	public int getChunkSize()
+	{
+		return chunkSize;
+	}
+
+	/**
+	 * Set the amount of lines in a chunk for the executor.
+	 *
+	 * @param chunkSize
+	 *            the chunk size
+	 */
+	public void setChunkSize(int chunkSize)
+	{
+		if (chunkSize < 1)
+			throw new IllegalArgumentException(String.format(
+					"The chunk size(%d) must be positive.", chunkSize));
+		this.chunkSize = chunkSize;
+	}
+}
@@ -10,14 +10,24 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The reader for a CSV file.
@@ -27,22 +37,82 @@ import java.util.Vector;
  */
 public class CSVReader
 {
+	/**
+	 * The policies when the memory budget is exceeded.
+	 */
+	public static enum BudgetPolicy
+	{
+		/**
+		 * Throw a {@link CSVBudgetExceededException}.
+		 */
+		FAIL,
+		/**
+		 * Spill the rows to temporary files and return a {@link SpilledCSV}.
+		 */
+		SPILL
+	}
+
 	/**
 	 * The buffer size for CSV data reading.
 	 */
-	protected int		bufferSize	= 10000;
+	protected int							bufferSize	= 10000;
 	/**
 	 * The delimiter for row data.
 	 */
-	protected String	delimiter	= "\r\n";
+	protected String						delimiter	= "\r\n";
+	/**
+	 * The separator of the fields in a row.
+	 */
+	protected char							separator	= ',';
+	/**
+	 * The quotation mark of the fields.
+	 */
+	protected char							quote		= '"';
+	/**
+	 * The flag whether the leading and trailing white spaces of the fields
+	 * are removed.
+	 */
+	protected boolean						trim;
 	/**
 	 * The character set of the CSV file.
 	 */
-	protected Charset	charset;
+	protected Charset						charset;
 	/**
 	 * The flag for the data whether it is titled.
 	 */
-	protected boolean	isTitled;
+	protected boolean						isTitled;
+	/**
+	 * The cache for the CSV data read from URLs, or <tt>null</tt> if the URL
+	 * reads are not cached.
+	 */
+	protected CSVURLCache					urlCache;
+	/**
+	 * The metrics listener, or <tt>null</tt> if the reads are not measured.
+	 */
+	protected volatile CSVMetricsListener	metricsListener;
+	/**
+	 * The flag for the parsing whether it uses the legacy
+	 * {@link StringTokenizer} path instead of the {@link CSVScanner}.
+	 */
+	protected boolean						legacyTokenizer;
+	/**
+	 * The memory budget of the reads in bytes, or 0 if unlimited.
+	 */
+	protected long							memoryBudget;
+	/**
+	 * The policy when the memory budget is exceeded.
+	 */
+	protected BudgetPolicy					budgetPolicy	= BudgetPolicy.FAIL;
+	/**
+	 * The directory of the spill files, or <tt>null</tt> for the default
+	 * temporary directory.
+	 */
+	protected File							spillDirectory;
+	/**
+	 * The flag whether {@link #parseLine(String)} is overridden, all the
+	 * lines are parsed by it then.
+	 */
+	private final boolean					lineParser		= overrides(getClass());
 
 	/**
 	 * Construct an instance of untitled CSVReader with default character set.
@@ -110,10 +180,15 @@ public class CSVReader
 	protected CSV read(InputStream in, Charset charset, boolean isTitled)
 			throws IOException
 	{
+		if (memoryBudget > 0)
+			return read(in, charset, isTitled, memoryBudget);
+		CSVMetricsListener listener = metricsListener;
+		if (listener != null)
+			return read(in, charset, isTitled, listener);
 		InputStreamReader reader = new InputStreamReader(in, charset);
 		char[] cbuf = new char[bufferSize];
 		int r = reader.read(cbuf);
-		StringBuffer sb = new StringBuffer(bufferSize);
+		StringBuilder sb = new StringBuilder(bufferSize);
 		while (r != -1)
 		{
 			sb.append(cbuf, 0, r);
@@ -123,6 +198,184 @@ public class CSVReader
 		return parse(sb.toString(), isTitled);
 	}
 
+	/**
+	 * Read CSV data from specified input stream row by row and estimate the
+	 * retained size of the cells as parsing goes. When the estimated size
+	 * exceeds the budget, the read fails or the rows are spilled to
+	 * temporary files according to the {@link #budgetPolicy}. The pending
+	 * line is charged against the budget as well, a line exceeding the rest
+	 * of the budget fails the read with either policy. The metrics are
+	 * reported to the {@link #metricsListener} if it is set.
+	 * 
+	 * @param in
+	 *            the specified input stream
+	 * @param charset
+	 *            the specified character set for the input stream
+	 * @param isTitled
+	 *            the flag for the data whether it is titled
+	 * @param budget
+	 *            the memory budget in bytes
+	 * @return CSV instance, or {@link SpilledCSV} instance if the rows are
+	 *         spilled
+	 * @throws IOException
+	 *             if an I/O error occurs, or the budget is exceeded with the
+	 *             {@link BudgetPolicy#FAIL} policy.
+	 */
+	private CSV read(InputStream in, Charset charset, boolean isTitled,
+			long budget) throws IOException
+	{
+		CSVMetricsListener listener = metricsListener;
+		CSVMetrics metrics = listener == null ? null : new CSVMetrics();
+		long start = metrics == null ? 0 : System.nanoTime();
+		if (metrics != null)
+			in = new CSVMetrics.MeasuredInputStream(in, metrics);
+		CSVRowReader reader = new CSVRowReader(this, in, charset, isTitled,
+				budget);
+		SpilledCSV spilled = null;
+		try
+		{
+			String[] titles = reader.isTitled() ? reader.getTitles() : null;
+			String[] line = titles == null ? next(reader, metrics) : null;
+			if (titles == null && line == null)
+				return null;
+			int columns = titles == null ? line.length : titles.length;
+			long size = titles == null ? 0 : CSV.sizeOf(titles) + 48L
+					* columns;
+			ArrayList<String[]> rows = new ArrayList<String[]>();
+			if (line == null)
+			{
+				reader.charged = size;
+				line = next(reader, metrics);
+			}
+			for (; line != null; line = next(reader, metrics))
+			{
+				if (metrics != null)
+					measure(metrics, line, columns);
+				if (line.length > columns)
+					throw new ArrayIndexOutOfBoundsException(String.format(
+							"The length of the row(%d) exceeds the columns size(%d).",
+							line.length, columns));
+				if (line.length < columns)
+					line = Arrays.copyOf(line, columns);
+				if (spilled != null)
+				{
+					spilled.append(line);
+					continue;
+				}
+				rows.add(line);
+				size += CSV.sizeOf(line) + 4;
+				reader.charged = size;
+				if (size <= budget)
+					continue;
+				if (budgetPolicy == BudgetPolicy.FAIL)
+					throw new CSVBudgetExceededException(budget, size,
+							rows.size());
+				// a chunk takes an eighth of the budget, the cache half of it
+				long rowSize = Math.max(size / rows.size(), 1);
+				int rowsPerChunk = (int) Math.max(1,
+						Math.min(Integer.MAX_VALUE, budget / 8 / rowSize));
+				spilled = new SpilledCSV(columns, titles != null,
+						rowsPerChunk, 4, spillDirectory);
+				if (titles != null)
+					spilled.setTitles(titles);
+				for (String[] row : rows)
+					spilled.append(row);
+				rows = null;
+				reader.charged = budget / 2;
+			}
+			CSV csv = spilled != null ? spilled : new CSV(columns, titles,
+					rows.toArray(new String[rows.size()][]));
+			if (metrics != null)
+			{
+				metrics.totalNanos = System.nanoTime() - start;
+				metrics.add(CSVMetrics.Stage.BUILD, metrics.totalNanos
+						- metrics.getNanos(CSVMetrics.Stage.IO)
+						- metrics.getNanos(CSVMetrics.Stage.TOKENIZE));
+				listener.readCompleted(metrics);
+			}
+			return csv;
+		}
+		catch (IOException | RuntimeException e)
+		{
+			if (spilled != null)
+				spilled.close();
+			throw e;
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * Read and parse the next row of the row reader, and record the metrics
+	 * of the tokenization.
+	 * 
+	 * @param reader
+	 *            the row reader
+	 * @param metrics
+	 *            the metrics to record, or <tt>null</tt> if not measured
+	 * @return the fields of the next row, or <tt>null</tt> if the end of the
+	 *         stream has been reached
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private String[] next(CSVRowReader reader, CSVMetrics metrics)
+			throws IOException
+	{
+		if (metrics == null)
+			return reader.next();
+		String line = reader.nextLine();
+		if (line == null)
+			return null;
+		long start = System.nanoTime();
+		String[] fields = split(line, metrics);
+		metrics.add(CSVMetrics.Stage.TOKENIZE, System.nanoTime() - start);
+		metrics.chars += line.length();
+		return fields;
+	}
+
+	/**
+	 * Read CSV data from specified input stream and report the metrics of
+	 * the operation to the specified listener.
+	 * 
+	 * @param in
+	 *            the specified input stream
+	 * @param charset
+	 *            the specified character set for the input stream
+	 * @param isTitled
+	 *            the flag for the data whether it is titled
+	 * @param listener
+	 *            the metrics listener
+	 * @return CSV instance
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private CSV read(InputStream in, Charset charset, boolean isTitled,
+			CSVMetricsListener listener) throws IOException
+	{
+		CSVMetrics metrics = new CSVMetrics();
+		long start = System.nanoTime();
+		InputStreamReader reader = new InputStreamReader(
+				new CSVMetrics.MeasuredInputStream(in, metrics), charset);
+		char[] cbuf = new char[bufferSize];
+		int r = reader.read(cbuf);
+		StringBuilder sb = new StringBuilder(bufferSize);
+		while (r != -1)
+		{
+			sb.append(cbuf, 0, r);
+			r = reader.read(cbuf);
+		}
+		reader.close();
+		metrics.chars = sb.length();
+		metrics.add(CSVMetrics.Stage.DECODE, System.nanoTime() - start
+				- metrics.getNanos(CSVMetrics.Stage.IO));
+		CSV csv = parse(sb.toString(), isTitled, metrics);
+		metrics.totalNanos = System.nanoTime() - start;
+		listener.readCompleted(metrics);
+		return csv;
+	}
+
 	/**
 	 * Read CSV data from specified input stream.
 	 * 
@@ -165,6 +418,299 @@ public class CSVReader
 		return read(new FileInputStream(new File(filename)));
 	}
 
+	/**
+	 * Open a streaming row reader on the specified input stream. The rows
+	 * are read one by one instead of being loaded into a {@link CSV}
+	 * instance.
+	 * 
+	 * @param in
+	 *            the specified input stream
+	 * @return the row reader, which should be closed after use
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public CSVRowReader open(InputStream in) throws IOException
+	{
+		return new CSVRowReader(this, in, charset, isTitled);
+	}
+
+	/**
+	 * Open a streaming row reader on the specified file.
+	 * 
+	 * @param file
+	 *            the CSV file
+	 * @return the row reader, which should be closed after use
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public CSVRowReader open(File file) throws IOException
+	{
+		return open(new FileInputStream(file));
+	}
+
+	/**
+	 * Open a streaming row reader on the specified file.
+	 * 
+	 * @param filename
+	 *            the CSV file name
+	 * @return the row reader, which should be closed after use
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public CSVRowReader open(String filename) throws IOException
+	{
+		return open(new File(filename));
+	}
+
+	/**
+	 * Returns a stream of the data rows of the specified file, the title row
+	 * is skipped if this reader is titled. The stream must be closed after
+	 * use to release the file.
+	 * <p>
+	 * The file is split by byte range at the record boundaries for parallel
+	 * streams, if the delimiter characters can be searched as bytes in the
+	 * charset of this reader. Otherwise the rows are read sequentially by a
+	 * {@link CSVRowReader}.
+	 * </p>
+	 * 
+	 * @param file
+	 *            the CSV file
+	 * @return the stream of the rows
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public Stream<String[]> stream(File file) throws IOException
+	{
+		if (!CSVFileSpliterator.supports(charset, delimiter)
+				|| !CSVScanner.supports(delimiter))
+			return open(file).stream();
+		FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ);
+		try
+		{
+			long start = isTitled ? CSVFileSpliterator.skipTitle(this,
+					channel, charset) : 0;
+			return StreamSupport.stream(
+					new CSVFileSpliterator(this, channel, charset, start,
+							channel.size()), false).onClose(() -> {
+				try
+				{
+					channel.close();
+				}
+				catch (IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+		catch (IOException | RuntimeException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Read CSV data from specified input stream into the off-heap storage.
+	 * The amount of columns is decided by the first row, the data should be
+	 * closed after use to release the memory.
+	 * 
+	 * @param in
+	 *            the specified input stream
+	 * @return off-heap CSV instance, or <tt>null</tt> if the content is
+	 *         empty
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public OffHeapCSV readOffHeap(InputStream in) throws IOException
+	{
+		CSVRowReader reader = open(in);
+		try
+		{
+			String[] line = reader.isTitled() ? reader.getTitles() : reader
+					.next();
+			if (line == null)
+				return null;
+			OffHeapCSV csv = new OffHeapCSV(line.length, reader.isTitled());
+			try
+			{
+				if (reader.isTitled())
+					csv.setTitles(line);
+				else
+					csv.append(line);
+				while ((line = reader.next()) != null)
+					csv.append(line);
+				return csv;
+			}
+			catch (IOException | RuntimeException e)
+			{
+				csv.close();
+				throw e;
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * Read CSV data from specified file into the off-heap storage.
+	 * 
+	 * @param file
+	 *            the CSV file
+	 * @return off-heap CSV instance, or <tt>null</tt> if the content is
+	 *         empty
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 * @see #readOffHeap(InputStream)
+	 */
+	public OffHeapCSV readOffHeap(File file) throws IOException
+	{
+		return readOffHeap(new FileInputStream(file));
+	}
+
+	/**
+	 * Infer the schema of the specified file from its first rows.
+	 * 
+	 * @param file
+	 *            the CSV file
+	 * @param sampleRows
+	 *            the amount of rows in the sample
+	 * @return the inferred schema
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 * @see CSVSchema#infer(CSVRowReader, int)
+	 */
+	public CSVSchema inferSchema(File file, int sampleRows) throws IOException
+	{
+		CSVRowReader in = open(file);
+		try
+		{
+			return CSVSchema.infer(in, sampleRows);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Read CSV data from specified input stream and convert the fields to
+	 * the typed storage of the specified schema while parsing. The title row
+	 * is read if this reader is titled. If the schema is titled as well, the
+	 * columns are bound by the titles, which may be in a different order,
+	 * otherwise the titles of the file are used and the amount of them must
+	 * equal the columns of the schema.
+	 * 
+	 * @param in
+	 *            the specified input stream
+	 * @param schema
+	 *            the schema of the data
+	 * @return typed CSV instance
+	 * @throws IOException
+	 *             if an I/O error occurs, or the titles of the file are
+	 *             incompatible with the schema.
+	 */
+	public TypedCSV read(InputStream in, CSVSchema schema) throws IOException
+	{
+		CSVRowReader reader = open(in);
+		try
+		{
+			String[] titles = reader.isTitled() ? reader.getTitles() : null;
+			int[] mapping = null;
+			if (titles != null && schema.isTitled())
+				mapping = mapping(titles, schema.getTitles());
+			else if (titles != null)
+			{
+				if (titles.length != schema.columns())
+					throw new IOException(String.format(
+							"The titles %s are incompatible with %d columns.",
+							Arrays.toString(titles), schema.columns()));
+				CSVSchema titled = new CSVSchema(schema.columns(), titles);
+				for (int i = 0; i < schema.columns(); i++)
+					titled.setType(i, schema.getType(i));
+				schema = titled;
+			}
+			TypedCSV csv = new TypedCSV(schema, 1024);
+			String[] line;
+			while ((line = reader.next()) != null)
+			{
+				if (mapping != null)
+				{
+					String[] row = new String[mapping.length];
+					for (int i = 0; i < mapping.length; i++)
+						if (mapping[i] < line.length)
+							row[i] = line[mapping[i]];
+					line = row;
+				}
+				csv.append(line);
+			}
+			csv.trimToSize();
+			return csv;
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * Returns the mapping from the columns of a titled schema to the columns
+	 * of a file whose titles are in a different order.
+	 * 
+	 * @param titles
+	 *            the titles of the file
+	 * @param expected
+	 *            the titles of the schema
+	 * @return the column of the file of each column of the schema, or
+	 *         <tt>null</tt> if the titles are in the same order
+	 * @throws IOException
+	 *             if the titles of the file are incompatible.
+	 */
+	private static int[] mapping(String[] titles, String[] expected)
+			throws IOException
+	{
+		if (Arrays.equals(titles, expected))
+			return null;
+		Map<String, Integer> index = new HashMap<String, Integer>(
+				titles.length * 2);
+		for (int i = 0; i < titles.length; i++)
+			index.put(titles[i], i);
+		int[] mapping = new int[expected.length];
+		boolean compatible = titles.length == expected.length
+				&& index.size() == titles.length;
+		for (int i = 0; compatible && i < expected.length; i++)
+		{
+			Integer column = index.get(expected[i]);
+			compatible = column != null;
+			if (compatible)
+				mapping[i] = column;
+		}
+		if (compatible)
+			return mapping;
+		throw new IOException(String.format(
+				"The titles %s are incompatible with the schema %s.",
+				Arrays.toString(titles), Arrays.toString(expected)));
+	}
+
+	/**
+	 * Read CSV data from specified file and convert the fields to the typed
+	 * storage of the specified schema while parsing.
+	 * 
+	 * @param file
+	 *            the CSV file
+	 * @param schema
+	 *            the schema of the data
+	 * @return typed CSV instance
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public TypedCSV read(File file, CSVSchema schema) throws IOException
+	{
+		return read(new FileInputStream(file), schema);
+	}
+
 	/**
 	 * Read CSV data from specified URL. The connection will be made according
 	 * to system proxy.
@@ -223,12 +769,43 @@ public class CSVReader
 	{
 		URLConnection urlc = proxy == null ? url.openConnection() : url
 				.openConnection(proxy);
-		if (!urlc.getContentType().equals("text/csv"))
+		urlc.setReadTimeout(timeout);
+		if (urlCache != null && memoryBudget <= 0
+				&& urlc instanceof HttpURLConnection)
+			return urlCache.read(this, (HttpURLConnection) urlc);
+		checkContentType(urlc);
+		return read(urlc.getInputStream(), charset(urlc), isTitled);
+	}
+
+	/**
+	 * Check the content type of the response.
+	 * 
+	 * @param urlc
+	 *            the connection
+	 * @throws IllegalArgumentException
+	 *             if the content type is not "text/csv"
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	protected void checkContentType(URLConnection urlc) throws IOException
+	{
+		if (!"text/csv".equals(urlc.getContentType()))
 			throw new IllegalArgumentException(
 					String.format(
 							"Illegal content type: The response content type is \"%s\", not \"text/csv\" as expected.",
 							urlc.getContentType()));
-		urlc.setReadTimeout(timeout);
+	}
+
+	/**
+	 * Returns the character set of the response, or the character set of
+	 * this reader if it is not specified by the response.
+	 * 
+	 * @param urlc
+	 *            the connection
+	 * @return the character set
+	 */
+	protected Charset charset(URLConnection urlc)
+	{
 		Charset charset = null;
 		String contentEncoding = urlc.getContentEncoding();
 		if (contentEncoding != null)
@@ -240,8 +817,7 @@ public class CSVReader
 			{
 				e.printStackTrace();
 			}
-		return read(urlc.getInputStream(), charset == null ? this.charset
-				: charset, isTitled);
+		return charset == null ? this.charset : charset;
 	}
 
 	/**
@@ -323,13 +899,35 @@ public class CSVReader
 	 */
 	protected CSV parse(String s, boolean isTitled)
 	{
-		StringTokenizer st = new StringTokenizer(s, delimiter);
-		int rows = st.countTokens();
+		return parse(s, isTitled, null);
+	}
+
+	/**
+	 * Parse the CSV data according to the content string and record the
+	 * metrics.
+	 * 
+	 * @param s
+	 *            the content string
+	 * @param isTitled
+	 *            the flag for the data whether it is titled
+	 * @param metrics
+	 *            the metrics to record, or <tt>null</tt> if not measured
+	 * @return CSV instance
+	 */
+	protected CSV parse(String s, boolean isTitled, CSVMetrics metrics)
+	{
+		long start = metrics == null ? 0 : System.nanoTime();
+		long tokenize = 0;
+		boolean legacy = legacyTokenizer || !CSVScanner.supports(delimiter);
+		StringTokenizer st = legacy ? new StringTokenizer(s, delimiter) : null;
+		int[] bounds = legacy ? null : CSVScanner.lines(s, delimiter);
+		int rows = legacy ? st.countTokens() : bounds.length / 2;
 		if (rows < 1)
 			return null;
 		else
 		{
-			String[] str = parseLine(st.nextToken());
+			String[] str = split(legacy ? st.nextToken() : s.substring(
+					bounds[0], bounds[1]), metrics);
 			CSV csv = new CSV(str.length, isTitled ? rows - 1 : rows, isTitled);
 			int row = 0;
 			int column;
@@ -337,23 +935,98 @@ public class CSVReader
 				csv.setTitles(str);
 			else
 			{
+				if (metrics != null)
+					measure(metrics, str, csv.columns);
 				for (column = 0; column < str.length; column++)
 					csv.setData(row, column, str[column]);
 				row++;
 			}
-			while (st.hasMoreTokens())
+			if (metrics != null)
+				tokenize = System.nanoTime() - start;
+			for (int line = 1; line < rows; line++)
 			{
-				str = parseLine(st.nextToken());
+				long t = metrics == null ? 0 : System.nanoTime();
+				str = split(legacy ? st.nextToken() : s.substring(
+						bounds[2 * line], bounds[2 * line + 1]), metrics);
+				if (metrics != null)
+				{
+					tokenize += System.nanoTime() - t;
+					measure(metrics, str, csv.columns);
+				}
 				for (column = 0; column < str.length; column++)
 					csv.setData(row, column, str[column]);
 				row++;
 			}
+			if (metrics != null)
+			{
+				metrics.add(CSVMetrics.Stage.TOKENIZE, tokenize);
+				metrics.add(CSVMetrics.Stage.BUILD, System.nanoTime() - start
+						- tokenize);
+			}
 			return csv;
 		}
 	}
 
 	/**
-	 * Parse one line data to the string array.
+	 * Record the metrics of a data row.
+	 * 
+	 * @param metrics
+	 *            the metrics to record
+	 * @param line
+	 *            the parsed data row
+	 * @param columns
+	 *            the amount of columns
+	 */
+	private static void measure(CSVMetrics metrics, String[] line, int columns)
+	{
+		metrics.rows++;
+		metrics.fields += line.length;
+		if (line.length != columns)
+			metrics.malformedRows++;
+	}
+
+	/**
+	 * Parse one line data by {@link #parseLine(String)} if it is overridden,
+	 * or by {@link #parseLine(String, CSVMetrics)} otherwise.
+	 * 
+	 * @param line
+	 *            the line data
+	 * @param metrics
+	 *            the metrics to record, or <tt>null</tt> if not measured
+	 * @return the string array
+	 */
+	private String[] split(String line, CSVMetrics metrics)
+	{
+		return metrics == null || lineParser ? parseLine(line) : parseLine(
+				line, metrics);
+	}
+
+	/**
+	 * Returns the state that whether the specified subclass overrides
+	 * {@link #parseLine(String)}.
+	 * 
+	 * @param type
+	 *            the class of the reader
+	 * @return <tt>true</tt> if it is overridden
+	 */
+	private static boolean overrides(Class<?> type)
+	{
+		for (Class<?> c = type; c != CSVReader.class; c = c.getSuperclass())
+			try
+			{
+				c.getDeclaredMethod("parseLine", String.class);
+				return true;
+			}
+			catch (NoSuchMethodException e)
+			{
+				// not declared by this class, try its superclass
+			}
+		return false;
+	}
+
+	/**
+	 * Parse one line data to the string array. The reads and the row readers
+	 * parse all the lines by this method if it is overridden.
 	 * 
 	 * @param line
 	 *            the line data
@@ -361,22 +1034,63 @@ public class CSVReader
 	 */
 	protected String[] parseLine(String line)
 	{
-		StringTokenizer st = new StringTokenizer(line, ",");
+		return parseLine(line, null);
+	}
+
+	/**
+	 * Parse one line data to the string array and record the amount of
+	 * quoted fields.
+	 * 
+	 * @param line
+	 *            the line data
+	 * @param metrics
+	 *            the metrics to record, or <tt>null</tt> if not measured
+	 * @return the string array
+	 */
+	protected String[] parseLine(String line, CSVMetrics metrics)
+	{
+		if (!legacyTokenizer)
+			return CSVScanner.split(line, separator, quote, trim, metrics);
+		StringTokenizer st = new StringTokenizer(line,
+				Character.toString(separator));
 		Vector<String> v = new Vector<String>(st.countTokens());
+		String q = Character.toString(quote);
 		while (st.hasMoreTokens())
 		{
 			String s = st.nextToken();
-			if (s.length() > 0 && s.charAt(0) == '"' && st.hasMoreTokens())
+			if (s.length() > 0 && s.charAt(0) == quote && st.hasMoreTokens())
 			{
 				String t = st.nextToken();
 				s = s.substring(1) + t.substring(0, t.length() - 1);
-				s = s.replaceAll("\"\"", "\"");
+				s = s.replace(q + q, q);
+				if (metrics != null)
+					metrics.quotedFields++;
 			}
-			v.add(s);
+			v.add(trim ? s.trim() : s);
 		}
 		return v.toArray(new String[v.size()]);
 	}
 
+	/**
+	 * Parse one line data and pass the fields to the handler one by one.
+	 * 
+	 * @param line
+	 *            the line data
+	 * @param handler
+	 *            the handler of the fields
+	 * @return the amount of fields
+	 */
+	int scanLine(String line, CSVScanner.FieldHandler handler)
+	{
+		if (!legacyTokenizer && !lineParser)
+			return CSVScanner.scan(line, separator, quote, trim, null,
+					handler);
+		String[] fields = parseLine(line);
+		for (int i = 0; i < fields.length; i++)
+			handler.field(i, fields[i]);
+		return fields.length;
+	}
+
 	/**
 	 * Get the current delimiter.
 	 * 
@@ -409,6 +1123,73 @@ public class CSVReader
 		this.delimiter = Character.toString(delimiter);
 	}
 
+	/**
+	 * Get the separator of the fields in a row.
+	 * 
+	 * @return the separator
+	 */
+	public char getSeparator()
+	{
+		return separator;
+	}
+
+	/**
+	 * Set the separator of the fields in a row, the default is the comma.
+	 * The separator should not be a character of the delimiter.
+	 * 
+	 * @param separator
+	 *            the value of separator
+	 */
+	public void setSeparator(char separator)
+	{
+		this.separator = separator;
+	}
+
+	/**
+	 * Get the quotation mark of the fields.
+	 * 
+	 * @return the quotation mark
+	 */
+	public char getQuote()
+	{
+		return quote;
+	}
+
+	/**
+	 * Set the quotation mark of the fields, the default is the double
+	 * quotation mark.
+	 * 
+	 * @param quote
+	 *            the value of quotation mark
+	 */
+	public void setQuote(char quote)
+	{
+		this.quote = quote;
+	}
+
+	/**
+	 * Returns the state that whether the leading and trailing white spaces
+	 * of the fields are removed.
+	 * 
+	 * @return <tt>true</tt> if the fields are trimmed
+	 */
+	public boolean isTrim()
+	{
+		return trim;
+	}
+
+	/**
+	 * Set the state that whether the leading and trailing white spaces of
+	 * the fields are removed after they are split and unescaped.
+	 * 
+	 * @param trim
+	 *            <tt>true</tt> if the fields are trimmed
+	 */
+	public void setTrim(boolean trim)
+	{
+		this.trim = trim;
+	}
+
 	/**
 	 * Get the buffer size for CSV data reading.
 	 * 
@@ -471,4 +1252,150 @@ public class CSVReader
 	{
 		this.isTitled = isTitled;
 	}
+
+	/**
+	 * Get the cache for the CSV data read from URLs.
+	 * 
+	 * @return the URL cache, or <tt>null</tt> if the URL reads are not cached
+	 */
+	public CSVURLCache getURLCache()
+	{
+		return urlCache;
+	}
+
+	/**
+	 * Set the cache for the CSV data read from URLs. The HTTP reads will send
+	 * conditional requests and reuse the cached data when the server responds
+	 * "304 Not Modified". The cache is bypassed while a memory budget is set,
+	 * because the budgeted reads may return {@link SpilledCSV} instances,
+	 * which are owned and closed by the callers.
+	 * 
+	 * @param urlCache
+	 *            the URL cache, or <tt>null</tt> to disable caching
+	 */
+	public void setURLCache(CSVURLCache urlCache)
+	{
+		this.urlCache = urlCache;
+	}
+
+	/**
+	 * Get the metrics listener.
+	 * 
+	 * @return the metrics listener, or <tt>null</tt> if the reads are not
+	 *         measured
+	 */
+	public CSVMetricsListener getMetricsListener()
+	{
+		return metricsListener;
+	}
+
+	/**
+	 * Set the metrics listener, which receives the metrics of each read
+	 * operation.
+	 * 
+	 * @param metricsListener
+	 *            the metrics listener, or <tt>null</tt> to stop measuring
+	 */
+	public void setMetricsListener(CSVMetricsListener metricsListener)
+	{
+		this.metricsListener = metricsListener;
+	}
+
+	/**
+	 * Returns the state that whether the parsing uses the legacy
+	 * {@link StringTokenizer} path.
+	 * 
+	 * @return <tt>true</tt> if the legacy path is used
+	 */
+	public boolean isLegacyTokenizer()
+	{
+		return legacyTokenizer;
+	}
+
+	/**
+	 * Set the state that whether the parsing uses the legacy
+	 * {@link StringTokenizer} path. Both paths produce the same result, the
+	 * legacy path is kept for comparison.
+	 * 
+	 * @param legacyTokenizer
+	 *            <tt>true</tt> to use the legacy path
+	 */
+	public void setLegacyTokenizer(boolean legacyTokenizer)
+	{
+		this.legacyTokenizer = legacyTokenizer;
+	}
+
+	/**
+	 * Returns the memory budget of the reads.
+	 * 
+	 * @return the budget in bytes, or 0 if unlimited
+	 */
+	public long getMemoryBudget()
+	{
+		return memoryBudget;
+	}
+
+	/**
+	 * Set the memory budget of the reads. The reads with a budget parse the
+	 * content row by row, estimate the retained size of the cells and apply
+	 * the {@link BudgetPolicy} once the budget is exceeded. The pending line
+	 * is charged against the budget as well. The reads with a budget bypass
+	 * the {@link CSVCache} and the {@link CSVURLCache}.
+	 * 
+	 * @param memoryBudget
+	 *            the budget in bytes, or 0 if unlimited
+	 */
+	public void setMemoryBudget(long memoryBudget)
+	{
+		if (memoryBudget < 0)
+			throw new IllegalArgumentException(String.format(
+					"The memory budget(%d) cannot be negative.", memoryBudget));
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Returns the policy when the memory budget is exceeded.
+	 * 
+	 * @return the policy
+	 */
+	public BudgetPolicy getBudgetPolicy()
+	{
+		return budgetPolicy;
+	}
+
+	/**
+	 * Set the policy when the memory budget is exceeded.
+	 * 
+	 * @param budgetPolicy
+	 *            the policy
+	 */
+	public void setBudgetPolicy(BudgetPolicy budgetPolicy)
+	{
+		if (budgetPolicy == null)
+			throw new NullPointerException("The budget policy cannot be null.");
+		this.budgetPolicy = budgetPolicy;
+	}
+
+	/**
+	 * Returns the directory of the spill files.
+	 * 
+	 * @return the directory, or <tt>null</tt> for the default temporary
+	 *         directory
+	 */
+	public File getSpillDirectory()
+	{
+		return spillDirectory;
+	}
+
+	/**
+	 * Set the directory of the spill files.
+	 * 
+	 * @param spillDirectory
+	 *            the directory, or <tt>null</tt> for the default temporary
+	 *            directory
+	 */
+	public void setSpillDirectory(File spillDirectory)
+	{
+		this.spillDirectory = spillDirectory;
+	}
 }
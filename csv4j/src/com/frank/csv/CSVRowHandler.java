@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVRowHandler.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.IOException;
+
+/**
+ * The handler of the CSV rows produced by the streaming operations.
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public interface CSVRowHandler
+{
+	/**
+	 * Handle a row. The handler may keep the reference of the row, the
+	 * producer does not modify it after the call.
+	 *
+	 * @param row
+	 *            the fields of the row
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	void handle(String[] row) throws IOException;
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVRowReader.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The streaming reader for CSV rows, which is opened by
+ * {@link CSVReader#open(InputStream)}. The rows are read one by one without
+ * loading the whole content into a {@link CSV} instance, and are split and
+ * parsed in the same way as {@link CSVReader#read(InputStream)}.
+ * <p>
+ * The rows are not guaranteed to contain the same amount of fields, the
+ * callers should check the length of the returned arrays.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class CSVRowReader implements Closeable
+{
+	/**
+	 * The CSV reader which parses the lines.
+	 */
+	protected final CSVReader	reader;
+	/**
+	 * The delimiter for row data.
+	 */
+	protected final String		delimiter;
+	/**
+	 * The underlying character reader.
+	 */
+	private final Reader		in;
+	/**
+	 * The character buffer.
+	 */
+	private final char[]		buffer;
+	/**
+	 * The position of the next character in the buffer.
+	 */
+	private int					position;
+	/**
+	 * The amount of characters in the buffer.
+	 */
+	private int					limit;
+	/**
+	 * The titles, or <tt>null</tt> if untitled.
+	 */
+	private final String[]		titles;
+	/**
+	 * The amount of data rows read.
+	 */
+	private long				row;
+	/**
+	 * The memory budget in bytes, or 0 if unlimited.
+	 */
+	private final long			budget;
+	/**
+	 * The bytes charged against the budget by the caller, which limits the
+	 * size of a pending line to the rest of the budget.
+	 */
+	long						charged;
+
+	/**
+	 * Construct an instance of CSV row reader.
+	 *
+	 * @param reader
+	 *            the CSV reader which parses the lines
+	 * @param in
+	 *            the specified input stream
+	 * @param charset
+	 *            the specified character set for the input stream
+	 * @param isTitled
+	 *            the flag for the data whether it is titled
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	protected CSVRowReader(CSVReader reader, InputStream in, Charset charset,
+			boolean isTitled) throws IOException
+	{
+		this(reader, in, charset, isTitled, 0);
+	}
+
+	/**
+	 * Construct an instance of CSV row reader whose pending line is charged
+	 * against the specified memory budget, so that a line without the
+	 * delimiters cannot grow without limit.
+	 *
+	 * @param reader
+	 *            the CSV reader which parses the lines
+	 * @param in
+	 *            the specified input stream
+	 * @param charset
+	 *            the specified character set for the input stream
+	 * @param isTitled
+	 *            the flag for the data whether it is titled
+	 * @param budget
+	 *            the memory budget in bytes, or 0 if unlimited
+	 * @throws IOException
+	 *             if an I/O error occurs, or the title line exceeds the
+	 *             budget.
+	 */
+	CSVRowReader(CSVReader reader, InputStream in, Charset charset,
+			boolean isTitled, long budget) throws IOException
+	{
+		this.reader = reader;
+		this.budget = budget;
+		this.delimiter = reader.getDelimiter();
+		this.in = new InputStreamReader(in, charset);
+		this.buffer = new char[Math.max(reader.getBufferSize(), 16)];
+		if (isTitled)
+		{
+			String line = nextLine();
+			titles = line == null ? null : reader.parseLine(line);
+		}
+		else
+			titles = null;
+	}
+
+	/**
+	 * Returns the state that whether the data is titled. The data is not
+	 * titled if the reader is titled but the content is empty.
+	 *
+	 * @return <tt>true</tt> if the data is titled
+	 */
+	public boolean isTitled()
+	{
+		return titles != null;
+	}
+
+	/**
+	 * Returns the titles for this CSV data.
+	 *
+	 * @return the titles
+	 */
+	public String[] getTitles()
+	{
+		if (titles == null)
+			throw new IllegalStateException(
+					"The current CSV data contains no titles.");
+		else
+			return titles;
+	}
+
+	/**
+	 * Returns the index of the title in the current titles.
+	 *
+	 * @param title
+	 *            the specified title
+	 * @return the index of the title
+	 * @throws NoSuchElementException
+	 *             if the title is not found
+	 */
+	public int index(String title)
+	{
+		String[] titles = getTitles();
+		for (int i = 0; i < titles.length; i++)
+			if (titles[i].equals(title))
+				return i;
+		throw new NoSuchElementException(String.format(
+				"There is no such title \"%s\" in current CSV data.", title));
+	}
+
+	/**
+	 * Read the next raw line, the empty lines are skipped.
+	 *
+	 * @return the next line, or <tt>null</tt> if the end of the stream has
+	 *         been reached
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 * @throws CSVBudgetExceededException
+	 *             if the reader has a memory budget and the pending line
+	 *             exceeds the rest of it.
+	 */
+	public String nextLine() throws IOException
+	{
+		StringBuilder sb = null;
+		while (true)
+		{
+			if (position >= limit)
+			{
+				limit = in.read(buffer);
+				position = 0;
+				if (limit == -1)
+				{
+					limit = 0;
+					if (sb == null || sb.length() == 0)
+						return null;
+					row++;
+					String line = sb.toString();
+					sb.setLength(0);
+					return line;
+				}
+			}
+			int start = position;
+			while (position < limit
+					&& delimiter.indexOf(buffer[position]) == -1)
+				position++;
+			if (position < limit)
+			{
+				String line = null;
+				if (sb != null && sb.length() > 0)
+				{
+					sb.append(buffer, start, position - start);
+					line = sb.toString();
+					sb.setLength(0);
+				}
+				else if (position > start)
+					line = new String(buffer, start, position - start);
+				position++;
+				if (line != null)
+				{
+					row++;
+					return line;
+				}
+			}
+			else
+			{
+				if (sb == null)
+					sb = new StringBuilder();
+				sb.append(buffer, start, position - start);
+				if (budget > 0 && charged + 2L * sb.length() > budget)
+					throw new CSVBudgetExceededException(budget, charged + 2L
+							* sb.length(), getRow());
+			}
+		}
+	}
+
+	/**
+	 * Read and parse the next row.
+	 *
+	 * @return the fields of the next row, or <tt>null</tt> if the end of the
+	 *         stream has been reached
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public String[] next() throws IOException
+	{
+		String line = nextLine();
+		return line == null ? null : reader.parseLine(line);
+	}
+
+	/**
+	 * Returns a sequential stream of the remaining rows. The I/O errors are
+	 * thrown as {@link UncheckedIOException}, and closing the stream closes
+	 * this reader.
+	 * 
+	 * @return the stream of the rows
+	 */
+	public Stream<String[]> stream()
+	{
+		Iterator<String[]> iterator = new Iterator<String[]>() {
+			private String[]	next;
+
+			@Override
+			public boolean hasNext()
+			{
+				if (next == null)
+					try
+					{
+						next = CSVRowReader.this.next();
+					}
+					catch (IOException e)
+					{
+						throw new UncheckedIOException(e);
+					}
+				return next != null;
+			}
+
+			@Override
+			public String[] next()
+			{
+				if (!hasNext())
+					throw new NoSuchElementException();
+				String[] row = next;
+				next = null;
+				return row;
+			}
+		};
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(iterator,
+						Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(() -> {
+					try
+					{
+						close();
+					}
+					catch (IOException e)
+					{
+						throw new UncheckedIOException(e);
+					}
+				});
+	}
+
+	/**
+	 * Parse a raw line returned by {@link #nextLine()}. This method does not
+	 * change the state of this reader, it can be called from other threads.
+	 *
+	 * @param line
+	 *            the raw line
+	 * @return the fields of the line
+	 */
+	public String[] parseLine(String line)
+	{
+		return reader.parseLine(line);
+	}
+
+	/**
+	 * Returns the amount of data rows read, the title row is not counted.
+	 *
+	 * @return the amount of rows
+	 */
+	public long getRow()
+	{
+		return isTitled() ? row - 1 : row;
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	public void close() throws IOException
+	{
+		in.close();
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVRowWriter.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The streaming writer for CSV rows, which is opened by
+ * {@link CSVWriter#open(java.io.OutputStream)}. The rows are formatted in the
+ * same way as {@link CSVWriter#write(CSV, java.io.OutputStream)}, and are
+ * separated by the delimiter of the writer.
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class CSVRowWriter implements CSVRowHandler, Closeable, Flushable
+{
+	/**
+	 * The underlying character writer.
+	 */
+	private final Writer	out;
+	/**
+	 * The delimiter for row data.
+	 */
+	protected final String	delimiter;
+	/**
+	 * The amount of rows written.
+	 */
+	private long			rows;
+	/**
+	 * The flag whether the delimiter is written before the next row.
+	 */
+	private boolean			separate;
+
+	/**
+	 * Construct an instance of CSV row writer.
+	 *
+	 * @param out
+	 *            the underlying character writer
+	 * @param delimiter
+	 *            the delimiter for row data
+	 */
+	protected CSVRowWriter(Writer out, String delimiter)
+	{
+		this(out, delimiter, false);
+	}
+
+	/**
+	 * Construct an instance of CSV row writer, which may continue the rows
+	 * already written.
+	 *
+	 * @param out
+	 *            the underlying character writer
+	 * @param delimiter
+	 *            the delimiter for row data
+	 * @param append
+	 *            the flag whether the first row follows existing rows, so
+	 *            that it is preceded by the delimiter
+	 */
+	protected CSVRowWriter(Writer out, String delimiter, boolean append)
+	{
+		this.out = new BufferedWriter(out, 1 << 16);
+		this.delimiter = delimiter;
+		this.separate = append;
+	}
+
+	/**
+	 * Write a row.
+	 *
+	 * @param row
+	 *            the fields of the row
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void write(String[] row) throws IOException
+	{
+		if (separate)
+			out.write(delimiter);
+		separate = true;
+		rows++;
+		for (int i = 0; i < row.length; i++)
+		{
+			if (i > 0)
+				out.write(',');
+			out.write(CSV.format(row[i]));
+		}
+	}
+
+	/**
+	 * Write a row.
+	 *
+	 * @see com.frank.csv.CSVRowHandler#handle(java.lang.String[])
+	 */
+	public void handle(String[] row) throws IOException
+	{
+		write(row);
+	}
+
+	/**
+	 * Returns the amount of rows written by this writer, including the title
+	 * row.
+	 *
+	 * @return the amount of rows
+	 */
+	public long getRows()
+	{
+		return rows;
+	}
+
+	/**
+	 * @see java.io.Flushable#flush()
+	 */
+	public void flush() throws IOException
+	{
+		out.flush();
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	public void close() throws IOException
+	{
+		out.close();
+	}
+}
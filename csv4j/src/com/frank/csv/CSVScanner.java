@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVScanner.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The single pass scanner for CSV content, which produces exactly the same
+ * lines and fields as the {@link java.util.StringTokenizer} based parsing of
+ * {@link CSVReader}.
+ * <p>
+ * The scanner searches the delimiter characters and the field separators by
+ * {@link String#indexOf(int, int)}, which is compiled to a vectorized loop by
+ * the JIT compiler on the common platforms, instead of testing the characters
+ * one by one. The position of the next occurrence of each delimiter character
+ * is cached, so each character of the content is searched at most once for
+ * each delimiter character. The quoted fields are unescaped without regular
+ * expressions.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+final class CSVScanner
+{
+	/**
+	 * The handler of the fields split from a line.
+	 */
+	static interface FieldHandler
+	{
+		/**
+		 * Handle a field.
+		 *
+		 * @param index
+		 *            the index of the field in the line
+		 * @param value
+		 *            the value of the field
+		 */
+		void field(int index, String value);
+	}
+
+	/**
+	 * The empty array of fields.
+	 */
+	private static final String[]	EMPTY	= new String[0];
+
+	/**
+	 * Construct an instance of CSV scanner.
+	 */
+	private CSVScanner()
+	{
+	}
+
+	/**
+	 * Returns the state that whether the delimiter can be scanned by this
+	 * scanner. The delimiters containing surrogate characters are handled by
+	 * {@link java.util.StringTokenizer} only.
+	 *
+	 * @param delimiter
+	 *            the delimiter for row data
+	 * @return <tt>true</tt> if the delimiter is supported
+	 */
+	static boolean supports(String delimiter)
+	{
+		for (int i = 0; i < delimiter.length(); i++)
+			if (Character.isSurrogate(delimiter.charAt(i)))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Scan the non-empty lines of the content, which are separated by any
+	 * of the delimiter characters.
+	 *
+	 * @param s
+	 *            the content string
+	 * @param delimiter
+	 *            the delimiter for row data
+	 * @return the start index and the end index of each line in pairs
+	 */
+	static int[] lines(String s, String delimiter)
+	{
+		int length = s.length();
+		int n = delimiter.length();
+		int[] next = new int[n];
+		Arrays.fill(next, -1);
+		int[] bounds = new int[64];
+		int size = 0;
+		int position = 0;
+		while (position < length)
+		{
+			int end = length;
+			for (int i = 0; i < n; i++)
+			{
+				if (next[i] < position)
+				{
+					int index = s.indexOf(delimiter.charAt(i), position);
+					next[i] = index == -1 ? length : index;
+				}
+				if (next[i] < end)
+					end = next[i];
+			}
+			if (end > position)
+			{
+				if (size == bounds.length)
+					bounds = Arrays.copyOf(bounds, size << 1);
+				bounds[size++] = position;
+				bounds[size++] = end;
+			}
+			position = end + 1;
+		}
+		return Arrays.copyOf(bounds, size);
+	}
+
+	/**
+	 * Split a line to the fields. The empty fields are skipped, and a field
+	 * starting with a quotation mark is merged with the next field, in the
+	 * same way as {@link CSVReader#parseLine(String)}.
+	 *
+	 * @param line
+	 *            the line data
+	 * @param metrics
+	 *            the metrics to record, or <tt>null</tt> if not measured
+	 * @return the fields
+	 */
+	static String[] split(String line, CSVMetrics metrics)
+	{
+		return split(line, ',', '"', false, metrics);
+	}
+
+	/**
+	 * Split a line to the fields by the specified separator and quotation
+	 * mark, in the same way as {@link #split(String, CSVMetrics)}.
+	 *
+	 * @param line
+	 *            the line data
+	 * @param separator
+	 *            the separator of the fields
+	 * @param quote
+	 *            the quotation mark
+	 * @param trim
+	 *            the flag whether the leading and trailing white spaces of
+	 *            the fields are removed after they are split
+	 * @param metrics
+	 *            the metrics to record, or <tt>null</tt> if not measured
+	 * @return the fields
+	 */
+	static String[] split(String line, char separator, char quote,
+			boolean trim, CSVMetrics metrics)
+	{
+		int length = line.length();
+		if (line.indexOf(separator) == -1)
+			return length == 0 ? EMPTY : new String[] { trim ? line.trim()
+					: line };
+		final ArrayList<String> fields = new ArrayList<String>();
+		scan(line, separator, quote, trim, metrics, new FieldHandler() {
+			public void field(int index, String value)
+			{
+				fields.add(value);
+			}
+		});
+		return fields.toArray(new String[fields.size()]);
+	}
+
+	/**
+	 * Split a line and pass the fields to the handler one by one, in the
+	 * same way as {@link #split(String, char, char, boolean, CSVMetrics)}
+	 * but without collecting them.
+	 *
+	 * @param line
+	 *            the line data
+	 * @param separator
+	 *            the separator of the fields
+	 * @param quote
+	 *            the quotation mark
+	 * @param trim
+	 *            the flag whether the leading and trailing white spaces of
+	 *            the fields are removed after they are split
+	 * @param metrics
+	 *            the metrics to record, or <tt>null</tt> if not measured
+	 * @param handler
+	 *            the handler of the fields
+	 * @return the amount of fields
+	 */
+	static int scan(String line, char separator, char quote, boolean trim,
+			CSVMetrics metrics, FieldHandler handler)
+	{
+		int length = line.length();
+		int comma = line.indexOf(separator);
+		int count = 0;
+		int position = 0;
+		while (position < length)
+		{
+			if (comma != -1 && comma < position)
+				comma = line.indexOf(separator, position);
+			int end = comma == -1 ? length : comma;
+			if (end == position)
+			{
+				position++;
+				continue;
+			}
+			if (line.charAt(position) == quote)
+			{
+				int next = end;
+				while (next < length && line.charAt(next) == separator)
+					next++;
+				if (next < length)
+				{
+					int index = line.indexOf(separator, next);
+					int nextEnd = index == -1 ? length : index;
+					StringBuilder sb = new StringBuilder(end - position
+							+ nextEnd - next);
+					sb.append(line, position + 1, end);
+					sb.append(line, next, nextEnd - 1);
+					String field = unescape(sb, quote);
+					handler.field(count++, trim ? field.trim() : field);
+					if (metrics != null)
+						metrics.quotedFields++;
+					comma = index;
+					position = nextEnd;
+					continue;
+				}
+			}
+			String field = line.substring(position, end);
+			handler.field(count++, trim ? field.trim() : field);
+			position = end;
+		}
+		return count;
+	}
+
+	/**
+	 * Replace each pair of quotation marks with a single one, the pairs are
+	 * matched from left to right.
+	 *
+	 * @param sb
+	 *            the escaped content
+	 * @param quote
+	 *            the quotation mark
+	 * @return the unescaped string
+	 */
+	private static String unescape(StringBuilder sb, char quote)
+	{
+		int length = sb.length();
+		int w = 0;
+		for (int r = 0; r < length; r++, w++)
+		{
+			char c = sb.charAt(r);
+			if (c == quote && r + 1 < length && sb.charAt(r + 1) == quote)
+				r++;
+			sb.setCharAt(w, c);
+		}
+		sb.setLength(w);
+		return sb.toString();
+	}
+}
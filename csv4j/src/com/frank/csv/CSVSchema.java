@@ -0,0 +1,520 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVSchema.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * The schema of CSV data, which contains the type, the nullability and the
+ * cardinality of each column.
+ * <p>
+ * The schema is inferred from a sample of rows by
+ * {@link #infer(CSVRowReader, int)} or
+ * {@link #inferReservoir(CSVRowReader, int, Random)}, and the types can be
+ * pinned or overridden by {@link #setType(int, Type)} before the schema is
+ * passed to {@link CSVReader#read(java.io.InputStream, CSVSchema)}, which
+ * converts the fields to typed storage while parsing.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class CSVSchema
+{
+	/**
+	 * The types of the columns.
+	 */
+	public static enum Type
+	{
+		/**
+		 * The <tt>int</tt> integers.
+		 */
+		INT,
+		/**
+		 * The <tt>long</tt> integers.
+		 */
+		LONG,
+		/**
+		 * The <tt>double</tt> numbers.
+		 */
+		DOUBLE,
+		/**
+		 * The <tt>true</tt> or <tt>false</tt> values, case insensitive.
+		 */
+		BOOLEAN,
+		/**
+		 * The dates in <tt>yyyy-MM-dd</tt> format.
+		 */
+		DATE,
+		/**
+		 * The strings.
+		 */
+		STRING
+	}
+
+	/**
+	 * The maximum amount of distinct values counted for the cardinality.
+	 */
+	private static final int	MAX_CARDINALITY	= 1 << 16;
+
+	/**
+	 * The titles, or <tt>null</tt> if untitled.
+	 */
+	protected final String[]	titles;
+	/**
+	 * The types of the columns.
+	 */
+	protected final Type[]		types;
+	/**
+	 * The nullability of the columns.
+	 */
+	protected final boolean[]	nullable;
+	/**
+	 * The amount of distinct values of the columns in the sample.
+	 */
+	protected final int[]		cardinality;
+
+	/**
+	 * Construct an instance of schema with all the columns typed as
+	 * {@link Type#STRING}.
+	 *
+	 * @param columns
+	 *            the amount of columns
+	 * @param titles
+	 *            the titles, or <tt>null</tt> if untitled
+	 */
+	public CSVSchema(int columns, String[] titles)
+	{
+		if (titles != null && titles.length != columns)
+			throw new IllegalArgumentException(
+					String.format(
+							"The length of input title array(%d) is not compatible with the columns size(%d).",
+							titles.length, columns));
+		this.titles = titles == null ? null : titles.clone();
+		this.types = new Type[columns];
+		this.nullable = new boolean[columns];
+		this.cardinality = new int[columns];
+		Arrays.fill(types, Type.STRING);
+		Arrays.fill(nullable, true);
+	}
+
+	/**
+	 * Infer the schema from the first rows of the reader.
+	 *
+	 * @param in
+	 *            the row reader, which is not closed
+	 * @param sampleRows
+	 *            the amount of rows in the sample
+	 * @return the inferred schema
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public static CSVSchema infer(CSVRowReader in, int sampleRows)
+			throws IOException
+	{
+		List<String[]> sample = new ArrayList<String[]>();
+		String[] row;
+		while (sample.size() < sampleRows && (row = in.next()) != null)
+			sample.add(row);
+		return infer(in, sample);
+	}
+
+	/**
+	 * Infer the schema from a uniform reservoir sample of all the rows of the
+	 * reader.
+	 *
+	 * @param in
+	 *            the row reader, which is read to the end but not closed
+	 * @param sampleRows
+	 *            the amount of rows in the sample
+	 * @param random
+	 *            the random number generator
+	 * @return the inferred schema
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public static CSVSchema inferReservoir(CSVRowReader in, int sampleRows,
+			Random random) throws IOException
+	{
+		List<String[]> sample = new ArrayList<String[]>();
+		String[] row;
+		long seen = 0;
+		while ((row = in.next()) != null)
+		{
+			seen++;
+			if (sample.size() < sampleRows)
+				sample.add(row);
+			else
+			{
+				long j = (long) (random.nextDouble() * seen);
+				if (j < sampleRows)
+					sample.set((int) j, row);
+			}
+		}
+		return infer(in, sample);
+	}
+
+	/**
+	 * Infer the schema from the sample.
+	 *
+	 * @param in
+	 *            the row reader
+	 * @param sample
+	 *            the sample rows
+	 * @return the inferred schema
+	 */
+	private static CSVSchema infer(CSVRowReader in, List<String[]> sample)
+	{
+		int columns = in.isTitled() ? in.getTitles().length : 0;
+		for (String[] row : sample)
+			columns = Math.max(columns, row.length);
+		CSVSchema schema = new CSVSchema(columns, in.isTitled()
+				&& in.getTitles().length == columns ? in.getTitles() : null);
+		for (int column = 0; column < columns; column++)
+		{
+			Type type = null;
+			boolean nullable = false;
+			HashSet<String> distinct = new HashSet<String>();
+			for (String[] row : sample)
+			{
+				String s = column < row.length ? row[column] : null;
+				if (s == null || s.isEmpty())
+				{
+					nullable = true;
+					continue;
+				}
+				if (distinct.size() < MAX_CARDINALITY)
+					distinct.add(s);
+				Type t = typeOf(s);
+				type = type == null ? t : widen(type, t);
+			}
+			schema.types[column] = type == null ? Type.STRING : type;
+			schema.nullable[column] = nullable;
+			schema.cardinality[column] = distinct.size();
+		}
+		return schema;
+	}
+
+	/**
+	 * Returns the narrowest type of the value.
+	 *
+	 * @param s
+	 *            the non-empty value
+	 * @return the type
+	 */
+	static Type typeOf(String s)
+	{
+		if (s.equalsIgnoreCase("true") || s.equalsIgnoreCase("false"))
+			return Type.BOOLEAN;
+		if (parseDate(s) != Integer.MIN_VALUE)
+			return Type.DATE;
+		boolean integral = true;
+		for (int i = 0; i < s.length(); i++)
+		{
+			char c = s.charAt(i);
+			if (c >= '0' && c <= '9' || (c == '-' || c == '+') && i == 0)
+				continue;
+			integral = false;
+			if (c != '.' && c != 'e' && c != 'E' && c != '-' && c != '+')
+				return Type.STRING;
+		}
+		try
+		{
+			if (integral)
+			{
+				long value = Long.parseLong(s);
+				return value == (int) value ? Type.INT : Type.LONG;
+			}
+			Double.parseDouble(s);
+			return Type.DOUBLE;
+		}
+		catch (NumberFormatException e)
+		{
+			return integral && s.length() > 1 ? Type.DOUBLE : Type.STRING;
+		}
+	}
+
+	/**
+	 * Returns the narrowest type which can hold the values of both types.
+	 *
+	 * @param a
+	 *            the first type
+	 * @param b
+	 *            the second type
+	 * @return the widened type
+	 */
+	static Type widen(Type a, Type b)
+	{
+		if (a == b)
+			return a;
+		if (numeric(a) && numeric(b))
+			return a.ordinal() > b.ordinal() ? a : b;
+		return Type.STRING;
+	}
+
+	/**
+	 * Returns the state that whether the type is numeric.
+	 *
+	 * @param type
+	 *            the type
+	 * @return <tt>true</tt> if the type is numeric
+	 */
+	private static boolean numeric(Type type)
+	{
+		return type == Type.INT || type == Type.LONG || type == Type.DOUBLE;
+	}
+
+	/**
+	 * Parse a date in <tt>yyyy-MM-dd</tt> format to the amount of days since
+	 * 1970-01-01.
+	 *
+	 * @param s
+	 *            the date string
+	 * @return the epoch day, or {@link Integer#MIN_VALUE} if the string is
+	 *         not a valid date
+	 */
+	static int parseDate(String s)
+	{
+		if (s.length() != 10 || s.charAt(4) != '-' || s.charAt(7) != '-')
+			return Integer.MIN_VALUE;
+		int year = 0, month = 0, day = 0;
+		for (int i = 0; i < 10; i++)
+		{
+			if (i == 4 || i == 7)
+				continue;
+			char c = s.charAt(i);
+			if (c < '0' || c > '9')
+				return Integer.MIN_VALUE;
+			if (i < 4)
+				year = year * 10 + c - '0';
+			else if (i < 7)
+				month = month * 10 + c - '0';
+			else
+				day = day * 10 + c - '0';
+		}
+		if (month < 1 || month > 12 || day < 1
+				|| day > daysInMonth(year, month))
+			return Integer.MIN_VALUE;
+		return (int) epochDay(year, month, day);
+	}
+
+	/**
+	 * Format the amount of days since 1970-01-01 in <tt>yyyy-MM-dd</tt>
+	 * format.
+	 *
+	 * @param epochDay
+	 *            the epoch day
+	 * @return the date string
+	 */
+	static String formatDate(int epochDay)
+	{
+		// the civil from days algorithm by Howard Hinnant
+		long z = epochDay + 719468L;
+		long era = (z >= 0 ? z : z - 146096) / 146097;
+		long doe = z - era * 146097;
+		long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		long mp = (5 * doy + 2) / 153;
+		long day = doy - (153 * mp + 2) / 5 + 1;
+		long month = mp < 10 ? mp + 3 : mp - 9;
+		long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+		return String.format("%04d-%02d-%02d", year, month, day);
+	}
+
+	/**
+	 * Returns the amount of days since 1970-01-01.
+	 *
+	 * @param year
+	 *            the year
+	 * @param month
+	 *            the month, from 1 to 12
+	 * @param day
+	 *            the day of month
+	 * @return the epoch day
+	 */
+	private static long epochDay(long year, long month, long day)
+	{
+		// the days from civil algorithm by Howard Hinnant
+		year -= month <= 2 ? 1 : 0;
+		long era = (year >= 0 ? year : year - 399) / 400;
+		long yoe = year - era * 400;
+		long doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day
+				- 1;
+		long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * 146097 + doe - 719468;
+	}
+
+	/**
+	 * Returns the amount of days in the month.
+	 *
+	 * @param year
+	 *            the year
+	 * @param month
+	 *            the month, from 1 to 12
+	 * @return the amount of days
+	 */
+	private static int daysInMonth(int year, int month)
+	{
+		if (month == 2)
+			return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29
+					: 28;
+		return month == 4 || month == 6 || month == 9 || month == 11 ? 30
+				: 31;
+	}
+
+	/**
+	 * Returns the amount of columns.
+	 *
+	 * @return the columns
+	 */
+	public int columns()
+	{
+		return types.length;
+	}
+
+	/**
+	 * Returns the state that whether the schema is titled.
+	 *
+	 * @return <tt>true</tt> if the schema is titled
+	 */
+	public boolean isTitled()
+	{
+		return titles != null;
+	}
+
+	/**
+	 * Returns the titles of the schema.
+	 *
+	 * @return the titles
+	 */
+	public String[] getTitles()
+	{
+		if (titles == null)
+			throw new IllegalStateException(
+					"The current schema contains no titles.");
+		return titles.clone();
+	}
+
+	/**
+	 * Returns the index of the title.
+	 *
+	 * @param title
+	 *            the specified title
+	 * @return the index of the title
+	 */
+	protected int index(String title)
+	{
+		String[] titles = getTitles();
+		for (int i = 0; i < titles.length; i++)
+			if (titles[i].equals(title))
+				return i;
+		throw new NoSuchElementException(String.format(
+				"There is no such title \"%s\" in current schema.", title));
+	}
+
+	/**
+	 * Returns the type of the specified column.
+	 *
+	 * @param column
+	 *            the column index
+	 * @return the type
+	 */
+	public Type getType(int column)
+	{
+		return types[column];
+	}
+
+	/**
+	 * Returns the type of the specified column.
+	 *
+	 * @param title
+	 *            the column title
+	 * @return the type
+	 */
+	public Type getType(String title)
+	{
+		return types[index(title)];
+	}
+
+	/**
+	 * Pin or override the type of the specified column.
+	 *
+	 * @param column
+	 *            the column index
+	 * @param type
+	 *            the type
+	 */
+	public void setType(int column, Type type)
+	{
+		if (type == null)
+			throw new NullPointerException("The type cannot be null.");
+		types[column] = type;
+	}
+
+	/**
+	 * Pin or override the type of the specified column.
+	 *
+	 * @param title
+	 *            the column title
+	 * @param type
+	 *            the type
+	 */
+	public void setType(String title, Type type)
+	{
+		setType(index(title), type);
+	}
+
+	/**
+	 * Returns the state that whether the specified column contains empty
+	 * fields in the sample.
+	 *
+	 * @param column
+	 *            the column index
+	 * @return <tt>true</tt> if the column is nullable
+	 */
+	public boolean isNullable(int column)
+	{
+		return nullable[column];
+	}
+
+	/**
+	 * Returns the amount of distinct non-empty values of the specified
+	 * column in the sample.
+	 *
+	 * @param column
+	 *            the column index
+	 * @return the cardinality
+	 */
+	public int getCardinality(int column)
+	{
+		return cardinality[column];
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder("CSVSchema[");
+		for (int i = 0; i < types.length; i++)
+		{
+			if (i > 0)
+				sb.append(", ");
+			sb.append(titles == null ? Integer.toString(i) : titles[i])
+					.append(':').append(types[i]);
+			if (nullable[i])
+				sb.append('?');
+			sb.append('(').append(cardinality[i]).append(')');
+		}
+		return sb.append(']').toString();
+	}
+}
@@ -0,0 +1,722 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVSorter.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * The external merge sort for CSV rows which do not fit in memory.
+ * <p>
+ * The rows are read from a {@link CSVRowReader} into chunks within the memory
+ * budget. Each chunk is sorted and written to a temporary file as a sorted
+ * run, and the runs are merged by a k-way heap merge into the output. If an
+ * executor is specified, the runs are sorted and written in parallel while the
+ * next chunk is read. If all the rows fit in one chunk, they are sorted in
+ * memory without temporary files.
+ * </p>
+ * <p>
+ * The sort keys are compared in the order they are added. The empty fields
+ * and the missing fields are sorted after all the values in ascending order,
+ * and before them in descending order. If the sort is stable, the rows with
+ * equal keys keep their input order.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class CSVSorter
+{
+	/**
+	 * The types of the sort keys.
+	 */
+	public static enum Type
+	{
+		/**
+		 * Compared as strings.
+		 */
+		STRING,
+		/**
+		 * Compared as <tt>long</tt> integers.
+		 */
+		LONG,
+		/**
+		 * Compared as <tt>double</tt> numbers.
+		 */
+		DOUBLE
+	}
+
+	/**
+	 * The maximum amount of runs merged at once.
+	 */
+	private static final int	FAN_IN	= 64;
+
+	/**
+	 * A row with its parsed sort keys.
+	 */
+	static final class Item
+	{
+		/**
+		 * The fields of the row.
+		 */
+		final String[]	row;
+		/**
+		 * The numeric sort keys, in the order of the keys.
+		 */
+		final long[]	keys;
+		/**
+		 * The bit mask of the empty sort keys.
+		 */
+		final long		nulls;
+
+		/**
+		 * Construct an instance of item.
+		 *
+		 * @param row
+		 *            the fields of the row
+		 * @param keys
+		 *            the numeric sort keys
+		 * @param nulls
+		 *            the bit mask of the empty sort keys
+		 */
+		Item(String[] row, long[] keys, long nulls)
+		{
+			this.row = row;
+			this.keys = keys;
+			this.nulls = nulls;
+		}
+	}
+
+	/**
+	 * The head of a run in the merge.
+	 */
+	static final class Head
+	{
+		/**
+		 * The current item.
+		 */
+		Item				item;
+		/**
+		 * The index of the run, which keeps the merge stable.
+		 */
+		final int			run;
+		/**
+		 * The input of the run.
+		 */
+		final RowFile.Input	in;
+
+		/**
+		 * Construct an instance of head.
+		 *
+		 * @param run
+		 *            the index of the run
+		 * @param in
+		 *            the input of the run
+		 */
+		Head(int run, RowFile.Input in)
+		{
+			this.run = run;
+			this.in = in;
+		}
+	}
+
+	/**
+	 * The titles of the key columns, each of them is <tt>null</tt> if the
+	 * key is specified by index.
+	 */
+	protected final List<String>	titles		= new ArrayList<String>();
+	/**
+	 * The indices of the key columns, each of them is -1 if the key is
+	 * specified by title.
+	 */
+	protected final List<Integer>	columns		= new ArrayList<Integer>();
+	/**
+	 * The types of the keys.
+	 */
+	protected final List<Type>		types		= new ArrayList<Type>();
+	/**
+	 * The orders of the keys.
+	 */
+	protected final List<Boolean>	ascending	= new ArrayList<Boolean>();
+	/**
+	 * The memory budget of the rows in bytes.
+	 */
+	protected long					memoryBudget	= 64L << 20;
+	/**
+	 * The flag whether the rows with equal keys keep their input order.
+	 */
+	protected boolean				stable			= true;
+	/**
+	 * The flag whether the temporary files are compressed.
+	 */
+	protected boolean				compress;
+	/**
+	 * The directory of the temporary files, or <tt>null</tt> for the default
+	 * temporary directory.
+	 */
+	protected File					directory;
+	/**
+	 * The executor for the run generation, or <tt>null</tt> if the runs are
+	 * generated in the current thread.
+	 */
+	protected ExecutorService		executor;
+	/**
+	 * The amount of runs generated in parallel.
+	 */
+	protected int					parallelism		= 1;
+
+	/**
+	 * Add a sort key on the specified column.
+	 *
+	 * @param title
+	 *            the title of the key column
+	 * @param type
+	 *            the type of the key
+	 * @param ascending
+	 *            <tt>true</tt> for the ascending order
+	 */
+	public void addKey(String title, Type type, boolean ascending)
+	{
+		add(title, -1, type, ascending);
+	}
+
+	/**
+	 * Add a sort key on the specified column.
+	 *
+	 * @param column
+	 *            the index of the key column
+	 * @param type
+	 *            the type of the key
+	 * @param ascending
+	 *            <tt>true</tt> for the ascending order
+	 */
+	public void addKey(int column, Type type, boolean ascending)
+	{
+		add(null, column, type, ascending);
+	}
+
+	/**
+	 * Add a sort key.
+	 *
+	 * @param title
+	 *            the title of the key column, or <tt>null</tt>
+	 * @param column
+	 *            the index of the key column, or -1
+	 * @param type
+	 *            the type of the key
+	 * @param ascending
+	 *            <tt>true</tt> for the ascending order
+	 */
+	private void add(String title, int column, Type type, boolean ascending)
+	{
+		if (types.size() == 64)
+			throw new IllegalStateException("Too many sort keys.");
+		titles.add(title);
+		columns.add(column);
+		types.add(type);
+		this.ascending.add(ascending);
+	}
+
+	/**
+	 * Sort the CSV file into the output file. The title row, if any, is
+	 * written first.
+	 *
+	 * @param input
+	 *            the input CSV file
+	 * @param output
+	 *            the output CSV file
+	 * @param reader
+	 *            the reader of the input file
+	 * @param writer
+	 *            the writer of the output file
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void sort(File input, File output, CSVReader reader,
+			CSVWriter writer) throws IOException
+	{
+		CSVRowReader in = reader.open(input);
+		try
+		{
+			CSVRowWriter out = writer.open(output);
+			try
+			{
+				if (in.isTitled())
+					out.write(in.getTitles());
+				sort(in, out);
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Sort the rows of the specified reader into the handler. The title row
+	 * is not passed to the handler.
+	 *
+	 * @param in
+	 *            the row reader, which is read to the end but not closed
+	 * @param out
+	 *            the handler of the sorted rows
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void sort(CSVRowReader in, CSVRowHandler out) throws IOException
+	{
+		if (types.isEmpty())
+			throw new IllegalStateException("No sort key is specified.");
+		final int[] keys = new int[types.size()];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = columns.get(i) >= 0 ? columns.get(i) : in.index(titles
+					.get(i));
+		final Type[] types = this.types.toArray(new Type[keys.length]);
+		final Comparator<Item> comparator = comparator(keys, types);
+		int pending = executor == null ? 0 : parallelism;
+		long budget = memoryBudget / (pending + 1);
+		List<RowFile> runs = new ArrayList<RowFile>();
+		ArrayDeque<Future<RowFile>> futures = new ArrayDeque<Future<RowFile>>();
+		try
+		{
+			List<Item> chunk = new ArrayList<Item>();
+			long size = 0;
+			String[] row;
+			while ((row = in.next()) != null)
+			{
+				chunk.add(item(row, keys, types, in.getRow()));
+				size += CSV.sizeOf(row) + 48 + 8L * keys.length;
+				if (size > budget)
+				{
+					final List<Item> items = chunk;
+					final RowFile run = new RowFile(directory, compress);
+					runs.add(run);
+					if (executor == null)
+						write(items, run, comparator);
+					else
+					{
+						futures.add(executor.submit(new Callable<RowFile>() {
+							public RowFile call() throws IOException
+							{
+								write(items, run, comparator);
+								return run;
+							}
+						}));
+						while (futures.size() > pending)
+							get(futures.poll());
+					}
+					chunk = new ArrayList<Item>();
+					size = 0;
+				}
+			}
+			if (runs.isEmpty())
+			{
+				Collections.sort(chunk, comparator);
+				for (Item item : chunk)
+					out.handle(item.row);
+				return;
+			}
+			if (!chunk.isEmpty())
+			{
+				RowFile run = new RowFile(directory, compress);
+				runs.add(run);
+				write(chunk, run, comparator);
+				chunk = null;
+			}
+			while (!futures.isEmpty())
+				get(futures.poll());
+			while (runs.size() > FAN_IN)
+			{
+				List<RowFile> merged = new ArrayList<RowFile>();
+				try
+				{
+					for (int i = 0; i < runs.size(); i += FAN_IN)
+					{
+						List<RowFile> group = runs.subList(i,
+								Math.min(i + FAN_IN, runs.size()));
+						if (group.size() == 1)
+						{
+							merged.add(group.get(0));
+							continue;
+						}
+						RowFile run = new RowFile(directory, compress);
+						merged.add(run);
+						RowFile.Output output = run.openOutput();
+						try
+						{
+							merge(group, output, keys, types, comparator);
+						}
+						finally
+						{
+							output.close();
+						}
+						for (RowFile f : group)
+							f.delete();
+					}
+				}
+				catch (Throwable e)
+				{
+					// the runs of this pass are not in the runs to delete yet
+					for (RowFile run : merged)
+						run.delete();
+					throw e;
+				}
+				runs = merged;
+			}
+			merge(runs, out, keys, types, comparator);
+		}
+		finally
+		{
+			for (Future<RowFile> future : futures)
+				future.cancel(true);
+			for (RowFile run : runs)
+				run.delete();
+		}
+	}
+
+	/**
+	 * Wait for the run generation and unwrap its failure.
+	 *
+	 * @param future
+	 *            the future of the run generation
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private static void get(Future<RowFile> future) throws IOException
+	{
+		try
+		{
+			future.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("The sort is interrupted.", e);
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Sort the chunk and write it to the run file.
+	 *
+	 * @param items
+	 *            the chunk
+	 * @param run
+	 *            the run file
+	 * @param comparator
+	 *            the comparator of the items
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private static void write(List<Item> items, RowFile run,
+			Comparator<Item> comparator) throws IOException
+	{
+		Collections.sort(items, comparator);
+		RowFile.Output output = run.openOutput();
+		try
+		{
+			for (Item item : items)
+				output.handle(item.row);
+		}
+		finally
+		{
+			output.close();
+		}
+	}
+
+	/**
+	 * Merge the sorted runs into the handler.
+	 *
+	 * @param runs
+	 *            the sorted runs in input order
+	 * @param out
+	 *            the handler of the merged rows
+	 * @param keys
+	 *            the indices of the key columns
+	 * @param types
+	 *            the types of the keys
+	 * @param comparator
+	 *            the comparator of the items
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private void merge(List<RowFile> runs, CSVRowHandler out, int[] keys,
+			Type[] types, final Comparator<Item> comparator)
+			throws IOException
+	{
+		PriorityQueue<Head> heap = new PriorityQueue<Head>(runs.size(),
+				new Comparator<Head>() {
+					public int compare(Head a, Head b)
+					{
+						int c = comparator.compare(a.item, b.item);
+						return c != 0 || !stable ? c : a.run - b.run;
+					}
+				});
+		List<RowFile.Input> inputs = new ArrayList<RowFile.Input>();
+		try
+		{
+			for (int i = 0; i < runs.size(); i++)
+			{
+				RowFile.Input in = runs.get(i).openInput();
+				inputs.add(in);
+				Head head = new Head(i, in);
+				String[] row = in.read();
+				if (row != null)
+				{
+					head.item = item(row, keys, types, -1);
+					heap.add(head);
+				}
+			}
+			while (!heap.isEmpty())
+			{
+				Head head = heap.poll();
+				out.handle(head.item.row);
+				String[] row = head.in.read();
+				if (row != null)
+				{
+					head.item = item(row, keys, types, -1);
+					heap.add(head);
+				}
+			}
+		}
+		finally
+		{
+			for (RowFile.Input in : inputs)
+				in.close();
+		}
+	}
+
+	/**
+	 * Parse the sort keys of a row.
+	 *
+	 * @param row
+	 *            the fields of the row
+	 * @param keys
+	 *            the indices of the key columns
+	 * @param types
+	 *            the types of the keys
+	 * @param index
+	 *            the index of the row, which is used in the error message
+	 * @return the item
+	 */
+	private static Item item(String[] row, int[] keys, Type[] types, long index)
+	{
+		long[] values = new long[keys.length];
+		long nulls = 0;
+		for (int i = 0; i < keys.length; i++)
+		{
+			String s = keys[i] < row.length ? row[keys[i]] : null;
+			if (s == null || s.isEmpty())
+			{
+				nulls |= 1L << i;
+				continue;
+			}
+			try
+			{
+				switch (types[i])
+				{
+					case LONG:
+						values[i] = Long.parseLong(s.trim());
+						break;
+					case DOUBLE:
+						long bits = Double.doubleToLongBits(Double
+								.parseDouble(s.trim()));
+						values[i] = bits ^ (bits >> 63 & Long.MAX_VALUE);
+						break;
+					default:
+						break;
+				}
+			}
+			catch (NumberFormatException e)
+			{
+				throw new IllegalArgumentException(String.format(
+						"The field(row, column) = (%d, %d) \"%s\" is not a number.",
+						index, keys[i], s), e);
+			}
+		}
+		return new Item(row, values, nulls);
+	}
+
+	/**
+	 * Returns the comparator of the items.
+	 *
+	 * @param keys
+	 *            the indices of the key columns
+	 * @param types
+	 *            the types of the keys
+	 * @return the comparator
+	 */
+	private Comparator<Item> comparator(final int[] keys, final Type[] types)
+	{
+		final boolean[] ascending = new boolean[keys.length];
+		for (int i = 0; i < keys.length; i++)
+			ascending[i] = this.ascending.get(i);
+		return new Comparator<Item>() {
+			public int compare(Item a, Item b)
+			{
+				for (int i = 0; i < keys.length; i++)
+				{
+					boolean x = (a.nulls & 1L << i) != 0;
+					boolean y = (b.nulls & 1L << i) != 0;
+					int c;
+					if (x || y)
+						c = x == y ? 0 : x ? 1 : -1;
+					else if (types[i] == Type.STRING)
+						c = a.row[keys[i]].compareTo(b.row[keys[i]]);
+					else
+						c = a.keys[i] < b.keys[i] ? -1
+								: a.keys[i] == b.keys[i] ? 0 : 1;
+					if (c != 0)
+						return ascending[i] ? c : -c;
+				}
+				return 0;
+			}
+		};
+	}
+
+	/**
+	 * Get the memory budget of the rows in bytes.
+	 *
+	 * @return the memory budget
+	 */
+	public long getMemoryBudget()
+	{
+		return memoryBudget;
+	}
+
+	/**
+	 * Set the memory budget of the rows in bytes, which is compared with the
+	 * estimated size of the rows in memory. The budget is shared by the
+	 * chunks sorted in parallel.
+	 *
+	 * @param memoryBudget
+	 *            the value of memory budget
+	 */
+	public void setMemoryBudget(long memoryBudget)
+	{
+		if (memoryBudget <= 0)
+			throw new IllegalArgumentException(String.format(
+					"The memory budget(%d) must be positive.", memoryBudget));
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Get the flag whether the rows with equal keys keep their input order.
+	 *
+	 * @return the flag
+	 */
+	public boolean isStable()
+	{
+		return stable;
+	}
+
+	/**
+	 * Set the flag whether the rows with equal keys keep their input order.
+	 *
+	 * @param stable
+	 *            the value of the flag
+	 */
+	public void setStable(boolean stable)
+	{
+		this.stable = stable;
+	}
+
+	/**
+	 * Get the flag whether the temporary files are compressed.
+	 *
+	 * @return the flag
+	 */
+	public boolean isCompress()
+	{
+		return compress;
+	}
+
+	/**
+	 * Set the flag whether the temporary files are compressed by GZIP.
+	 *
+	 * @param compress
+	 *            the value of the flag
+	 */
+	public void setCompress(boolean compress)
+	{
+		this.compress = compress;
+	}
+
+	/**
+	 * Get the directory of the temporary files.
+	 *
+	 * @return the directory, or <tt>null</tt> for the default temporary
+	 *         directory
+	 */
+	public File getDirectory()
+	{
+		return directory;
+	}
+
+	/**
+	 * Set the directory of the temporary files.
+	 *
+	 * @param directory
+	 *            the directory, or <tt>null</tt> for the default temporary
+	 *            directory
+	 */
+	public void setDirectory(File directory)
+	{
+		this.directory = directory;
+	}
+
+	/**
+	 * Get the executor for the run generation.
+	 *
+	 * @return the executor, or <tt>null</tt> if the runs are generated in
+	 *         the current thread
+	 */
+	public ExecutorService getExecutor()
+	{
+		return executor;
+	}
+
+	/**
+	 * Set the executor for the run generation, and the amount of runs
+	 * generated in parallel.
+	 *
+	 * @param executor
+	 *            the executor, or <tt>null</tt> to generate the runs in the
+	 *            current thread
+	 * @param parallelism
+	 *            the amount of runs generated in parallel
+	 */
+	public void setExecutor(ExecutorService executor, int parallelism)
+	{
+		if (parallelism < 1)
+			throw new IllegalArgumentException(String.format(
+					"Illegal parallelism: %d.", parallelism));
+		this.executor = executor;
+		this.parallelism = parallelism;
+	}
+}
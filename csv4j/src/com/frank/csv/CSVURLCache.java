@@ -0,0 +1,536 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * CSVURLCache.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Properties;
+
+/**
+ * The HTTP conditional request cache for the CSV data read by
+ * {@link CSVReader#read(java.net.URL, java.net.Proxy, int)}.
+ * <p>
+ * The cache stores the <tt>ETag</tt> and the <tt>Last-Modified</tt> validators
+ * of the responses and sends <tt>If-None-Match</tt> and
+ * <tt>If-Modified-Since</tt> with the next request of the same URL. When the
+ * server responds "304 Not Modified", the cached CSV data is returned without
+ * downloading or parsing the body again. The parsed CSV data is kept in memory
+ * under a byte budget in LRU order; if a directory is specified, the response
+ * bodies and their validators are also stored on disk under a separated byte
+ * budget, so that they survive the eviction from memory and the restart of
+ * the application, in which case the body is parsed from disk.
+ * </p>
+ * <p>
+ * The cached CSV instances are shared by all the callers, they should not be
+ * modified. The reads of a reader with a memory budget bypass the cache, see
+ * {@link CSVReader#setMemoryBudget(long)}.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class CSVURLCache
+{
+	/**
+	 * The suffix of the cached body files.
+	 */
+	private static final String	BODY	= ".csv";
+	/**
+	 * The suffix of the cached validator files.
+	 */
+	private static final String	META	= ".meta";
+
+	/**
+	 * The entry of a cached response.
+	 */
+	static final class Entry
+	{
+		/**
+		 * The entity tag of the response.
+		 */
+		final String	etag;
+		/**
+		 * The last modified time of the response.
+		 */
+		final String	lastModified;
+		/**
+		 * The character set of the response.
+		 */
+		final Charset	charset;
+		/**
+		 * The parsed CSV data, or <tt>null</tt> if it is only on disk.
+		 */
+		final CSV		csv;
+		/**
+		 * The estimated size of the CSV data.
+		 */
+		final long		weight;
+
+		/**
+		 * Construct an instance of entry.
+		 *
+		 * @param etag
+		 *            the entity tag
+		 * @param lastModified
+		 *            the last modified time
+		 * @param charset
+		 *            the character set
+		 * @param csv
+		 *            the parsed CSV data
+		 */
+		Entry(String etag, String lastModified, Charset charset, CSV csv)
+		{
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.charset = charset;
+			this.csv = csv;
+			this.weight = csv == null ? 0 : csv.estimateSize();
+		}
+	}
+
+	/**
+	 * The maximum estimated size of the CSV data in memory.
+	 */
+	protected final long						maxBytes;
+	/**
+	 * The directory of the disk cache, or <tt>null</tt> if disabled.
+	 */
+	protected final File						directory;
+	/**
+	 * The maximum size of the cached files on disk.
+	 */
+	protected final long						maxDiskBytes;
+	/**
+	 * The cached entries in access order.
+	 */
+	private final LinkedHashMap<String, Entry>	entries;
+	/**
+	 * The estimated size of the CSV data in memory.
+	 */
+	private long								weight;
+	/**
+	 * The amount of requests answered by "304 Not Modified".
+	 */
+	private long								hits;
+	/**
+	 * The amount of response bodies downloaded.
+	 */
+	private long								downloads;
+
+	/**
+	 * Construct an instance of memory only URL cache.
+	 *
+	 * @param maxBytes
+	 *            the maximum estimated size of the CSV data in memory
+	 */
+	public CSVURLCache(long maxBytes)
+	{
+		this(maxBytes, null, 0);
+	}
+
+	/**
+	 * Construct an instance of URL cache with a disk cache.
+	 *
+	 * @param maxBytes
+	 *            the maximum estimated size of the CSV data in memory
+	 * @param directory
+	 *            the directory of the disk cache, or <tt>null</tt> to disable
+	 *            the disk cache
+	 * @param maxDiskBytes
+	 *            the maximum size of the cached files on disk
+	 */
+	public CSVURLCache(long maxBytes, File directory, long maxDiskBytes)
+	{
+		if (maxBytes <= 0)
+			throw new IllegalArgumentException(String.format(
+					"Illegal byte budget: %d.", maxBytes));
+		if (directory != null && !directory.isDirectory()
+				&& !directory.mkdirs())
+			throw new IllegalArgumentException(String.format(
+					"Cannot create the cache directory \"%s\".", directory));
+		this.maxBytes = maxBytes;
+		this.directory = directory;
+		this.maxDiskBytes = maxDiskBytes;
+		entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	}
+
+	/**
+	 * Read the CSV data through the specified HTTP connection, which has not
+	 * been connected yet.
+	 *
+	 * @param reader
+	 *            the reader which parses the response
+	 * @param http
+	 *            the HTTP connection
+	 * @return CSV instance, which should not be modified
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	protected CSV read(CSVReader reader, HttpURLConnection http)
+			throws IOException
+	{
+		String key = String.format("%s\n%s\n%b\n%s\n%c\n%c\n%b",
+				http.getURL(), reader.getCharset(), reader.isTitled(),
+				reader.getDelimiter(), reader.getSeparator(),
+				reader.getQuote(), reader.isTrim());
+		String name = name(key);
+		Entry entry = get(key, name);
+		if (entry != null)
+		{
+			if (entry.etag != null)
+				http.setRequestProperty("If-None-Match", entry.etag);
+			if (entry.lastModified != null)
+				http.setRequestProperty("If-Modified-Since",
+						entry.lastModified);
+		}
+		if (entry != null
+				&& http.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED)
+		{
+			http.disconnect();
+			synchronized (this)
+			{
+				hits++;
+			}
+			if (entry.csv != null)
+				return entry.csv;
+			File body = new File(directory, name + BODY);
+			CSV csv = reader.read(new FileInputStream(body), entry.charset,
+					reader.isTitled());
+			body.setLastModified(System.currentTimeMillis());
+			put(key, new Entry(entry.etag, entry.lastModified,
+					entry.charset, csv));
+			return csv;
+		}
+		reader.checkContentType(http);
+		Charset charset = reader.charset(http);
+		byte[] bytes = download(http.getInputStream(), reader.getBufferSize());
+		synchronized (this)
+		{
+			downloads++;
+		}
+		CSV csv = reader.read(new ByteArrayInputStream(bytes), charset,
+				reader.isTitled());
+		String etag = http.getHeaderField("ETag");
+		String lastModified = http.getHeaderField("Last-Modified");
+		if (etag == null && lastModified == null)
+			remove(key, name);
+		else
+		{
+			if (directory != null)
+				store(name, etag, lastModified, charset, bytes);
+			put(key, new Entry(etag, lastModified, charset, csv));
+		}
+		return csv;
+	}
+
+	/**
+	 * Returns the cached entry from memory or from disk.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @param name
+	 *            the file name of the entry on disk
+	 * @return the cached entry, or <tt>null</tt> if not found
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private Entry get(String key, String name) throws IOException
+	{
+		synchronized (this)
+		{
+			Entry entry = entries.get(key);
+			if (entry != null)
+				return entry;
+		}
+		if (directory == null)
+			return null;
+		File meta = new File(directory, name + META);
+		if (!meta.isFile() || !new File(directory, name + BODY).isFile())
+			return null;
+		Properties p = new Properties();
+		InputStream in = new FileInputStream(meta);
+		try
+		{
+			p.load(in);
+		}
+		finally
+		{
+			in.close();
+		}
+		return new Entry(p.getProperty("etag"),
+				p.getProperty("lastModified"), Charset.forName(p
+						.getProperty("charset")), null);
+	}
+
+	/**
+	 * Put the parsed entry into memory and evict the least recently used
+	 * entries until the memory cache fits the byte budget.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @param entry
+	 *            the parsed entry
+	 */
+	private synchronized void put(String key, Entry entry)
+	{
+		Entry old = entries.remove(key);
+		if (old != null)
+			weight -= old.weight;
+		if (entry.csv == null || entry.weight > maxBytes)
+			return;
+		entries.put(key, entry);
+		weight += entry.weight;
+		Iterator<Entry> it = entries.values().iterator();
+		while (weight > maxBytes && it.hasNext())
+		{
+			weight -= it.next().weight;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Remove the entry from memory and from disk.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @param name
+	 *            the file name of the entry on disk
+	 */
+	private void remove(String key, String name)
+	{
+		synchronized (this)
+		{
+			Entry old = entries.remove(key);
+			if (old != null)
+				weight -= old.weight;
+		}
+		if (directory != null)
+		{
+			new File(directory, name + META).delete();
+			new File(directory, name + BODY).delete();
+		}
+	}
+
+	/**
+	 * Store the response body and its validators on disk, and delete the
+	 * least recently used files until the disk cache fits the byte budget.
+	 *
+	 * @param name
+	 *            the file name of the entry on disk
+	 * @param etag
+	 *            the entity tag
+	 * @param lastModified
+	 *            the last modified time
+	 * @param charset
+	 *            the character set
+	 * @param bytes
+	 *            the response body
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private void store(String name, String etag, String lastModified,
+			Charset charset, byte[] bytes) throws IOException
+	{
+		if (bytes.length > maxDiskBytes)
+			return;
+		Properties p = new Properties();
+		if (etag != null)
+			p.setProperty("etag", etag);
+		if (lastModified != null)
+			p.setProperty("lastModified", lastModified);
+		p.setProperty("charset", charset.name());
+		File body = new File(directory, name + BODY);
+		File meta = new File(directory, name + META);
+		File temp = File.createTempFile(name, ".tmp", directory);
+		OutputStream out = new FileOutputStream(temp);
+		try
+		{
+			out.write(bytes);
+		}
+		finally
+		{
+			out.close();
+		}
+		body.delete();
+		if (!temp.renameTo(body))
+		{
+			temp.delete();
+			return;
+		}
+		out = new FileOutputStream(meta);
+		try
+		{
+			p.store(out, null);
+		}
+		finally
+		{
+			out.close();
+		}
+		trim();
+	}
+
+	/**
+	 * Delete the least recently used files until the disk cache fits the
+	 * byte budget.
+	 */
+	private synchronized void trim()
+	{
+		File[] files = directory.listFiles();
+		if (files == null)
+			return;
+		long size = 0;
+		for (File f : files)
+			if (f.getName().endsWith(BODY))
+				size += f.length();
+		Arrays.sort(files, new Comparator<File>() {
+			public int compare(File a, File b)
+			{
+				long x = a.lastModified(), y = b.lastModified();
+				return x < y ? -1 : x == y ? 0 : 1;
+			}
+		});
+		for (int i = 0; i < files.length && size > maxDiskBytes; i++)
+		{
+			String n = files[i].getName();
+			if (!n.endsWith(BODY))
+				continue;
+			size -= files[i].length();
+			files[i].delete();
+			new File(directory, n.substring(0, n.length() - BODY.length())
+					+ META).delete();
+		}
+	}
+
+	/**
+	 * Download the whole response body.
+	 *
+	 * @param in
+	 *            the input stream of the response
+	 * @param bufferSize
+	 *            the buffer size
+	 * @return the response body
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private static byte[] download(InputStream in, int bufferSize)
+			throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(bufferSize);
+		byte[] buffer = new byte[bufferSize];
+		try
+		{
+			int r;
+			while ((r = in.read(buffer)) != -1)
+				out.write(buffer, 0, r);
+		}
+		finally
+		{
+			in.close();
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Returns the file name of the entry on disk.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @return the file name without suffix
+	 */
+	private static String name(String key)
+	{
+		try
+		{
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(
+					key.getBytes("UTF-8"));
+			StringBuilder sb = new StringBuilder(digest.length * 2);
+			for (byte b : digest)
+				sb.append(String.format("%02x", b & 0xff));
+			return sb.toString();
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		catch (UnsupportedEncodingException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Remove all the cached data in memory and on disk.
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+		weight = 0;
+		if (directory != null)
+		{
+			File[] files = directory.listFiles();
+			if (files != null)
+				for (File f : files)
+					if (f.getName().endsWith(BODY)
+							|| f.getName().endsWith(META))
+						f.delete();
+		}
+	}
+
+	/**
+	 * Returns the estimated size of the CSV data in memory.
+	 *
+	 * @return the estimated size
+	 */
+	public synchronized long getWeight()
+	{
+		return weight;
+	}
+
+	/**
+	 * Returns the amount of requests answered by "304 Not Modified".
+	 *
+	 * @return the amount of hits
+	 */
+	public synchronized long getHitCount()
+	{
+		return hits;
+	}
+
+	/**
+	 * Returns the amount of response bodies downloaded.
+	 *
+	 * @return the amount of downloads
+	 */
+	public synchronized long getDownloadCount()
+	{
+		return downloads;
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	public synchronized String toString()
+	{
+		return String.format(
+				"CSVURLCache[size=%d, weight=%d/%d, hits=%d, downloads=%d]",
+				entries.size(), weight, maxBytes, hits, downloads);
+	}
+}
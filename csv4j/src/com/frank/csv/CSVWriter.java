@@ -10,7 +10,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
+import java.util.function.Function;
 
 /**
  * The writer for a CSV file.
@@ -23,11 +25,15 @@ public class CSVWriter
 	/**
 	 * The delimiter for row data.
 	 */
-	protected String	delimiter	= "\r\n";
+	protected String						delimiter	= "\r\n";
 	/**
 	 * The character set of the CSV file.
 	 */
-	protected Charset	charset;
+	protected Charset						charset;
+	/**
+	 * The metrics listener, or <tt>null</tt> if the writes are not measured.
+	 */
+	protected volatile CSVMetricsListener	metricsListener;
 
 	/**
 	 * Get the character set of the CSV file.
@@ -80,17 +86,117 @@ public class CSVWriter
 	 */
 	public void write(CSV csv, OutputStream out) throws IOException
 	{
-		OutputStreamWriter writer = new OutputStreamWriter(out, charset);
-		if (delimiter.equals(csv.delimiter))
-			writer.append(csv.toString());
-		else
+		CSVMetricsListener listener = metricsListener;
+		CSVMetrics metrics = null;
+		long start = 0;
+		if (listener != null)
 		{
-			String temp = csv.delimiter;
-			csv.setDelimiter(delimiter);
-			writer.append(csv.toString());
-			csv.setDelimiter(temp);
+			metrics = new CSVMetrics();
+			start = System.nanoTime();
+			out = new CSVMetrics.MeasuredOutputStream(out, metrics);
 		}
+		Writer writer = new OutputStreamWriter(out, charset);
+		if (listener != null)
+			writer = new CSVMetrics.MeasuredWriter(writer, metrics);
+		csv.write(writer, delimiter);
 		writer.close();
+		if (listener != null)
+		{
+			metrics.rows = csv.rows();
+			metrics.fields = (long) csv.rows() * csv.columns();
+			metrics.totalNanos = System.nanoTime() - start;
+			metrics.add(CSVMetrics.Stage.FORMAT, metrics.totalNanos
+					- metrics.getNanos(CSVMetrics.Stage.IO));
+			metrics.quotedFields = quoted(csv);
+			listener.writeCompleted(metrics);
+		}
+	}
+
+	/**
+	 * Returns the amount of the quoted fields in the data rows, which are the
+	 * fields containing commas.
+	 * 
+	 * @param csv
+	 *            the written CSV data
+	 * @return the amount of the quoted fields
+	 */
+	private static long quoted(CSV csv)
+	{
+		long quoted = 0;
+		int rows = csv.rows();
+		for (int row = 0; row < rows; row++)
+			for (String s : csv.getRow(row))
+				if (s != null && s.indexOf(',') > -1)
+					quoted++;
+		return quoted;
+	}
+
+	/**
+	 * Open a streaming row writer on the specified output stream. The rows
+	 * are written one by one instead of being collected in a {@link CSV}
+	 * instance.
+	 * 
+	 * @param out
+	 *            the specified output stream
+	 * @return the row writer, which should be closed after use
+	 */
+	public CSVRowWriter open(OutputStream out)
+	{
+		return new CSVRowWriter(new OutputStreamWriter(out, charset),
+				delimiter);
+	}
+
+	/**
+	 * Open a streaming row writer on the specified file.
+	 * 
+	 * @param file
+	 *            the specified file
+	 * @return the row writer, which should be closed after use
+	 * @throws IOException
+	 *             if I/O error occurs
+	 */
+	public CSVRowWriter open(File file) throws IOException
+	{
+		return open(new FileOutputStream(file));
+	}
+
+	/**
+	 * Open a streaming row writer on the specified file, which may append the
+	 * rows to the existing content. The first appended row is preceded by
+	 * the delimiter if the file is not empty. The character sets which write
+	 * a byte order mark, such as UTF-16, write it again at the appended
+	 * position.
+	 * 
+	 * @param file
+	 *            the specified file
+	 * @param append
+	 *            the flag whether the rows are appended to the file
+	 * @return the row writer, which should be closed after use
+	 * @throws IOException
+	 *             if I/O error occurs
+	 */
+	public CSVRowWriter open(File file, boolean append) throws IOException
+	{
+		boolean separate = append && file.length() > 0;
+		return new CSVRowWriter(new OutputStreamWriter(new FileOutputStream(
+				file, append), charset), delimiter, separate);
+	}
+
+	/**
+	 * Open a partitioned writer, which routes each row to the file named by
+	 * the key function in the specified directory.
+	 * 
+	 * @param directory
+	 *            the directory of the partition files
+	 * @param key
+	 *            the function from a row to the name of its partition file
+	 * @return the partitioned writer, which should be closed after use
+	 * @see CSVPartitionedWriter
+	 */
+	public CSVPartitionedWriter openPartitioned(File directory,
+			Function<String[], String> key)
+	{
+		return new CSVPartitionedWriter(this, directory, key);
 	}
 
 	/**
@@ -122,4 +228,59 @@ public class CSVWriter
 	{
 		write(csv, new FileOutputStream(new File(filename)));
 	}
+
+	/**
+	 * Get the current delimiter.
+	 * 
+	 * @return the delimiter
+	 */
+	public String getDelimiter()
+	{
+		return delimiter;
+	}
+
+	/**
+	 * Set the current delimiter, which is written between lines.
+	 * 
+	 * @param delimiter
+	 *            the value of delimiter
+	 */
+	public void setDelimiter(String delimiter)
+	{
+		this.delimiter = delimiter;
+	}
+
+	/**
+	 * Set the current delimiter, which is written between lines.
+	 * 
+	 * @param delimiter
+	 *            the value of delimiter
+	 */
+	public void setDelimiter(char delimiter)
+	{
+		this.delimiter = Character.toString(delimiter);
+	}
+
+	/**
+	 * Get the metrics listener.
+	 * 
+	 * @return the metrics listener, or <tt>null</tt> if the writes are not
+	 *         measured
+	 */
+	public CSVMetricsListener getMetricsListener()
+	{
+		return metricsListener;
+	}
+
+	/**
+	 * Set the metrics listener, which receives the metrics of each write
+	 * operation.
+	 * 
+	 * @param metricsListener
+	 *            the metrics listener, or <tt>null</tt> to stop measuring
+	 */
+	public void setMetricsListener(CSVMetricsListener metricsListener)
+	{
+		this.metricsListener = metricsListener;
+	}
 }
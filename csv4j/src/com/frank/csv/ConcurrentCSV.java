@@ -0,0 +1,581 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * ConcurrentCSV.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+/**
+ * The thread-safe CSV data set class, which is designed for many readers and
+ * occasional writers.
+ * <p>
+ * The data is kept in an immutable snapshot, which is published through a
+ * volatile reference. The read operations never lock, they read the current
+ * snapshot and see a consistent state of the titles, the title map and the
+ * rows. The write operations are serialized, each of them copies the changed
+ * part of the snapshot (the row pointers and the modified row) and publishes
+ * the new snapshot at once. Use {@link #update(String[], String[][])} to
+ * publish a bulk update atomically instead of a series of
+ * {@link #setData(int, int, String)} calls.
+ * </p>
+ * <p>
+ * The protected fields inherited from {@link CSV} are not used by this class,
+ * always access the data through the methods.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class ConcurrentCSV extends CSV
+{
+	/**
+	 * The immutable state of the concurrent CSV data.
+	 */
+	static final class Snapshot
+	{
+		/**
+		 * The amount of columns.
+		 */
+		final int						columns;
+		/**
+		 * The titles for each columns.
+		 */
+		final String[]					titles;
+		/**
+		 * The map which bound the title string with its index in the
+		 * {@link #titles}.
+		 */
+		final HashMap<String, Integer>	map;
+		/**
+		 * The CSV data.
+		 */
+		final String[][]				data;
+
+		/**
+		 * Construct an instance of snapshot.
+		 *
+		 * @param columns
+		 *            the amount of columns
+		 * @param titles
+		 *            the titles, or <tt>null</tt> if untitled
+		 * @param map
+		 *            the title map, or <tt>null</tt> if untitled
+		 * @param data
+		 *            the CSV data
+		 */
+		Snapshot(int columns, String[] titles, HashMap<String, Integer> map,
+				String[][] data)
+		{
+			this.columns = columns;
+			this.titles = titles;
+			this.map = map;
+			this.data = data;
+		}
+	}
+
+	/**
+	 * The lock for the write operations.
+	 */
+	private final Object		lock	= new Object();
+	/**
+	 * The current snapshot.
+	 */
+	private volatile Snapshot	snapshot;
+	/**
+	 * The delimiter for row data.
+	 */
+	private volatile String		concurrentDelimiter;
+
+	/**
+	 * Construct an instance of concurrent CSV data.
+	 *
+	 * @param columns
+	 *            the amount of columns
+	 * @param rows
+	 *            the amount of rows
+	 * @param isTitled
+	 *            the flag for the data whether it is titled
+	 */
+	public ConcurrentCSV(int columns, int rows, boolean isTitled)
+	{
+		super(columns, 0, false);
+		concurrentDelimiter = delimiter;
+		String[] titles = isTitled ? new String[columns] : null;
+		HashMap<String, Integer> map = isTitled ? new HashMap<String, Integer>(
+				columns) : null;
+		snapshot = new Snapshot(columns, titles, map,
+				new String[rows][columns]);
+	}
+
+	/**
+	 * Construct an instance of concurrent CSV data with a copy of the
+	 * specified CSV data.
+	 *
+	 * @param csv
+	 *            the specified CSV data
+	 */
+	public ConcurrentCSV(CSV csv)
+	{
+		super(csv.columns(), 0, false);
+		concurrentDelimiter = csv.getDelimiter();
+		int rows = csv.rows();
+		String[][] data = new String[rows][];
+		for (int row = 0; row < rows; row++)
+			data[row] = csv.getRow(row).clone();
+		String[] titles = csv.isTitled() ? csv.getTitles().clone() : null;
+		snapshot = new Snapshot(csv.columns(), titles, map(titles), data);
+	}
+
+	/**
+	 * Build the title map for the specified titles.
+	 *
+	 * @param titles
+	 *            the titles, or <tt>null</tt> if untitled
+	 * @return the title map, or <tt>null</tt> if untitled
+	 */
+	private static HashMap<String, Integer> map(String[] titles)
+	{
+		if (titles == null)
+			return null;
+		HashMap<String, Integer> map = new HashMap<String, Integer>(
+				titles.length);
+		for (int i = 0; i < titles.length; i++)
+			map.put(titles[i], i);
+		return map;
+	}
+
+	/**
+	 * Check the bounds of the specified field in the snapshot.
+	 *
+	 * @param s
+	 *            the snapshot
+	 * @param row
+	 *            the row index of the field
+	 * @param column
+	 *            the column index of the field
+	 */
+	private static void check(Snapshot s, int row, int column)
+	{
+		if (row < 0 || row >= s.data.length || column < 0
+				|| column >= s.columns)
+			throw new ArrayIndexOutOfBoundsException(
+					String.format(
+							"The request field(row, column) = (%d, %d) is out of the bounds of (%d, %d)",
+							row, column, s.data.length, s.columns));
+	}
+
+	/**
+	 * Check the bounds of the specified row in the snapshot.
+	 *
+	 * @param s
+	 *            the snapshot
+	 * @param row
+	 *            the row index
+	 */
+	private static void check(Snapshot s, int row)
+	{
+		if (row < 0 || row >= s.data.length)
+			throw new ArrayIndexOutOfBoundsException(String.format(
+					"The request row %d is out of the bounds of %d", row,
+					s.data.length));
+	}
+
+	/**
+	 * Returns the index of the title in the snapshot.
+	 *
+	 * @param s
+	 *            the snapshot
+	 * @param title
+	 *            the specified title
+	 * @return the index of the title
+	 * @throws NoSuchElementException
+	 *             if the title is not found
+	 */
+	private static int index(Snapshot s, String title)
+	{
+		if (s.titles == null)
+			throw new IllegalStateException(
+					"The current CSV data contains no titles.");
+		Integer index = s.map.get(title);
+		if (index == null)
+			throw new NoSuchElementException(String.format(
+					"There is no such title \"%s\" in current CSV data.",
+					title));
+		return index;
+	}
+
+	/**
+	 * @see com.frank.csv.CSV#rows()
+	 */
+	@Override
+	public int rows()
+	{
+		return snapshot.data.length;
+	}
+
+	/**
+	 * @see com.frank.csv.CSV#columns()
+	 */
+	@Override
+	public int columns()
+	{
+		return snapshot.columns;
+	}
+
+	/**
+	 * @see com.frank.csv.CSV#isTitled()
+	 */
+	@Override
+	public boolean isTitled()
+	{
+		return snapshot.titles != null;
+	}
+
+	/**
+	 * Returns a copy of the titles for this CSV data.
+	 *
+	 * @see com.frank.csv.CSV#getTitles()
+	 */
+	@Override
+	public String[] getTitles()
+	{
+		String[] titles = snapshot.titles;
+		if (titles == null)
+			throw new IllegalStateException(
+					"The current CSV data contains no titles.");
+		else
+			return titles.clone();
+	}
+
+	/**
+	 * @see com.frank.csv.CSV#index(java.lang.String)
+	 */
+	@Override
+	protected int index(String title)
+	{
+		Snapshot s = snapshot;
+		if (s.titles == null)
+			throw new IllegalStateException(
+					"The current CSV data contains no titles.");
+		Integer index = s.map.get(title);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Set the titles for this CSV data. The titles and the title map are
+	 * published together.
+	 *
+	 * @see com.frank.csv.CSV#setTitles(java.lang.String[])
+	 */
+	@Override
+	public void setTitles(String[] titles)
+	{
+		if (titles == null)
+			throw new IllegalStateException(
+					"The current CSV data contains no titles.");
+		synchronized (lock)
+		{
+			Snapshot s = snapshot;
+			if (s.titles == null)
+				throw new IllegalStateException(
+						"The current CSV data contains no titles.");
+			if (titles.length != s.columns)
+				throw new IllegalArgumentException(
+						String.format(
+								"The length of input title array(%d) is not compatible with the columns size(%d).",
+								titles.length, s.columns));
+			titles = titles.clone();
+			snapshot = new Snapshot(s.columns, titles, map(titles), s.data);
+		}
+	}
+
+	/**
+	 * @see com.frank.csv.CSV#getData(int, int)
+	 */
+	@Override
+	public String getData(int row, int column)
+	{
+		Snapshot s = snapshot;
+		check(s, row, column);
+		return s.data[row][column];
+	}
+
+	/**
+	 * @see com.frank.csv.CSV#getData(int, java.lang.String)
+	 */
+	@Override
+	public String getData(int row, String title)
+	{
+		Snapshot s = snapshot;
+		int column = index(s, title);
+		check(s, row, column);
+		return s.data[row][column];
+	}
+
+	/**
+	 * Returns a copy of the specified row, all the fields are read from the
+	 * same snapshot.
+	 *
+	 * @see com.frank.csv.CSV#getRow(int)
+	 */
+	@Override
+	public String[] getRow(int row)
+	{
+		Snapshot s = snapshot;
+		check(s, row);
+		return s.data[row].clone();
+	}
+
+	/**
+	 * Returns a stream of copies of the rows, all the rows are read from the
+	 * snapshot at the time of this call.
+	 *
+	 * @see com.frank.csv.CSV#stream()
+	 */
+	@Override
+	public Stream<String[]> stream()
+	{
+		return Arrays.stream(snapshot.data).map(String[]::clone);
+	}
+
+	/**
+	 * Returns a stream of the fields in the specified column, all the fields
+	 * are read from the snapshot at the time of this call.
+	 *
+	 * @see com.frank.csv.CSV#column(int)
+	 */
+	@Override
+	public Stream<String> column(int column)
+	{
+		Snapshot s = snapshot;
+		if (column < 0 || column >= s.columns)
+			throw new ArrayIndexOutOfBoundsException(String.format(
+					"The request column %d is out of the bounds of %d",
+					column, s.columns));
+		return Arrays.stream(s.data).map(line -> line[column]);
+	}
+
+	/**
+	 * Set the specified field in CSV data. The modified row is copied and
+	 * published with a new snapshot.
+	 *
+	 * @see com.frank.csv.CSV#setData(int, int, java.lang.String)
+	 */
+	@Override
+	public void setData(int row, int column, String s)
+	{
+		synchronized (lock)
+		{
+			Snapshot snapshot = this.snapshot;
+			check(snapshot, row, column);
+			set(snapshot, row, column, s);
+		}
+	}
+
+	/**
+	 * @see com.frank.csv.CSV#setData(int, java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void setData(int row, String title, String s)
+	{
+		synchronized (lock)
+		{
+			Snapshot snapshot = this.snapshot;
+			int column = index(snapshot, title);
+			check(snapshot, row, column);
+			set(snapshot, row, column, s);
+		}
+	}
+
+	/**
+	 * Publish a new snapshot with the specified field changed. The caller
+	 * should hold the {@link #lock}.
+	 *
+	 * @param s
+	 *            the current snapshot
+	 * @param row
+	 *            the row index of the field
+	 * @param column
+	 *            the column index of the field
+	 * @param value
+	 *            the field value
+	 */
+	private void set(Snapshot s, int row, int column, String value)
+	{
+		String[][] data = s.data.clone();
+		data[row] = data[row].clone();
+		data[row][column] = value;
+		snapshot = new Snapshot(s.columns, s.titles, s.map, data);
+	}
+
+	/**
+	 * Replace the whole CSV data atomically. The readers see either the old
+	 * data or the new data, never a mixture. The arrays are copied, so that
+	 * the caller can reuse them.
+	 *
+	 * @param titles
+	 *            the new titles, or <tt>null</tt> if the data is untitled
+	 * @param data
+	 *            the new CSV data, each row should contain the same amount of
+	 *            columns
+	 */
+	public void update(String[] titles, String[][] data)
+	{
+		int columns = titles != null ? titles.length : data.length > 0 ? data[0].length
+				: 0;
+		String[][] copy = new String[data.length][];
+		for (int row = 0; row < data.length; row++)
+		{
+			if (data[row].length != columns)
+				throw new IllegalArgumentException(
+						String.format(
+								"The length of row %d(%d) is not compatible with the columns size(%d).",
+								row, data[row].length, columns));
+			copy[row] = data[row].clone();
+		}
+		titles = titles == null ? null : titles.clone();
+		HashMap<String, Integer> map = map(titles);
+		synchronized (lock)
+		{
+			snapshot = new Snapshot(columns, titles, map, copy);
+		}
+	}
+
+	/**
+	 * Replace the whole CSV data atomically with a copy of the specified CSV
+	 * data.
+	 *
+	 * @param csv
+	 *            the specified CSV data
+	 */
+	public void update(CSV csv)
+	{
+		int rows = csv.rows();
+		String[][] data = new String[rows][];
+		for (int row = 0; row < rows; row++)
+			data[row] = csv.getRow(row);
+		update(csv.isTitled() ? csv.getTitles() : null, data);
+	}
+
+	/**
+	 * Returns a deep copy of the current data, which is read from one
+	 * snapshot.
+	 *
+	 * @see com.frank.csv.CSV#getData()
+	 */
+	@Override
+	public String[][] getData()
+	{
+		String[][] data = snapshot.data;
+		String[][] copy = new String[data.length][];
+		for (int row = 0; row < data.length; row++)
+			copy[row] = data[row].clone();
+		return copy;
+	}
+
+	/**
+	 * Returns a plain CSV data copied from the current snapshot.
+	 *
+	 * @return the CSV data
+	 */
+	public CSV toCSV()
+	{
+		Snapshot s = snapshot;
+		CSV csv = new CSV(s.columns, s.data.length, s.titles != null);
+		if (s.titles != null)
+			csv.setTitles(s.titles.clone());
+		for (int row = 0; row < s.data.length; row++)
+			System.arraycopy(s.data[row], 0, csv.data[row], 0, s.columns);
+		csv.setDelimiter(concurrentDelimiter);
+		return csv;
+	}
+
+	/**
+	 * @see com.frank.csv.CSV#estimateSize()
+	 */
+	@Override
+	public long estimateSize()
+	{
+		Snapshot s = snapshot;
+		long size = align(16 + 4L * s.data.length);
+		if (s.titles != null)
+			size += sizeOf(s.titles) + 48L * s.titles.length;
+		for (String[] line : s.data)
+			size += sizeOf(line);
+		return size;
+	}
+
+	/**
+	 * Write the CSV data of one snapshot.
+	 *
+	 * @see com.frank.csv.CSV#write(java.lang.Appendable, java.lang.String)
+	 */
+	@Override
+	protected void write(Appendable a, String delimiter) throws IOException
+	{
+		Snapshot s = snapshot;
+		boolean first = true;
+		if (s.titles != null)
+		{
+			writeLine(a, s.titles, "");
+			first = false;
+		}
+		for (String[] line : s.data)
+		{
+			if (!first)
+				a.append(delimiter);
+			writeLine(a, line, "");
+			first = false;
+		}
+	}
+
+	/**
+	 * @see com.frank.csv.CSV#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		try
+		{
+			write(sb, concurrentDelimiter);
+		}
+		catch (IOException e)
+		{
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @see com.frank.csv.CSV#getDelimiter()
+	 */
+	@Override
+	public String getDelimiter()
+	{
+		return concurrentDelimiter;
+	}
+
+	/**
+	 * @see com.frank.csv.CSV#setDelimiter(java.lang.String)
+	 */
+	@Override
+	public void setDelimiter(String delimiter)
+	{
+		concurrentDelimiter = delimiter;
+	}
+
+	/**
+	 * @see com.frank.csv.CSV#setDelimiter(char)
+	 */
+	@Override
+	public void setDelimiter(char delimiter)
+	{
+		concurrentDelimiter = Character.toString(delimiter);
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * LongHashMap.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+/**
+ * The open addressing hash map from <tt>long</tt> keys to <tt>long</tt>
+ * values, which keeps the entries in primitive arrays. The keys are usually
+ * 64-bit hashes of the rows, so they are already well distributed.
+ * <p>
+ * The key 0 marks the empty slots, it is stored out of the arrays.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+final class LongHashMap
+{
+	/**
+	 * The amount of heap bytes of each slot.
+	 */
+	static final int	SLOT_SIZE	= 16;
+
+	/**
+	 * The keys of the slots.
+	 */
+	private long[]		keys;
+	/**
+	 * The values of the slots.
+	 */
+	private long[]		values;
+	/**
+	 * The amount of entries in the arrays.
+	 */
+	private int			size;
+	/**
+	 * The flag whether the key 0 is contained.
+	 */
+	private boolean		hasZero;
+	/**
+	 * The value of the key 0.
+	 */
+	private long		zero;
+
+	/**
+	 * Construct an instance of empty map.
+	 */
+	LongHashMap()
+	{
+		keys = new long[16];
+		values = new long[16];
+	}
+
+	/**
+	 * Returns the slot of the key, which contains the key or is empty.
+	 *
+	 * @param key
+	 *            the non-zero key
+	 * @return the slot
+	 */
+	private int slot(long key)
+	{
+		int mask = keys.length - 1;
+		int i = (int) (key ^ key >>> 32) & mask;
+		while (keys[i] != 0 && keys[i] != key)
+			i = i + 1 & mask;
+		return i;
+	}
+
+	/**
+	 * Put an entry, the previous value of the key is replaced.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 */
+	void put(long key, long value)
+	{
+		if (key == 0)
+		{
+			hasZero = true;
+			zero = value;
+			return;
+		}
+		int i = slot(key);
+		if (keys[i] == 0)
+		{
+			if ((size + 1) * 2 > keys.length)
+			{
+				rehash(keys.length * 2);
+				i = slot(key);
+			}
+			keys[i] = key;
+			size++;
+		}
+		values[i] = value;
+	}
+
+	/**
+	 * Returns the state that whether the key is contained.
+	 *
+	 * @param key
+	 *            the key
+	 * @return <tt>true</tt> if the key is contained
+	 */
+	boolean containsKey(long key)
+	{
+		return key == 0 ? hasZero : keys[slot(key)] != 0;
+	}
+
+	/**
+	 * Returns the value of the key.
+	 *
+	 * @param key
+	 *            the key
+	 * @param missing
+	 *            the value returned if the key is not contained
+	 * @return the value
+	 */
+	long get(long key, long missing)
+	{
+		if (key == 0)
+			return hasZero ? zero : missing;
+		int i = slot(key);
+		return keys[i] == 0 ? missing : values[i];
+	}
+
+	/**
+	 * Returns the amount of entries.
+	 *
+	 * @return the size
+	 */
+	int size()
+	{
+		return size + (hasZero ? 1 : 0);
+	}
+
+	/**
+	 * Returns the estimated amount of heap bytes of the arrays.
+	 *
+	 * @return the estimated size in bytes
+	 */
+	long bytes()
+	{
+		return (long) keys.length * SLOT_SIZE;
+	}
+
+	/**
+	 * Remove all the entries and release the arrays.
+	 */
+	void clear()
+	{
+		keys = new long[16];
+		values = new long[16];
+		size = 0;
+		hasZero = false;
+	}
+
+	/**
+	 * Resize the arrays.
+	 *
+	 * @param capacity
+	 *            the new capacity, which is a power of two
+	 */
+	private void rehash(int capacity)
+	{
+		long[] oldKeys = keys, oldValues = values;
+		keys = new long[capacity];
+		values = new long[capacity];
+		for (int i = 0; i < oldKeys.length; i++)
+			if (oldKeys[i] != 0)
+			{
+				int j = slot(oldKeys[i]);
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString()
+	{
+		return String.format("LongHashMap[size=%d, capacity=%d]", size(),
+				keys.length);
+	}
+}
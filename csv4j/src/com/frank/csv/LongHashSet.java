@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * LongHashSet.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+/**
+ * The open addressing hash set of <tt>long</tt> elements, which keeps the
+ * elements in a primitive array. The elements are usually 64-bit hashes of
+ * the rows, so they are already well distributed.
+ * <p>
+ * The element 0 marks the empty slots, it is stored out of the array.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ * @see LongHashMap
+ */
+final class LongHashSet
+{
+	/**
+	 * The amount of heap bytes of each slot.
+	 */
+	static final int	SLOT_SIZE	= 8;
+
+	/**
+	 * The elements of the slots.
+	 */
+	private long[]		elements;
+	/**
+	 * The amount of elements in the array.
+	 */
+	private int			size;
+	/**
+	 * The flag whether the element 0 is contained.
+	 */
+	private boolean		hasZero;
+
+	/**
+	 * Construct an instance of empty set.
+	 */
+	LongHashSet()
+	{
+		elements = new long[16];
+	}
+
+	/**
+	 * Returns the slot of the element, which contains the element or is
+	 * empty.
+	 *
+	 * @param element
+	 *            the non-zero element
+	 * @return the slot
+	 */
+	private int slot(long element)
+	{
+		int mask = elements.length - 1;
+		int i = (int) (element ^ element >>> 32) & mask;
+		while (elements[i] != 0 && elements[i] != element)
+			i = i + 1 & mask;
+		return i;
+	}
+
+	/**
+	 * Add an element.
+	 *
+	 * @param element
+	 *            the element
+	 * @return <tt>true</tt> if the element is not contained before
+	 */
+	boolean add(long element)
+	{
+		if (element == 0)
+		{
+			if (hasZero)
+				return false;
+			return hasZero = true;
+		}
+		int i = slot(element);
+		if (elements[i] != 0)
+			return false;
+		if ((size + 1) * 2 > elements.length)
+		{
+			rehash(elements.length * 2);
+			i = slot(element);
+		}
+		elements[i] = element;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Returns the state that whether the element is contained.
+	 *
+	 * @param element
+	 *            the element
+	 * @return <tt>true</tt> if the element is contained
+	 */
+	boolean contains(long element)
+	{
+		return element == 0 ? hasZero : elements[slot(element)] != 0;
+	}
+
+	/**
+	 * Returns the amount of elements.
+	 *
+	 * @return the size
+	 */
+	int size()
+	{
+		return size + (hasZero ? 1 : 0);
+	}
+
+	/**
+	 * Returns the estimated amount of heap bytes of the array.
+	 *
+	 * @return the estimated size in bytes
+	 */
+	long bytes()
+	{
+		return (long) elements.length * SLOT_SIZE;
+	}
+
+	/**
+	 * Remove all the elements and release the array.
+	 */
+	void clear()
+	{
+		elements = new long[16];
+		size = 0;
+		hasZero = false;
+	}
+
+	/**
+	 * Resize the array.
+	 *
+	 * @param capacity
+	 *            the new capacity, which is a power of two
+	 */
+	private void rehash(int capacity)
+	{
+		long[] old = elements;
+		elements = new long[capacity];
+		for (long element : old)
+			if (element != 0)
+				elements[slot(element)] = element;
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString()
+	{
+		return String.format("LongHashSet[size=%d, capacity=%d]", size(),
+				elements.length);
+	}
+}
@@ -0,0 +1,738 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * OffHeapCSV.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.Closeable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * The CSV data set class, which keeps the cells out of the Java heap.
+ * <p>
+ * The cells are encoded in UTF-8 and appended to direct byte buffers, the
+ * offset and the length of each cell are kept in direct byte buffers as well.
+ * Only the titles and the buffer references are on the heap, so the size of
+ * the data does not affect the garbage collection pauses. The strings are
+ * decoded on each access, the typed getters such as
+ * {@link #getLong(int, int)} parse the bytes in place without creating
+ * strings.
+ * </p>
+ * <p>
+ * The memory is released by {@link #close()}, the data cannot be accessed
+ * afterwards. The reads in flight are counted, so the memory is released by
+ * the last of them if the data is closed while they are running. The
+ * updates by {@link #setData(int, int, String)} append the new bytes and
+ * leave the old bytes unused until the data is closed. The reads can be
+ * made from many threads, but the updates must be synchronized by the
+ * callers.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class OffHeapCSV extends CSV implements Closeable
+{
+	/**
+	 * The default size of the cell chunks.
+	 */
+	public static final int					DEFAULT_CHUNK_SIZE	= 1 << 24;
+	/**
+	 * The amount of bits of the cells in an index chunk.
+	 */
+	private static final int				INDEX_BITS			= 16;
+	/**
+	 * The amount of bytes of an index entry, which contains the address and
+	 * the length of a cell.
+	 */
+	private static final int				ENTRY				= 12;
+	/**
+	 * The powers of ten which are exactly representable in <tt>double</tt>.
+	 */
+	private static final double[]			POWERS				= new double[23];
+	static
+	{
+		POWERS[0] = 1;
+		for (int i = 1; i < POWERS.length; i++)
+			POWERS[i] = POWERS[i - 1] * 10;
+	}
+
+	/**
+	 * The size of the cell chunks.
+	 */
+	protected final int						chunkSize;
+	/**
+	 * The cell chunks.
+	 */
+	private final ArrayList<ByteBuffer>		chunks				= new ArrayList<ByteBuffer>();
+	/**
+	 * The index chunks.
+	 */
+	private final ArrayList<ByteBuffer>		indexes				= new ArrayList<ByteBuffer>();
+	/**
+	 * The write position in the last cell chunk.
+	 */
+	private int								position;
+	/**
+	 * The amount of off-heap bytes allocated.
+	 */
+	private long							allocated;
+	/**
+	 * The flag for the data whether it is closed.
+	 */
+	private volatile boolean				closed;
+	/**
+	 * The amount of accesses to the off-heap memory in flight, whose sign
+	 * bit is set when the data is closed, so that the last access and the
+	 * close agree on which of them frees the memory.
+	 */
+	private final AtomicInteger				accesses			= new AtomicInteger();
+	/**
+	 * The flag for the memory whether it is freed.
+	 */
+	private final AtomicBoolean				freed				= new AtomicBoolean();
+
+	/**
+	 * Construct an instance of empty off-heap CSV data.
+	 *
+	 * @param columns
+	 *            the amount of columns
+	 * @param isTitled
+	 *            the flag for the data whether it is titled
+	 */
+	public OffHeapCSV(int columns, boolean isTitled)
+	{
+		this(columns, isTitled, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Construct an instance of empty off-heap CSV data with the specified
+	 * chunk size.
+	 *
+	 * @param columns
+	 *            the amount of columns
+	 * @param isTitled
+	 *            the flag for the data whether it is titled
+	 * @param chunkSize
+	 *            the size of the cell chunks in bytes
+	 */
+	public OffHeapCSV(int columns, boolean isTitled, int chunkSize)
+	{
+		super(columns, 0, isTitled);
+		if (chunkSize < 16)
+			throw new IllegalArgumentException(String.format(
+					"The chunk size(%d) is too small.", chunkSize));
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Construct an instance of off-heap CSV data with a copy of the
+	 * specified CSV data.
+	 *
+	 * @param csv
+	 *            the specified CSV data
+	 */
+	public OffHeapCSV(CSV csv)
+	{
+		this(csv.columns(), csv.isTitled());
+		if (csv.isTitled())
+			setTitles(csv.getTitles().clone());
+		for (int row = 0; row < csv.rows(); row++)
+			append(csv.getRow(row));
+	}
+
+	/**
+	 * Append a row to the end of the data, the missing fields are set to
+	 * null.
+	 *
+	 * @param line
+	 *            the fields of the row
+	 */
+	public void append(String[] line)
+	{
+		checkOpen();
+		if (line.length > columns)
+			throw new ArrayIndexOutOfBoundsException(String.format(
+					"The length of the row(%d) exceeds the columns size(%d).",
+					line.length, columns));
+		acquire();
+		try
+		{
+			long cells = (long) (rows + 1) * columns;
+			while ((long) indexes.size() << INDEX_BITS < cells)
+				indexes.add(allocate(ENTRY << INDEX_BITS));
+			int row = rows++;
+			for (int column = 0; column < columns; column++)
+				put(row, column, column < line.length ? line[column] : null);
+		}
+		finally
+		{
+			release();
+		}
+	}
+
+	/**
+	 * Write the cell and its index entry.
+	 *
+	 * @param row
+	 *            the row index
+	 * @param column
+	 *            the column index
+	 * @param s
+	 *            the cell, or <tt>null</tt>
+	 */
+	private void put(int row, int column, String s)
+	{
+		long cell = (long) row * columns + column;
+		ByteBuffer index = index(cell);
+		int entry = entry(cell);
+		if (s == null)
+		{
+			index.putLong(entry, 0);
+			index.putInt(entry + 8, -1);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		if (chunks.isEmpty()
+				|| chunks.get(chunks.size() - 1).capacity() - position < bytes.length)
+		{
+			chunks.add(allocate(Math.max(chunkSize, bytes.length)));
+			position = 0;
+		}
+		// copy in bulk through a duplicate, the position of the shared buffer
+		// is left untouched for the concurrent readers
+		ByteBuffer chunk = chunks.get(chunks.size() - 1).duplicate();
+		chunk.position(position);
+		chunk.put(bytes);
+		index.putLong(entry, (long) (chunks.size() - 1) << 32 | position);
+		index.putInt(entry + 8, bytes.length);
+		position += bytes.length;
+	}
+
+	/**
+	 * Allocate a direct byte buffer.
+	 *
+	 * @param capacity
+	 *            the capacity
+	 * @return the buffer
+	 */
+	private ByteBuffer allocate(int capacity)
+	{
+		ByteBuffer buffer = ByteBuffer.allocateDirect(capacity);
+		allocated += capacity;
+		return buffer;
+	}
+
+	/**
+	 * Check that the data is not closed.
+	 */
+	private void checkOpen()
+	{
+		if (closed)
+			throw new IllegalStateException("The CSV data has been closed.");
+	}
+
+	/**
+	 * Start an access to the off-heap memory, which must be ended by
+	 * {@link #release()}. The memory is not freed while it is accessed.
+	 */
+	private void acquire()
+	{
+		if (accesses.incrementAndGet() < 0)
+		{
+			release();
+			checkOpen();
+		}
+	}
+
+	/**
+	 * End an access to the off-heap memory, the memory is freed by the last
+	 * access if the data has been closed.
+	 */
+	private void release()
+	{
+		if (accesses.decrementAndGet() == Integer.MIN_VALUE)
+			free();
+	}
+
+	/**
+	 * Check the bounds of the column index.
+	 *
+	 * @param column
+	 *            the column index
+	 */
+	private void checkColumn(int column)
+	{
+		checkOpen();
+		if (column < 0 || column >= columns)
+			throw new ArrayIndexOutOfBoundsException(String.format(
+					"The request column %d is out of the bounds of %d",
+					column, columns));
+	}
+
+	/**
+	 * Check the bounds of the field.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param column
+	 *            the column index of the field
+	 */
+	private void checkBounds(int row, int column)
+	{
+		checkOpen();
+		if (row < 0 || row >= rows || column < 0 || column >= columns)
+			throw new ArrayIndexOutOfBoundsException(
+					String.format(
+							"The request field(row, column) = (%d, %d) is out of the bounds of (%d, %d)",
+							row, column, rows, columns));
+	}
+
+	/**
+	 * Returns the index chunk of the specified cell.
+	 *
+	 * @param cell
+	 *            the cell number, which is <tt>row * columns + column</tt>
+	 * @return the index chunk
+	 */
+	private ByteBuffer index(long cell)
+	{
+		return indexes.get((int) (cell >>> INDEX_BITS));
+	}
+
+	/**
+	 * Returns the position of the index entry of the specified cell in its
+	 * index chunk. The entry contains the address of the cell, which is the
+	 * chunk number in the high 32 bits and the position in the low 32 bits,
+	 * and the length of the cell, which is -1 if the cell is null.
+	 *
+	 * @param cell
+	 *            the cell number, which is <tt>row * columns + column</tt>
+	 * @return the position of the entry
+	 */
+	private static int entry(long cell)
+	{
+		return (int) (cell & ((1 << INDEX_BITS) - 1)) * ENTRY;
+	}
+
+	/**
+	 * @see com.frank.csv.CSV#getData(int, int)
+	 */
+	public String getData(int row, int column)
+	{
+		acquire();
+		try
+		{
+			checkBounds(row, column);
+			long cell = (long) row * columns + column;
+			ByteBuffer index = index(cell);
+			int entry = entry(cell);
+			int length = index.getInt(entry + 8);
+			if (length == -1)
+				return null;
+			long address = index.getLong(entry);
+			ByteBuffer chunk = chunks.get((int) (address >>> 32)).duplicate();
+			chunk.position((int) address);
+			byte[] bytes = new byte[length];
+			chunk.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+		finally
+		{
+			release();
+		}
+	}
+
+	/**
+	 * Set the specified field, the new bytes are appended and the old bytes
+	 * are left unused.
+	 *
+	 * @see com.frank.csv.CSV#setData(int, int, java.lang.String)
+	 */
+	public void setData(int row, int column, String s)
+	{
+		acquire();
+		try
+		{
+			checkBounds(row, column);
+			put(row, column, s);
+		}
+		finally
+		{
+			release();
+		}
+	}
+
+	/**
+	 * Returns a copy of the specified row, which is decoded from the
+	 * off-heap memory.
+	 *
+	 * @see com.frank.csv.CSV#getRow(int)
+	 */
+	public String[] getRow(int row)
+	{
+		checkOpen();
+		if (row < 0 || row >= rows)
+			throw new ArrayIndexOutOfBoundsException(String.format(
+					"The request row %d is out of the bounds of %d", row,
+					rows));
+		String[] line = new String[columns];
+		for (int column = 0; column < columns; column++)
+			line[column] = getData(row, column);
+		return line;
+	}
+
+	/**
+	 * Returns a copy of the whole data on the heap, which should be avoided
+	 * for large data.
+	 *
+	 * @see com.frank.csv.CSV#getData()
+	 */
+	public String[][] getData()
+	{
+		String[][] data = new String[rows][];
+		for (int row = 0; row < rows; row++)
+			data[row] = getRow(row);
+		return data;
+	}
+
+	/**
+	 * Returns the state that whether the specified field is null.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param column
+	 *            the column index of the field
+	 * @return <tt>true</tt> if the field is null
+	 */
+	public boolean isNull(int row, int column)
+	{
+		acquire();
+		try
+		{
+			checkBounds(row, column);
+			long cell = (long) row * columns + column;
+			return index(cell).getInt(entry(cell) + 8) == -1;
+		}
+		finally
+		{
+			release();
+		}
+	}
+
+	/**
+	 * Returns the specified field as a <tt>long</tt> value, which is parsed
+	 * from the off-heap bytes.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param column
+	 *            the column index of the field
+	 * @return the value
+	 * @throws NumberFormatException
+	 *             if the field is not a <tt>long</tt> value
+	 */
+	public long getLong(int row, int column)
+	{
+		acquire();
+		try
+		{
+			checkBounds(row, column);
+			long cell = (long) row * columns + column;
+			ByteBuffer index = index(cell);
+			int entry = entry(cell);
+			int length = index.getInt(entry + 8);
+			if (length <= 0)
+				throw new NumberFormatException(String.format(
+						"The field(row, column) = (%d, %d) is empty.", row,
+						column));
+			long address = index.getLong(entry);
+			ByteBuffer chunk = chunks.get((int) (address >>> 32));
+			int offset = (int) address;
+			int end = offset + length;
+			boolean negative = false;
+			byte first = chunk.get(offset);
+			if (first == '-' || first == '+')
+			{
+				negative = first == '-';
+				if (++offset == end)
+					throw numberFormat(row, column);
+			}
+			long value = 0;
+			for (int i = offset; i < end; i++)
+			{
+				int digit = chunk.get(i) - '0';
+				if (digit < 0 || digit > 9)
+					throw numberFormat(row, column);
+				// accumulate negatively to reach Long.MIN_VALUE
+				if (value < (Long.MIN_VALUE + digit) / 10)
+					throw numberFormat(row, column);
+				value = value * 10 - digit;
+			}
+			if (!negative)
+			{
+				if (value == Long.MIN_VALUE)
+					throw numberFormat(row, column);
+				value = -value;
+			}
+			return value;
+		}
+		finally
+		{
+			release();
+		}
+	}
+
+	/**
+	 * Returns the specified field as an <tt>int</tt> value, which is parsed
+	 * from the off-heap bytes.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param column
+	 *            the column index of the field
+	 * @return the value
+	 * @throws NumberFormatException
+	 *             if the field is not an <tt>int</tt> value
+	 */
+	public int getInt(int row, int column)
+	{
+		long value = getLong(row, column);
+		if (value != (int) value)
+			throw numberFormat(row, column);
+		return (int) value;
+	}
+
+	/**
+	 * Returns the specified field as a <tt>double</tt> value. The decimal
+	 * numbers with at most 15 significant digits are parsed from the
+	 * off-heap bytes exactly, the others are parsed by
+	 * {@link Double#parseDouble(String)}.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param column
+	 *            the column index of the field
+	 * @return the value
+	 * @throws NumberFormatException
+	 *             if the field is not a <tt>double</tt> value
+	 */
+	public double getDouble(int row, int column)
+	{
+		acquire();
+		try
+		{
+			checkBounds(row, column);
+			long cell = (long) row * columns + column;
+			ByteBuffer index = index(cell);
+			int entry = entry(cell);
+			int length = index.getInt(entry + 8);
+			if (length <= 0)
+				throw new NumberFormatException(String.format(
+						"The field(row, column) = (%d, %d) is empty.", row,
+						column));
+			long address = index.getLong(entry);
+			ByteBuffer chunk = chunks.get((int) (address >>> 32));
+			int offset = (int) address;
+			int end = offset + length;
+			boolean negative = false;
+			byte first = chunk.get(offset);
+			if (first == '-' || first == '+')
+			{
+				negative = first == '-';
+				offset++;
+			}
+			long mantissa = 0;
+			int digits = 0, scale = 0;
+			boolean point = false, simple = offset < end;
+			for (int i = offset; i < end && simple; i++)
+			{
+				byte b = chunk.get(i);
+				if (b == '.' && !point)
+					point = true;
+				else if (b >= '0' && b <= '9')
+				{
+					if (mantissa > 0 || b != '0')
+						digits++;
+					mantissa = mantissa * 10 + b - '0';
+					if (point)
+						scale++;
+				}
+				else
+					simple = false;
+			}
+			if (simple && digits <= 15 && scale < POWERS.length
+					&& (end - offset > 1 || !point))
+			{
+				double value = mantissa / POWERS[scale];
+				return negative ? -value : value;
+			}
+			return Double.parseDouble(getData(row, column));
+		}
+		finally
+		{
+			release();
+		}
+	}
+
+	/**
+	 * Returns a {@link NumberFormatException} for the specified field.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param column
+	 *            the column index of the field
+	 * @return the exception
+	 */
+	private NumberFormatException numberFormat(int row, int column)
+	{
+		return new NumberFormatException(String.format(
+				"The field(row, column) = (%d, %d) is not a valid number: %s",
+				row, column, getData(row, column)));
+	}
+
+	/**
+	 * Returns a stream of the values parsed from the off-heap bytes.
+	 *
+	 * @see com.frank.csv.CSV#intColumn(int)
+	 */
+	public IntStream intColumn(int column)
+	{
+		checkColumn(column);
+		return IntStream.range(0, rows).map(row -> getInt(row, column));
+	}
+
+	/**
+	 * Returns a stream of the values parsed from the off-heap bytes.
+	 *
+	 * @see com.frank.csv.CSV#longColumn(int)
+	 */
+	public LongStream longColumn(int column)
+	{
+		checkColumn(column);
+		return IntStream.range(0, rows).mapToLong(row -> getLong(row, column));
+	}
+
+	/**
+	 * Returns a stream of the values parsed from the off-heap bytes.
+	 *
+	 * @see com.frank.csv.CSV#doubleColumn(int)
+	 */
+	public DoubleStream doubleColumn(int column)
+	{
+		checkColumn(column);
+		return IntStream.range(0, rows).mapToDouble(
+				row -> getDouble(row, column));
+	}
+
+	/**
+	 * Returns the estimated amount of heap bytes retained by this data,
+	 * which does not contain the off-heap memory.
+	 *
+	 * @see com.frank.csv.CSV#estimateSize()
+	 */
+	public long estimateSize()
+	{
+		long size = 64L * (chunks.size() + indexes.size()) + 64;
+		if (titles != null)
+			size += sizeOf(titles) + 48L * titles.length;
+		return size;
+	}
+
+	/**
+	 * Returns the amount of off-heap bytes allocated by this data.
+	 *
+	 * @return the off-heap size in bytes
+	 */
+	public long getOffHeapSize()
+	{
+		return allocated;
+	}
+
+	/**
+	 * Release the off-heap memory. The memory is freed at once if no read is
+	 * in flight and the running JVM allows it, otherwise it is freed by the
+	 * last read in flight, or by the garbage collector later.
+	 *
+	 * @see java.io.Closeable#close()
+	 */
+	public void close()
+	{
+		closed = true;
+		int count;
+		do
+		{
+			count = accesses.get();
+			if (count < 0)
+				return;
+		}
+		while (!accesses.compareAndSet(count, count | Integer.MIN_VALUE));
+		if (count == 0)
+			free();
+	}
+
+	/**
+	 * Free the off-heap memory once, after the data is closed and no access
+	 * is in flight.
+	 */
+	private void free()
+	{
+		if (!freed.compareAndSet(false, true))
+			return;
+		for (ByteBuffer buffer : chunks)
+			free(buffer);
+		for (ByteBuffer buffer : indexes)
+			free(buffer);
+		chunks.clear();
+		indexes.clear();
+		allocated = 0;
+		rows = 0;
+	}
+
+	/**
+	 * Free a direct byte buffer. The cleaner is invoked through
+	 * <tt>sun.misc.Unsafe.invokeCleaner</tt> on Java 9 and later, or through
+	 * <tt>sun.nio.ch.DirectBuffer.cleaner</tt> on Java 8.
+	 *
+	 * @param buffer
+	 *            the direct byte buffer
+	 */
+	private static void free(ByteBuffer buffer)
+	{
+		try
+		{
+			Class<?> c = Class.forName("sun.misc.Unsafe");
+			Field field = c.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			Method method = c.getMethod("invokeCleaner", ByteBuffer.class);
+			method.invoke(field.get(null), buffer);
+			return;
+		}
+		catch (Exception e)
+		{
+			// not Java 9 or later, try the cleaner of Java 8
+		}
+		try
+		{
+			Method method = buffer.getClass().getMethod("cleaner");
+			method.setAccessible(true);
+			Object cleaner = method.invoke(buffer);
+			if (cleaner != null)
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+		}
+		catch (Exception e)
+		{
+			// the buffer is freed by the garbage collector
+		}
+	}
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * RowFile.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The temporary file of rows, which is used by the operations that spill
+ * their intermediate data to disk.
+ * <p>
+ * The rows are stored in a binary format instead of the CSV format, so that
+ * the empty fields, the <tt>null</tt> fields and the fields containing
+ * delimiters or quotations are kept exactly. The fields are encoded in the
+ * modified UTF-8 of {@link DataOutputStream#writeUTF(String)} without its
+ * length limit, which keeps the unpaired surrogates as well.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+final class RowFile
+{
+	/**
+	 * The buffer size of the streams.
+	 */
+	private static final int		BUFFER	= 1 << 16;
+	/**
+	 * The temporary file.
+	 */
+	final File						file;
+	/**
+	 * The flag whether the file is compressed.
+	 */
+	final boolean					compress;
+	/**
+	 * The amount of rows written.
+	 */
+	long							rows;
+
+	/**
+	 * Construct an instance of temporary row file.
+	 *
+	 * @param directory
+	 *            the directory of the file, or <tt>null</tt> for the default
+	 *            temporary directory
+	 * @param compress
+	 *            the flag whether the file is compressed
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	RowFile(File directory, boolean compress) throws IOException
+	{
+		this.file = File.createTempFile("csv4j", ".rows", directory);
+		this.compress = compress;
+	}
+
+	/**
+	 * Open the file for writing, the previous content is discarded.
+	 *
+	 * @return the output of the file
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	Output openOutput() throws IOException
+	{
+		rows = 0;
+		OutputStream out = new FileOutputStream(file);
+		if (compress)
+			out = new GZIPOutputStream(out, BUFFER);
+		return new Output(new DataOutputStream(new BufferedOutputStream(out,
+				BUFFER)));
+	}
+
+	/**
+	 * Open the file for reading.
+	 *
+	 * @return the input of the file
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	Input openInput() throws IOException
+	{
+		InputStream in = new FileInputStream(file);
+		if (compress)
+			in = new GZIPInputStream(in, BUFFER);
+		return new Input(new DataInputStream(new BufferedInputStream(in,
+				BUFFER)));
+	}
+
+	/**
+	 * Delete the file.
+	 */
+	void delete()
+	{
+		file.delete();
+	}
+
+	/**
+	 * The output of a row file.
+	 */
+	final class Output implements Closeable, CSVRowHandler
+	{
+		/**
+		 * The underlying data output stream.
+		 */
+		private final DataOutputStream	out;
+		/**
+		 * The buffer of the encoded fields.
+		 */
+		private byte[]					buffer	= new byte[256];
+
+		/**
+		 * Construct an instance of output.
+		 *
+		 * @param out
+		 *            the underlying data output stream
+		 */
+		Output(DataOutputStream out)
+		{
+			this.out = out;
+		}
+
+		/**
+		 * Write a row.
+		 *
+		 * @param row
+		 *            the fields of the row
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		public void handle(String[] row) throws IOException
+		{
+			out.writeInt(row.length);
+			for (String s : row)
+				if (s == null)
+					out.writeInt(-1);
+				else
+				{
+					int n = encode(s);
+					out.writeInt(n);
+					out.write(buffer, 0, n);
+				}
+			rows++;
+		}
+
+		/**
+		 * Encode a field into the buffer in the modified UTF-8.
+		 *
+		 * @param s
+		 *            the field
+		 * @return the amount of the encoded bytes
+		 */
+		private int encode(String s)
+		{
+			int length = s.length();
+			if (buffer.length < 3 * length)
+				buffer = new byte[Math.max(3 * length, 2 * buffer.length)];
+			int n = 0;
+			for (int i = 0; i < length; i++)
+			{
+				char c = s.charAt(i);
+				if (c >= 0x01 && c <= 0x7f)
+					buffer[n++] = (byte) c;
+				else if (c <= 0x7ff)
+				{
+					buffer[n++] = (byte) (0xc0 | c >> 6);
+					buffer[n++] = (byte) (0x80 | c & 0x3f);
+				}
+				else
+				{
+					buffer[n++] = (byte) (0xe0 | c >> 12);
+					buffer[n++] = (byte) (0x80 | c >> 6 & 0x3f);
+					buffer[n++] = (byte) (0x80 | c & 0x3f);
+				}
+			}
+			return n;
+		}
+
+		/**
+		 * Write a row with a tag, which is read back by
+		 * {@link Input#readTagged()}.
+		 *
+		 * @param tag
+		 *            the tag of the row
+		 * @param row
+		 *            the fields of the row
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		void handle(long tag, String[] row) throws IOException
+		{
+			out.writeLong(tag);
+			handle(row);
+		}
+
+		/**
+		 * @see java.io.Closeable#close()
+		 */
+		public void close() throws IOException
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * The input of a row file.
+	 */
+	static final class Input implements Closeable
+	{
+		/**
+		 * The underlying data input stream.
+		 */
+		private final DataInputStream	in;
+		/**
+		 * The tag of the last row read by {@link #readTagged()}.
+		 */
+		long							tag;
+		/**
+		 * The buffer of the encoded fields.
+		 */
+		private byte[]					buffer	= new byte[256];
+		/**
+		 * The buffer of the decoded fields.
+		 */
+		private char[]					chars	= new char[256];
+
+		/**
+		 * Construct an instance of input.
+		 *
+		 * @param in
+		 *            the underlying data input stream
+		 */
+		Input(DataInputStream in)
+		{
+			this.in = in;
+		}
+
+		/**
+		 * Read the next row.
+		 *
+		 * @return the fields of the row, or <tt>null</tt> if the end of the
+		 *         file has been reached
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		String[] read() throws IOException
+		{
+			int length;
+			try
+			{
+				length = in.readInt();
+			}
+			catch (EOFException e)
+			{
+				return null;
+			}
+			String[] row = new String[length];
+			for (int i = 0; i < length; i++)
+			{
+				int n = in.readInt();
+				if (n >= 0)
+				{
+					if (buffer.length < n)
+						buffer = new byte[Math.max(n, 2 * buffer.length)];
+					in.readFully(buffer, 0, n);
+					row[i] = decode(n);
+				}
+			}
+			return row;
+		}
+
+		/**
+		 * Decode a field from the buffer in the modified UTF-8.
+		 *
+		 * @param n
+		 *            the amount of the encoded bytes
+		 * @return the field
+		 */
+		private String decode(int n)
+		{
+			if (chars.length < n)
+				chars = new char[Math.max(n, 2 * chars.length)];
+			int count = 0;
+			for (int i = 0; i < n;)
+			{
+				int b = buffer[i++];
+				if (b >= 0)
+					chars[count++] = (char) b;
+				else if ((b & 0xe0) == 0xc0)
+					chars[count++] = (char) ((b & 0x1f) << 6
+							| buffer[i++] & 0x3f);
+				else
+				{
+					chars[count++] = (char) ((b & 0x0f) << 12
+							| (buffer[i] & 0x3f) << 6 | buffer[i + 1] & 0x3f);
+					i += 2;
+				}
+			}
+			return new String(chars, 0, count);
+		}
+
+		/**
+		 * Read the next row written with a tag, the tag is stored in
+		 * {@link #tag}.
+		 *
+		 * @return the fields of the row, or <tt>null</tt> if the end of the
+		 *         file has been reached
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		String[] readTagged() throws IOException
+		{
+			try
+			{
+				tag = in.readLong();
+			}
+			catch (EOFException e)
+			{
+				return null;
+			}
+			return read();
+		}
+
+		/**
+		 * @see java.io.Closeable#close()
+		 */
+		public void close() throws IOException
+		{
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * RowKey.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.util.Arrays;
+
+/**
+ * The composite key of a row, which consists of the fields of the key columns.
+ * The missing fields of short rows are regarded as <tt>null</tt>.
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+final class RowKey
+{
+	/**
+	 * The fields of the key columns.
+	 */
+	final String[]		values;
+	/**
+	 * The cached hash code.
+	 */
+	private final int	hash;
+
+	/**
+	 * Construct an instance of row key.
+	 *
+	 * @param values
+	 *            the fields of the key columns
+	 */
+	RowKey(String[] values)
+	{
+		this.values = values;
+		this.hash = Arrays.hashCode(values);
+	}
+
+	/**
+	 * Returns the key of the specified row.
+	 *
+	 * @param row
+	 *            the specified row
+	 * @param columns
+	 *            the indices of the key columns
+	 * @return the key of the row
+	 */
+	static RowKey of(String[] row, int[] columns)
+	{
+		String[] values = new String[columns.length];
+		for (int i = 0; i < columns.length; i++)
+			values[i] = columns[i] < row.length ? row[columns[i]] : null;
+		return new RowKey(values);
+	}
+
+	/**
+	 * Resolve the indices of the specified titles.
+	 *
+	 * @param reader
+	 *            the row reader
+	 * @param titles
+	 *            the specified titles
+	 * @return the indices of the titles
+	 */
+	static int[] indices(CSVRowReader reader, String[] titles)
+	{
+		int[] indices = new int[titles.length];
+		for (int i = 0; i < titles.length; i++)
+			indices[i] = reader.index(titles[i]);
+		return indices;
+	}
+
+	/**
+	 * Returns the 64-bit hash of the fields of a row, which is the FNV-1a hash
+	 * of the characters finished by the MurmurHash3 mixer. The lengths of the
+	 * fields are hashed as well, so the shifted fields are distinguished. The
+	 * missing fields are hashed as empty ones, which are equal in the order of
+	 * {@link CSVSorter}.
+	 *
+	 * @param row
+	 *            the row
+	 * @param columns
+	 *            the indices of the hashed fields, or <tt>null</tt> for all
+	 *            the fields
+	 * @return the hash
+	 */
+	static long hash64(String[] row, int[] columns)
+	{
+		long h = 0xcbf29ce484222325L;
+		int n = columns == null ? row.length : columns.length;
+		for (int i = 0; i < n; i++)
+		{
+			int column = columns == null ? i : columns[i];
+			String s = column < row.length && row[column] != null ? row[column]
+					: "";
+			for (int j = 0; j < s.length(); j++)
+				h = (h ^ s.charAt(j)) * 0x100000001b3L;
+			h = (h ^ (s.length() | 1L << 32)) * 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode()
+	{
+		return hash;
+	}
+
+	/**
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals(Object o)
+	{
+		return o instanceof RowKey && hash == ((RowKey) o).hash
+				&& Arrays.equals(values, ((RowKey) o).values);
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString()
+	{
+		return Arrays.toString(values);
+	}
+}
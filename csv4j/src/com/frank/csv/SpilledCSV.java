@@ -0,0 +1,441 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * SpilledCSV.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The CSV data set class, which keeps the rows in temporary files and pages
+ * them in on demand.
+ * <p>
+ * The rows are grouped in chunks of a fixed amount of rows, each chunk is
+ * stored in its own temporary file. The chunks being accessed are cached in
+ * memory as pages, at most {@link #getMaxPages()} pages are cached and the
+ * least recently used page is evicted first. The modified pages are written
+ * back to their files when they are evicted. The accessors are synchronized,
+ * the I/O errors while paging are thrown as {@link UncheckedIOException}.
+ * </p>
+ * <p>
+ * The temporary files are deleted by {@link #close()}, the data cannot be
+ * accessed afterwards.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class SpilledCSV extends CSV implements Closeable
+{
+	/**
+	 * The page of a chunk cached in memory.
+	 */
+	private static final class Page
+	{
+		/**
+		 * The rows of the chunk.
+		 */
+		final String[][]	rows;
+		/**
+		 * The flag whether the page is modified since it is written.
+		 */
+		boolean				dirty;
+
+		/**
+		 * Construct an instance of page.
+		 *
+		 * @param rows
+		 *            the rows of the chunk
+		 */
+		Page(String[][] rows)
+		{
+			this.rows = rows;
+		}
+	}
+
+	/**
+	 * The amount of rows in a chunk.
+	 */
+	protected final int							rowsPerChunk;
+	/**
+	 * The maximum amount of cached pages.
+	 */
+	protected final int							maxPages;
+	/**
+	 * The directory of the temporary files, or <tt>null</tt> for the
+	 * default temporary directory.
+	 */
+	protected final File						directory;
+	/**
+	 * The files of the chunks, the element is <tt>null</tt> if the chunk is
+	 * never written.
+	 */
+	private final ArrayList<RowFile>			files	= new ArrayList<RowFile>();
+	/**
+	 * The cached pages in access order.
+	 */
+	private final LinkedHashMap<Integer, Page>	pages;
+	/**
+	 * The amount of pages read from the files.
+	 */
+	private long								pageIns;
+	/**
+	 * The amount of pages written to the files.
+	 */
+	private long								pageOuts;
+	/**
+	 * The flag for the data whether it is closed.
+	 */
+	private boolean								closed;
+
+	/**
+	 * Construct an instance of empty spilled CSV data.
+	 *
+	 * @param columns
+	 *            the amount of columns
+	 * @param isTitled
+	 *            the flag for the data whether it is titled
+	 * @param rowsPerChunk
+	 *            the amount of rows in a chunk
+	 * @param maxPages
+	 *            the maximum amount of cached pages
+	 * @param directory
+	 *            the directory of the temporary files, or <tt>null</tt> for
+	 *            the default temporary directory
+	 */
+	public SpilledCSV(int columns, boolean isTitled, int rowsPerChunk,
+			int maxPages, File directory)
+	{
+		super(columns, 0, isTitled);
+		if (rowsPerChunk < 1 || maxPages < 1)
+			throw new IllegalArgumentException(String.format(
+					"Invalid chunk size(%d) or page count(%d).",
+					rowsPerChunk, maxPages));
+		this.rowsPerChunk = rowsPerChunk;
+		this.maxPages = maxPages;
+		this.directory = directory;
+		this.pages = new LinkedHashMap<Integer, Page>(16, 0.75f, true);
+	}
+
+	/**
+	 * Append a row to the end of the data, the missing fields are set to
+	 * null.
+	 *
+	 * @param line
+	 *            the fields of the row
+	 * @throws IOException
+	 *             if an I/O error occurs while evicting a page.
+	 */
+	public synchronized void append(String[] line) throws IOException
+	{
+		checkOpen();
+		if (line.length > columns)
+			throw new ArrayIndexOutOfBoundsException(String.format(
+					"The length of the row(%d) exceeds the columns size(%d).",
+					line.length, columns));
+		int chunk = rows / rowsPerChunk;
+		Page page;
+		if (chunk == files.size())
+		{
+			files.add(null);
+			page = new Page(new String[rowsPerChunk][]);
+			pages.put(chunk, page);
+			evict();
+		}
+		else
+			page = page(chunk);
+		page.rows[rows % rowsPerChunk] = line.length == columns ? line
+				: Arrays.copyOf(line, columns);
+		page.dirty = true;
+		rows++;
+	}
+
+	/**
+	 * Returns the page of the specified chunk, which is read from its file
+	 * if it is not cached.
+	 *
+	 * @param chunk
+	 *            the chunk index
+	 * @return the page
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private Page page(int chunk) throws IOException
+	{
+		Page page = pages.get(chunk);
+		if (page != null)
+			return page;
+		String[][] rows = new String[rowsPerChunk][];
+		RowFile.Input in = files.get(chunk).openInput();
+		try
+		{
+			for (int i = 0; i < rows.length; i++)
+				if ((rows[i] = in.read()) == null)
+					break;
+		}
+		finally
+		{
+			in.close();
+		}
+		pageIns++;
+		page = new Page(rows);
+		pages.put(chunk, page);
+		evict();
+		return page;
+	}
+
+	/**
+	 * Evict the least recently used pages until the amount of cached pages
+	 * does not exceed the maximum, the modified pages are written back. A
+	 * page is kept cached if it fails to be written back.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private void evict() throws IOException
+	{
+		Iterator<Map.Entry<Integer, Page>> iterator = pages.entrySet()
+				.iterator();
+		while (pages.size() > maxPages)
+		{
+			Map.Entry<Integer, Page> eldest = iterator.next();
+			if (eldest.getValue().dirty)
+				write(eldest.getKey(), eldest.getValue());
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Write the page back to the file of its chunk.
+	 *
+	 * @param chunk
+	 *            the chunk index
+	 * @param page
+	 *            the page
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private void write(int chunk, Page page) throws IOException
+	{
+		RowFile file = files.get(chunk);
+		if (file == null)
+		{
+			file = new RowFile(directory, false);
+			files.set(chunk, file);
+		}
+		int count = Math.min(rowsPerChunk, rows - chunk * rowsPerChunk);
+		RowFile.Output out = file.openOutput();
+		try
+		{
+			for (int i = 0; i < count; i++)
+				out.handle(page.rows[i]);
+		}
+		finally
+		{
+			out.close();
+		}
+		page.dirty = false;
+		pageOuts++;
+	}
+
+	/**
+	 * Returns the cached row of the specified index.
+	 *
+	 * @param row
+	 *            the row index
+	 * @return the row
+	 */
+	private String[] row(int row)
+	{
+		try
+		{
+			return page(row / rowsPerChunk).rows[row % rowsPerChunk];
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Check that the data is not closed.
+	 */
+	private void checkOpen()
+	{
+		if (closed)
+			throw new IllegalStateException("The CSV data has been closed.");
+	}
+
+	/**
+	 * Check the bounds of the field.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param column
+	 *            the column index of the field
+	 */
+	private void checkBounds(int row, int column)
+	{
+		checkOpen();
+		if (row < 0 || row >= rows || column < 0 || column >= columns)
+			throw new ArrayIndexOutOfBoundsException(
+					String.format(
+							"The request field(row, column) = (%d, %d) is out of the bounds of (%d, %d)",
+							row, column, rows, columns));
+	}
+
+	/**
+	 * @see com.frank.csv.CSV#getData(int, int)
+	 */
+	public synchronized String getData(int row, int column)
+	{
+		checkBounds(row, column);
+		return row(row)[column];
+	}
+
+	/**
+	 * Set the specified field, the page of the row is written back when it
+	 * is evicted.
+	 *
+	 * @see com.frank.csv.CSV#setData(int, int, java.lang.String)
+	 */
+	public synchronized void setData(int row, int column, String s)
+	{
+		checkBounds(row, column);
+		try
+		{
+			Page page = page(row / rowsPerChunk);
+			page.rows[row % rowsPerChunk][column] = s;
+			page.dirty = true;
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns a copy of the specified row.
+	 *
+	 * @see com.frank.csv.CSV#getRow(int)
+	 */
+	public synchronized String[] getRow(int row)
+	{
+		checkOpen();
+		if (row < 0 || row >= rows)
+			throw new ArrayIndexOutOfBoundsException(String.format(
+					"The request row %d is out of the bounds of %d", row,
+					rows));
+		return row(row).clone();
+	}
+
+	/**
+	 * Returns a copy of the whole data on the heap, which should be avoided
+	 * for large data.
+	 *
+	 * @see com.frank.csv.CSV#getData()
+	 */
+	public synchronized String[][] getData()
+	{
+		String[][] data = new String[rows][];
+		for (int row = 0; row < rows; row++)
+			data[row] = getRow(row);
+		return data;
+	}
+
+	/**
+	 * Returns the estimated amount of heap bytes retained by the cached
+	 * pages and the titles.
+	 *
+	 * @see com.frank.csv.CSV#estimateSize()
+	 */
+	public synchronized long estimateSize()
+	{
+		long size = 64;
+		if (titles != null)
+			size += sizeOf(titles) + 48L * titles.length;
+		for (Page page : pages.values())
+		{
+			size += 16 + 4L * page.rows.length;
+			for (String[] line : page.rows)
+				if (line != null)
+					size += sizeOf(line);
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the amount of chunks.
+	 *
+	 * @return the amount of chunks
+	 */
+	public synchronized int getChunks()
+	{
+		return files.size();
+	}
+
+	/**
+	 * Returns the maximum amount of cached pages.
+	 *
+	 * @return the maximum amount of pages
+	 */
+	public int getMaxPages()
+	{
+		return maxPages;
+	}
+
+	/**
+	 * Returns the amount of pages read from the temporary files.
+	 *
+	 * @return the amount of page-ins
+	 */
+	public synchronized long getPageIns()
+	{
+		return pageIns;
+	}
+
+	/**
+	 * Returns the amount of pages written to the temporary files.
+	 *
+	 * @return the amount of page-outs
+	 */
+	public synchronized long getPageOuts()
+	{
+		return pageOuts;
+	}
+
+	/**
+	 * Delete the temporary files and drop the cached pages.
+	 *
+	 * @see java.io.Closeable#close()
+	 */
+	public synchronized void close()
+	{
+		if (closed)
+			return;
+		closed = true;
+		for (RowFile file : files)
+			if (file != null)
+				file.delete();
+		files.clear();
+		pages.clear();
+		rows = 0;
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	public synchronized String toString()
+	{
+		return super.toString();
+	}
+}
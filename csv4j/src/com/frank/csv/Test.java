@@ -8,14 +8,28 @@ package com.frank.csv;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.UnknownHostException;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 
 /**
  * Main.
@@ -110,4 +124,332 @@ public class Test
 		System.getProperties().put("proxyHost", host);
 		System.getProperties().put("proxyPort", Integer.toString(port));
 	}
+
+	/**
+	 * Benchmark the read throughput of {@link ConcurrentCSV} with different
+	 * amounts of reader threads, while a writer thread keeps publishing bulk
+	 * updates.
+	 * 
+	 * @throws Exception
+	 */
+	public static void benchConcurrentRead() throws Exception
+	{
+		final int rows = 10000, columns = 8;
+		final String[] titles = new String[columns];
+		final String[][] data = new String[rows][columns];
+		for (int column = 0; column < columns; column++)
+			titles[column] = "C" + column;
+		for (int row = 0; row < rows; row++)
+			for (int column = 0; column < columns; column++)
+				data[row][column] = row + ":" + column;
+		final ConcurrentCSV csv = new ConcurrentCSV(columns, rows, true);
+		csv.update(titles, data);
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads <= cores * 2; threads *= 2)
+		{
+			final AtomicBoolean running = new AtomicBoolean(true);
+			final CountDownLatch done = new CountDownLatch(threads);
+			final long[] reads = new long[threads];
+			Thread writer = new Thread() {
+				public void run()
+				{
+					while (running.get())
+					{
+						csv.update(titles, data);
+						try
+						{
+							Thread.sleep(1);
+						}
+						catch (InterruptedException e)
+						{
+							return;
+						}
+					}
+				}
+			};
+			writer.start();
+			for (int t = 0; t < threads; t++)
+			{
+				final int index = t;
+				new Thread() {
+					public void run()
+					{
+						long count = 0;
+						int row = index;
+						try
+						{
+							while (running.get())
+							{
+								for (int i = 0; i < 1000; i++)
+								{
+									row = (row + 7919) % rows;
+									if (csv.getData(row, "C3") == null)
+										throw new IllegalStateException();
+								}
+								count += 1000;
+							}
+						}
+						finally
+						{
+							reads[index] = count;
+							done.countDown();
+						}
+					}
+				}.start();
+			}
+			Thread.sleep(2000);
+			running.set(false);
+			done.await();
+			writer.join();
+			long total = 0;
+			for (long r : reads)
+				total += r;
+			System.out.printf("%2d reader(s): %,d reads/s\r\n", threads,
+					total / 2);
+		}
+	}
+
+	/**
+	 * Test the conditional requests of {@link CSVURLCache} against a local
+	 * HTTP stub.
+	 * 
+	 * @throws Exception
+	 */
+	public static void testURLCache() throws Exception
+	{
+		final byte[] body = "Date,Close\r\n2013-04-15,2.5".getBytes("UTF-8");
+		final AtomicInteger bodies = new AtomicInteger();
+		HttpServer server = HttpServer.create(new InetSocketAddress(
+				"127.0.0.1", 0), 0);
+		server.createContext("/table.csv", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst(
+						"If-None-Match")))
+					exchange.sendResponseHeaders(304, -1);
+				else
+				{
+					exchange.getResponseHeaders().set("Content-Type",
+							"text/csv");
+					exchange.getResponseHeaders().set("ETag", "\"v1\"");
+					exchange.sendResponseHeaders(200, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body);
+					bodies.incrementAndGet();
+				}
+				exchange.close();
+			}
+		});
+		server.start();
+		try
+		{
+			URL url = new URL(String.format("http://127.0.0.1:%d/table.csv",
+					server.getAddress().getPort()));
+			CSVReader reader = new CSVReader(Charset.forName("UTF-8"), true);
+			reader.setURLCache(new CSVURLCache(1 << 20));
+			CSV first = reader.read(url, Proxy.NO_PROXY, 1000);
+			CSV second = reader.read(url, Proxy.NO_PROXY, 1000);
+			System.out.printf("same instance: %b, bodies sent: %d, %s\r\n",
+					first == second, bodies.get(), reader.getURLCache());
+		}
+		finally
+		{
+			server.stop(0);
+		}
+	}
+
+	/**
+	 * Benchmark the parse time of the legacy {@link java.util.StringTokenizer}
+	 * path against the {@link CSVScanner} path, and check that both produce
+	 * the same data.
+	 * 
+	 * @throws Exception
+	 */
+	public static void benchTokenizer() throws Exception
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("id,name,price,comment\r\n");
+		for (int row = 0; row < 200000; row++)
+			sb.append(row).append(",name").append(row).append(',')
+					.append(row * 0.25).append(",\"a \"\"quoted\"\",text\"\r\n");
+		String content = sb.toString();
+		CSVReader scanner = new CSVReader(true);
+		CSVReader legacy = new CSVReader(true);
+		legacy.setLegacyTokenizer(true);
+		for (int round = 0; round < 5; round++)
+		{
+			long start = System.nanoTime();
+			CSV a = legacy.parse(content, true);
+			long middle = System.nanoTime();
+			CSV b = scanner.parse(content, true);
+			long end = System.nanoTime();
+			if (!Arrays.deepEquals(a.getData(), b.getData()))
+				throw new IllegalStateException("The results are different.");
+			System.out.printf("legacy: %d ms, scanner: %d ms\r\n",
+					(middle - start) / 1000000, (end - middle) / 1000000);
+		}
+	}
+
+	/**
+	 * Benchmark the heap usage and the garbage collection cost of a large
+	 * {@link CSV} against the same data in an {@link OffHeapCSV}.
+	 * 
+	 * @throws Exception
+	 */
+	public static void benchOffHeap() throws Exception
+	{
+		int rows = 1000000, columns = 6;
+		System.out.printf("%,d rows x %d columns\r\n", rows, columns);
+		CSV heap = new CSV(columns, rows, false);
+		for (int row = 0; row < rows; row++)
+			for (int column = 0; column < columns; column++)
+				heap.setData(row, column, "value-" + row + "-" + column);
+		report("String[][]", heap);
+		OffHeapCSV offHeap = new OffHeapCSV(heap);
+		heap = null;
+		report("OffHeapCSV", offHeap);
+		System.out.printf("off-heap bytes: %,d\r\n", offHeap.getOffHeapSize());
+		offHeap.close();
+	}
+
+	/**
+	 * Report the heap usage and the garbage collection cost of allocating
+	 * medium-lived garbage while the specified data is retained.
+	 * 
+	 * @param name
+	 *            the name of the storage
+	 * @param csv
+	 *            the retained CSV data
+	 */
+	private static void report(String name, CSV csv)
+	{
+		System.gc();
+		Runtime runtime = Runtime.getRuntime();
+		long used = runtime.totalMemory() - runtime.freeMemory();
+		long count = 0, time = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory
+				.getGarbageCollectorMXBeans())
+		{
+			count -= gc.getCollectionCount();
+			time -= gc.getCollectionTime();
+		}
+		// keep a window of medium-lived garbage while the data is retained
+		Object[] window = new Object[1 << 16];
+		long start = System.nanoTime();
+		for (int i = 0; i < 20000000; i++)
+			window[i & (window.length - 1)] = new byte[64];
+		long elapsed = System.nanoTime() - start;
+		for (GarbageCollectorMXBean gc : ManagementFactory
+				.getGarbageCollectorMXBeans())
+		{
+			count += gc.getCollectionCount();
+			time += gc.getCollectionTime();
+		}
+		System.out.printf(
+				"%s: heap used %,d KB, %d collections, %d ms in GC, churn %d ms, row 12345 = %s\r\n",
+				name, used / 1024, count, time, elapsed / 1000000,
+				Arrays.toString(csv.getRow(12345)));
+	}
+
+	/**
+	 * Test that the hash pass and the sort-merge fallback of {@link CSVDiff}
+	 * report the same differences.
+	 * 
+	 * @throws Exception
+	 */
+	public static void testDiff() throws Exception
+	{
+		File before = File.createTempFile("before", ".csv");
+		File after = File.createTempFile("after", ".csv");
+		try
+		{
+			Files.write(before.toPath(),
+					"x,\",\"\r\ny,2\r\nz,3\r\nw,4\r\n".getBytes("UTF-8"));
+			Files.write(after.toPath(),
+					"x\r\ny,2\r\nzz,3\r\nv,5\r\n".getBytes("UTF-8"));
+			CSVReader reader = new CSVReader(false);
+			CSVDiff hash = new CSVDiff(1);
+			CSVDiff merge = new CSVDiff(1);
+			merge.setMemoryBudget(1);
+			String a = describe(hash.diff(before, after, reader));
+			String b = describe(merge.diff(before, after, reader));
+			if (hash.isSorted() || !merge.isSorted() || !a.equals(b))
+				throw new IllegalStateException(String.format(
+						"The differences are different: %s and %s.", a, b));
+			System.out.printf("differences: %s\r\n", a);
+		}
+		finally
+		{
+			before.delete();
+			after.delete();
+		}
+	}
+
+	/**
+	 * Describe the differences in an order independent of the way they are
+	 * computed.
+	 * 
+	 * @param result
+	 *            the differences
+	 * @return the description
+	 */
+	private static String describe(CSVDiff.Result result)
+	{
+		List<String> lines = new ArrayList<String>();
+		for (String[] row : result.getAdded())
+			lines.add("+" + Arrays.toString(row));
+		for (String[] row : result.getRemoved())
+			lines.add("-" + Arrays.toString(row));
+		for (String[][] rows : result.getChanged())
+			lines.add(Arrays.toString(rows[0]) + ">" + Arrays.toString(rows[1]));
+		Collections.sort(lines);
+		return lines.toString();
+	}
+
+	/**
+	 * Test that a read spilled under a small memory budget pages its rows
+	 * back exactly.
+	 * 
+	 * @throws Exception
+	 */
+	public static void testSpill() throws Exception
+	{
+		int rows = 10000;
+		StringBuilder sb = new StringBuilder("id,name\r\n");
+		for (int row = 0; row < rows; row++)
+			sb.append(row).append(",name").append(row).append("\r\n");
+		File file = File.createTempFile("spill", ".csv");
+		try
+		{
+			Files.write(file.toPath(), sb.toString().getBytes("UTF-8"));
+			CSVReader reader = new CSVReader(true);
+			reader.setMemoryBudget(16 << 10);
+			reader.setBudgetPolicy(CSVReader.BudgetPolicy.SPILL);
+			CSV csv = reader.read(file);
+			if (!(csv instanceof SpilledCSV) || csv.rows != rows)
+				throw new IllegalStateException("The rows are not spilled.");
+			SpilledCSV spilled = (SpilledCSV) csv;
+			try
+			{
+				for (int row = rows - 1; row >= 0; row -= 7)
+					if (!String.valueOf(row).equals(spilled.getData(row, 0))
+							|| !("name" + row).equals(spilled.getData(row,
+									"name")))
+						throw new IllegalStateException(String.format(
+								"The row %d is different: %s.", row,
+								Arrays.toString(spilled.getRow(row))));
+				System.out.printf("%d chunks, %d page-ins, %d page-outs\r\n",
+						spilled.getChunks(), spilled.getPageIns(),
+						spilled.getPageOuts());
+			}
+			finally
+			{
+				spilled.close();
+			}
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
 }
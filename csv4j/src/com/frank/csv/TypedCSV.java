@@ -0,0 +1,997 @@
+/*
+ * Copyright (c) 2011, 2020, Frank Jiang and/or its affiliates. All rights
+ * reserved.
+ * TypedCSV.java is built in 2026-10-18.
+ */
+package com.frank.csv;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import com.frank.csv.CSVSchema.Type;
+
+/**
+ * The CSV data set class, which keeps each column in a primitive array
+ * according to a {@link CSVSchema}.
+ * <p>
+ * The fields are converted once at load time, the typed getters such as
+ * {@link #getInt(int, int)} and {@link #getDouble(int, int)} read the
+ * primitive arrays without parsing. The empty and missing fields are kept as
+ * nulls in a bitmap of each column. If a field does not match the type of its
+ * column, the column is promoted in the order of <tt>INT</tt>,
+ * <tt>LONG</tt>, <tt>DOUBLE</tt> and <tt>STRING</tt>, the other types are
+ * promoted to <tt>STRING</tt> directly.
+ * </p>
+ * <p>
+ * The string getters render the canonical text of the typed values, e.g. the
+ * field <tt>007</tt> in an <tt>INT</tt> column is returned as <tt>7</tt>.
+ * The protected {@link #data} field inherited from {@link CSV} is not used by
+ * this class, always access the data through the methods.
+ * </p>
+ *
+ * @author <a href="mailto:jiangfan0576@gmail.com">Frank Jiang</a>
+ * @version 1.0.0
+ */
+public class TypedCSV extends CSV
+{
+	/**
+	 * The typed storage of a column.
+	 */
+	static abstract class Column
+	{
+		/**
+		 * The null bitmap.
+		 */
+		final BitSet	nulls	= new BitSet();
+
+		/**
+		 * Returns the type of the column.
+		 *
+		 * @return the type
+		 */
+		abstract Type type();
+
+		/**
+		 * Resize the column to the specified capacity.
+		 *
+		 * @param capacity
+		 *            the new capacity
+		 */
+		abstract void resize(int capacity);
+
+		/**
+		 * Set the non-empty field at the specified row.
+		 *
+		 * @param row
+		 *            the row index
+		 * @param s
+		 *            the field
+		 * @return <tt>false</tt> if the field does not match the type
+		 */
+		abstract boolean parse(int row, String s);
+
+		/**
+		 * Returns the text of the non-null field at the specified row.
+		 *
+		 * @param row
+		 *            the row index
+		 * @return the text
+		 */
+		abstract String text(int row);
+
+		/**
+		 * Returns the estimated amount of heap bytes retained by the values
+		 * of the column.
+		 *
+		 * @param rows
+		 *            the amount of rows
+		 * @return the estimated size in bytes
+		 */
+		abstract long size(int rows);
+
+		/**
+		 * Set the field at the specified row.
+		 *
+		 * @param row
+		 *            the row index
+		 * @param s
+		 *            the field, or <tt>null</tt>
+		 * @return <tt>false</tt> if the field does not match the type
+		 */
+		boolean set(int row, String s)
+		{
+			if (s == null || s.isEmpty())
+			{
+				nulls.set(row);
+				return true;
+			}
+			if (!parse(row, s))
+				return false;
+			nulls.clear(row);
+			return true;
+		}
+
+		/**
+		 * Returns the field at the specified row.
+		 *
+		 * @param row
+		 *            the row index
+		 * @return the field, or <tt>null</tt>
+		 */
+		String get(int row)
+		{
+			return nulls.get(row) ? null : text(row);
+		}
+
+		/**
+		 * Returns the state that whether the column contains nulls.
+		 *
+		 * @param rows
+		 *            the amount of rows
+		 * @return <tt>true</tt> if the column contains nulls
+		 */
+		boolean nullable(int rows)
+		{
+			int row = nulls.nextSetBit(0);
+			return row >= 0 && row < rows;
+		}
+	}
+
+	/**
+	 * The column of <tt>int</tt> values, which is also used for dates.
+	 */
+	static final class IntColumn extends Column
+	{
+		/**
+		 * The type of the column.
+		 */
+		final Type	type;
+		/**
+		 * The values.
+		 */
+		int[]		values;
+
+		/**
+		 * Construct an instance of <tt>int</tt> column.
+		 *
+		 * @param type
+		 *            {@link Type#INT} or {@link Type#DATE}
+		 * @param capacity
+		 *            the initial capacity
+		 */
+		IntColumn(Type type, int capacity)
+		{
+			this.type = type;
+			values = new int[capacity];
+		}
+
+		Type type()
+		{
+			return type;
+		}
+
+		void resize(int capacity)
+		{
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		boolean parse(int row, String s)
+		{
+			if (type == Type.DATE)
+			{
+				int day = CSVSchema.parseDate(s);
+				if (day == Integer.MIN_VALUE)
+					return false;
+				values[row] = day;
+				return true;
+			}
+			if (CSVSchema.typeOf(s) != Type.INT)
+				return false;
+			values[row] = Integer.parseInt(s);
+			return true;
+		}
+
+		String text(int row)
+		{
+			return type == Type.DATE ? CSVSchema.formatDate(values[row])
+					: Integer.toString(values[row]);
+		}
+
+		long size(int rows)
+		{
+			return 16 + 4L * values.length;
+		}
+	}
+
+	/**
+	 * The column of <tt>long</tt> values.
+	 */
+	static final class LongColumn extends Column
+	{
+		/**
+		 * The values.
+		 */
+		long[]	values;
+
+		/**
+		 * Construct an instance of <tt>long</tt> column.
+		 *
+		 * @param capacity
+		 *            the initial capacity
+		 */
+		LongColumn(int capacity)
+		{
+			values = new long[capacity];
+		}
+
+		Type type()
+		{
+			return Type.LONG;
+		}
+
+		void resize(int capacity)
+		{
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		boolean parse(int row, String s)
+		{
+			Type type = CSVSchema.typeOf(s);
+			if (type != Type.INT && type != Type.LONG)
+				return false;
+			values[row] = Long.parseLong(s);
+			return true;
+		}
+
+		String text(int row)
+		{
+			return Long.toString(values[row]);
+		}
+
+		long size(int rows)
+		{
+			return 16 + 8L * values.length;
+		}
+	}
+
+	/**
+	 * The column of <tt>double</tt> values.
+	 */
+	static final class DoubleColumn extends Column
+	{
+		/**
+		 * The values.
+		 */
+		double[]	values;
+
+		/**
+		 * Construct an instance of <tt>double</tt> column.
+		 *
+		 * @param capacity
+		 *            the initial capacity
+		 */
+		DoubleColumn(int capacity)
+		{
+			values = new double[capacity];
+		}
+
+		Type type()
+		{
+			return Type.DOUBLE;
+		}
+
+		void resize(int capacity)
+		{
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		boolean parse(int row, String s)
+		{
+			Type type = CSVSchema.typeOf(s);
+			if (type != Type.INT && type != Type.LONG && type != Type.DOUBLE)
+				return false;
+			values[row] = Double.parseDouble(s);
+			return true;
+		}
+
+		String text(int row)
+		{
+			double value = values[row];
+			if (value == (long) value && Math.abs(value) < 1e15)
+				return Long.toString((long) value);
+			return Double.toString(value);
+		}
+
+		long size(int rows)
+		{
+			return 16 + 8L * values.length;
+		}
+	}
+
+	/**
+	 * The column of <tt>boolean</tt> values.
+	 */
+	static final class BooleanColumn extends Column
+	{
+		/**
+		 * The values.
+		 */
+		final BitSet	values	= new BitSet();
+
+		Type type()
+		{
+			return Type.BOOLEAN;
+		}
+
+		void resize(int capacity)
+		{
+			// the bit set grows on demand
+		}
+
+		boolean parse(int row, String s)
+		{
+			if (s.equalsIgnoreCase("true"))
+				values.set(row);
+			else if (s.equalsIgnoreCase("false"))
+				values.clear(row);
+			else
+				return false;
+			return true;
+		}
+
+		String text(int row)
+		{
+			return values.get(row) ? "true" : "false";
+		}
+
+		long size(int rows)
+		{
+			return 40 + rows / 8;
+		}
+	}
+
+	/**
+	 * The column of strings.
+	 */
+	static final class StringColumn extends Column
+	{
+		/**
+		 * The values.
+		 */
+		String[]	values;
+
+		/**
+		 * Construct an instance of string column.
+		 *
+		 * @param capacity
+		 *            the initial capacity
+		 */
+		StringColumn(int capacity)
+		{
+			values = new String[capacity];
+		}
+
+		Type type()
+		{
+			return Type.STRING;
+		}
+
+		void resize(int capacity)
+		{
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		boolean set(int row, String s)
+		{
+			values[row] = s;
+			return true;
+		}
+
+		String get(int row)
+		{
+			return values[row];
+		}
+
+		boolean nullable(int rows)
+		{
+			for (int i = 0; i < rows; i++)
+				if (values[i] == null || values[i].isEmpty())
+					return true;
+			return false;
+		}
+
+		boolean parse(int row, String s)
+		{
+			values[row] = s;
+			return true;
+		}
+
+		String text(int row)
+		{
+			return values[row];
+		}
+
+		long size(int rows)
+		{
+			long size = 16 + 4L * values.length;
+			for (int i = 0; i < rows; i++)
+				size += sizeOf(values[i]);
+			return size;
+		}
+	}
+
+	/**
+	 * The typed columns.
+	 */
+	protected final Column[]	store;
+	/**
+	 * The capacity of rows.
+	 */
+	private int					capacity;
+
+	/**
+	 * Construct an instance of empty typed CSV data with the specified
+	 * schema.
+	 *
+	 * @param schema
+	 *            the schema of the data
+	 */
+	public TypedCSV(CSVSchema schema)
+	{
+		this(schema, 16);
+	}
+
+	/**
+	 * Construct an instance of empty typed CSV data with the specified
+	 * schema and initial capacity.
+	 *
+	 * @param schema
+	 *            the schema of the data
+	 * @param capacity
+	 *            the initial capacity of rows
+	 */
+	public TypedCSV(CSVSchema schema, int capacity)
+	{
+		super(schema.columns(), 0, schema.isTitled());
+		if (schema.isTitled())
+			setTitles(schema.getTitles());
+		this.capacity = Math.max(capacity, 1);
+		store = new Column[columns];
+		for (int i = 0; i < columns; i++)
+			store[i] = create(schema.getType(i), this.capacity);
+	}
+
+	/**
+	 * Create an empty column of the specified type.
+	 *
+	 * @param type
+	 *            the type
+	 * @param capacity
+	 *            the capacity
+	 * @return the column
+	 */
+	private static Column create(Type type, int capacity)
+	{
+		switch (type)
+		{
+			case INT:
+			case DATE:
+				return new IntColumn(type, capacity);
+			case LONG:
+				return new LongColumn(capacity);
+			case DOUBLE:
+				return new DoubleColumn(capacity);
+			case BOOLEAN:
+				return new BooleanColumn();
+			default:
+				return new StringColumn(capacity);
+		}
+	}
+
+	/**
+	 * Append a row to the end of the data, the missing fields are set to
+	 * null.
+	 *
+	 * @param line
+	 *            the fields of the row
+	 */
+	public void append(String[] line)
+	{
+		if (line.length > columns)
+			throw new ArrayIndexOutOfBoundsException(String.format(
+					"The length of the row(%d) exceeds the columns size(%d).",
+					line.length, columns));
+		if (rows == capacity)
+		{
+			capacity = rows + (rows >> 1) + 1;
+			for (Column column : store)
+				column.resize(capacity);
+		}
+		int row = rows++;
+		for (int i = 0; i < columns; i++)
+			set(row, i, i < line.length ? line[i] : null);
+	}
+
+	/**
+	 * Set the field and promote the column if the field does not match the
+	 * type.
+	 *
+	 * @param row
+	 *            the row index
+	 * @param column
+	 *            the column index
+	 * @param s
+	 *            the field
+	 */
+	private void set(int row, int column, String s)
+	{
+		Column c = store[column];
+		while (!c.set(row, s))
+			c = promote(column, CSVSchema.widen(c.type(),
+					CSVSchema.typeOf(s)));
+	}
+
+	/**
+	 * Convert the specified column to a wider type.
+	 *
+	 * @param column
+	 *            the column index
+	 * @param type
+	 *            the new type
+	 * @return the new column
+	 */
+	private Column promote(int column, Type type)
+	{
+		Column from = store[column];
+		if (type == from.type())
+			type = Type.STRING;
+		Column to = create(type, capacity);
+		for (int row = 0; row < rows; row++)
+			to.set(row, from.get(row));
+		store[column] = to;
+		return to;
+	}
+
+	/**
+	 * Returns the current type of the specified column, which may be wider
+	 * than the type in the schema after promotions.
+	 *
+	 * @param column
+	 *            the column index
+	 * @return the type
+	 */
+	public Type getType(int column)
+	{
+		checkColumn(column);
+		return store[column].type();
+	}
+
+	/**
+	 * Returns the current type of the specified column.
+	 *
+	 * @param title
+	 *            the column title
+	 * @return the type
+	 */
+	public Type getType(String title)
+	{
+		return getType(columnIndex(title));
+	}
+
+	/**
+	 * Returns the current schema of the data, the cardinality is not
+	 * computed.
+	 *
+	 * @return the schema
+	 */
+	public CSVSchema getSchema()
+	{
+		CSVSchema schema = new CSVSchema(columns, titles);
+		for (int i = 0; i < columns; i++)
+		{
+			schema.setType(i, store[i].type());
+			schema.nullable[i] = store[i].nullable(rows);
+		}
+		return schema;
+	}
+
+	/**
+	 * Returns the state that whether the specified field is null.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param column
+	 *            the column index of the field
+	 * @return <tt>true</tt> if the field is null
+	 */
+	public boolean isNull(int row, int column)
+	{
+		return getData(row, column) == null;
+	}
+
+	/**
+	 * Returns the specified <tt>INT</tt> field.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param column
+	 *            the column index of the field
+	 * @return the value
+	 * @throws IllegalStateException
+	 *             if the column is not <tt>INT</tt> or the field is null
+	 */
+	public int getInt(int row, int column)
+	{
+		Column c = typed(row, column, Type.INT);
+		return ((IntColumn) c).values[row];
+	}
+
+	/**
+	 * Returns the specified <tt>INT</tt> or <tt>LONG</tt> field.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param column
+	 *            the column index of the field
+	 * @return the value
+	 * @throws IllegalStateException
+	 *             if the column is not integral or the field is null
+	 */
+	public long getLong(int row, int column)
+	{
+		Column c = typed(row, column, Type.LONG);
+		if (c instanceof IntColumn)
+			return ((IntColumn) c).values[row];
+		return ((LongColumn) c).values[row];
+	}
+
+	/**
+	 * Returns the specified numeric field.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param column
+	 *            the column index of the field
+	 * @return the value
+	 * @throws IllegalStateException
+	 *             if the column is not numeric or the field is null
+	 */
+	public double getDouble(int row, int column)
+	{
+		Column c = typed(row, column, Type.DOUBLE);
+		if (c instanceof IntColumn)
+			return ((IntColumn) c).values[row];
+		if (c instanceof LongColumn)
+			return ((LongColumn) c).values[row];
+		return ((DoubleColumn) c).values[row];
+	}
+
+	/**
+	 * Returns the specified <tt>BOOLEAN</tt> field.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param column
+	 *            the column index of the field
+	 * @return the value
+	 * @throws IllegalStateException
+	 *             if the column is not <tt>BOOLEAN</tt> or the field is null
+	 */
+	public boolean getBoolean(int row, int column)
+	{
+		Column c = typed(row, column, Type.BOOLEAN);
+		return ((BooleanColumn) c).values.get(row);
+	}
+
+	/**
+	 * Returns the specified <tt>DATE</tt> field as the amount of days since
+	 * 1970-01-01.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param column
+	 *            the column index of the field
+	 * @return the epoch day
+	 * @throws IllegalStateException
+	 *             if the column is not <tt>DATE</tt> or the field is null
+	 */
+	public int getEpochDay(int row, int column)
+	{
+		Column c = typed(row, column, Type.DATE);
+		return ((IntColumn) c).values[row];
+	}
+
+	/**
+	 * Returns the specified <tt>INT</tt> field.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param title
+	 *            the column title of the field
+	 * @return the value
+	 */
+	public int getInt(int row, String title)
+	{
+		return getInt(row, columnIndex(title));
+	}
+
+	/**
+	 * Returns the specified <tt>INT</tt> or <tt>LONG</tt> field.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param title
+	 *            the column title of the field
+	 * @return the value
+	 */
+	public long getLong(int row, String title)
+	{
+		return getLong(row, columnIndex(title));
+	}
+
+	/**
+	 * Returns the specified numeric field.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param title
+	 *            the column title of the field
+	 * @return the value
+	 */
+	public double getDouble(int row, String title)
+	{
+		return getDouble(row, columnIndex(title));
+	}
+
+	/**
+	 * Returns the specified <tt>BOOLEAN</tt> field.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param title
+	 *            the column title of the field
+	 * @return the value
+	 */
+	public boolean getBoolean(int row, String title)
+	{
+		return getBoolean(row, columnIndex(title));
+	}
+
+	/**
+	 * Returns a stream of the <tt>int</tt> values, which are read from the
+	 * typed storage if the column is <tt>INT</tt>.
+	 *
+	 * @throws IllegalStateException
+	 *             if a null field is consumed
+	 * @see com.frank.csv.CSV#intColumn(int)
+	 */
+	public IntStream intColumn(int column)
+	{
+		checkColumn(column);
+		Column c = store[column];
+		if (c.type() != Type.INT)
+			return super.intColumn(column);
+		int[] values = ((IntColumn) c).values;
+		return IntStream.range(0, rows).map(row -> {
+			checkNull(c, row, column);
+			return values[row];
+		});
+	}
+
+	/**
+	 * Returns a stream of the <tt>long</tt> values, which are read from the
+	 * typed storage if the column is integral.
+	 *
+	 * @throws IllegalStateException
+	 *             if a null field is consumed
+	 * @see com.frank.csv.CSV#longColumn(int)
+	 */
+	public LongStream longColumn(int column)
+	{
+		checkColumn(column);
+		Column c = store[column];
+		if (c.type() == Type.INT)
+			return intColumn(column).asLongStream();
+		if (c.type() != Type.LONG)
+			return super.longColumn(column);
+		long[] values = ((LongColumn) c).values;
+		return IntStream.range(0, rows).mapToLong(row -> {
+			checkNull(c, row, column);
+			return values[row];
+		});
+	}
+
+	/**
+	 * Returns a stream of the <tt>double</tt> values, which are read from
+	 * the typed storage if the column is numeric.
+	 *
+	 * @throws IllegalStateException
+	 *             if a null field is consumed
+	 * @see com.frank.csv.CSV#doubleColumn(int)
+	 */
+	public DoubleStream doubleColumn(int column)
+	{
+		checkColumn(column);
+		Column c = store[column];
+		if (c.type() == Type.INT || c.type() == Type.LONG)
+			return longColumn(column).asDoubleStream();
+		if (c.type() != Type.DOUBLE)
+			return super.doubleColumn(column);
+		double[] values = ((DoubleColumn) c).values;
+		return IntStream.range(0, rows).mapToDouble(row -> {
+			checkNull(c, row, column);
+			return values[row];
+		});
+	}
+
+	/**
+	 * Check that the specified field is not null.
+	 *
+	 * @param c
+	 *            the column
+	 * @param row
+	 *            the row index of the field
+	 * @param column
+	 *            the column index of the field
+	 */
+	private static void checkNull(Column c, int row, int column)
+	{
+		if (c.nulls.get(row))
+			throw new IllegalStateException(String.format(
+					"The field(row, column) = (%d, %d) is null.", row, column));
+	}
+
+	/**
+	 * Returns the column of the specified field and check its type.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param column
+	 *            the column index of the field
+	 * @param type
+	 *            the widest accepted type
+	 * @return the column
+	 */
+	private Column typed(int row, int column, Type type)
+	{
+		checkBounds(row, column);
+		Column c = store[column];
+		Type actual = c.type();
+		boolean accepted = actual == type
+				|| type != Type.DATE && type != Type.BOOLEAN
+				&& CSVSchema.widen(actual, type) == type;
+		if (!accepted)
+			throw new IllegalStateException(String.format(
+					"The column %d is %s, which cannot be read as %s.",
+					column, actual, type));
+		checkNull(c, row, column);
+		return c;
+	}
+
+	/**
+	 * Returns the index of the title.
+	 *
+	 * @param title
+	 *            the column title
+	 * @return the column index
+	 */
+	private int columnIndex(String title)
+	{
+		int column = index(title);
+		if (column == -1)
+			throw new NoSuchElementException(String.format(
+					"There is no such title \"%s\" in current CSV data.",
+					title));
+		return column;
+	}
+
+	/**
+	 * Check the bounds of the column index.
+	 *
+	 * @param column
+	 *            the column index
+	 */
+	private void checkColumn(int column)
+	{
+		if (column < 0 || column >= columns)
+			throw new ArrayIndexOutOfBoundsException(String.format(
+					"The request column %d is out of the bounds of %d",
+					column, columns));
+	}
+
+	/**
+	 * Check the bounds of the field.
+	 *
+	 * @param row
+	 *            the row index of the field
+	 * @param column
+	 *            the column index of the field
+	 */
+	private void checkBounds(int row, int column)
+	{
+		if (row < 0 || row >= rows || column < 0 || column >= columns)
+			throw new ArrayIndexOutOfBoundsException(
+					String.format(
+							"The request field(row, column) = (%d, %d) is out of the bounds of (%d, %d)",
+							row, column, rows, columns));
+	}
+
+	/**
+	 * @see com.frank.csv.CSV#getData(int, int)
+	 */
+	public String getData(int row, int column)
+	{
+		checkBounds(row, column);
+		return store[column].get(row);
+	}
+
+	/**
+	 * Set the specified field, the column is promoted if the field does not
+	 * match its type.
+	 *
+	 * @see com.frank.csv.CSV#setData(int, int, java.lang.String)
+	 */
+	public void setData(int row, int column, String s)
+	{
+		checkBounds(row, column);
+		set(row, column, s);
+	}
+
+	/**
+	 * Returns a copy of the specified row, which is rendered from the typed
+	 * columns.
+	 *
+	 * @see com.frank.csv.CSV#getRow(int)
+	 */
+	public String[] getRow(int row)
+	{
+		if (row < 0 || row >= rows)
+			throw new ArrayIndexOutOfBoundsException(String.format(
+					"The request row %d is out of the bounds of %d", row,
+					rows));
+		String[] line = new String[columns];
+		for (int i = 0; i < columns; i++)
+			line[i] = store[i].get(row);
+		return line;
+	}
+
+	/**
+	 * Returns a copy of the data, which is rendered from the typed columns.
+	 *
+	 * @see com.frank.csv.CSV#getData()
+	 */
+	public String[][] getData()
+	{
+		String[][] data = new String[rows][];
+		for (int row = 0; row < rows; row++)
+			data[row] = getRow(row);
+		return data;
+	}
+
+	/**
+	 * Release the unused capacity of the columns.
+	 */
+	public void trimToSize()
+	{
+		capacity = Math.max(rows, 1);
+		for (Column column : store)
+			column.resize(capacity);
+	}
+
+	/**
+	 * @see com.frank.csv.CSV#estimateSize()
+	 */
+	public long estimateSize()
+	{
+		long size = 16 + 4L * columns;
+		if (titles != null)
+			size += sizeOf(titles) + 48L * titles.length;
+		for (Column column : store)
+			size += 32 + column.size(rows) + column.nulls.size() / 8;
+		return size;
+	}
+}